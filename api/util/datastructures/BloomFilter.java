@@ -0,0 +1,89 @@
+/*
+ * Title: BloomFilter
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * A blocked Bloom filter over hash codes, used by the symbol tables to answer most lookups of absent keys without touching the table itself.
+ *
+ * The bit array is divided into 512-bit blocks, the size of a typical cache line. A hash code selects one block, and all of its bits are set or tested within
+ * that block, so a query costs a single cache miss however many bits it checks. Confining the bits to one block raises the false-positive rate slightly above
+ * that of a classic Bloom filter of the same size.
+ *
+ * A filter never reports an added hash code as absent. It cannot forget a hash code, so deleting keys from the table only makes the filter less selective
+ * until the table rebuilds it.
+ */
+
+package api.util.datastructures;
+
+public class BloomFilter
+{
+    private static final int BLOCK_BITS     = 512;
+    private static final int BLOCK_SHIFT    = 3;   // log2 of the number of longs in a block.
+    private static final int MAXIMUM_HASHES = 16;
+
+    private final long[] bits;
+    private final int    blockCount;
+    private final int    hashCount;  // Number of bits set per hash code.
+
+    // Create a filter which reports roughly 'falsePositiveRate' of absent hash codes as present once 'expectedInsertions' hash codes have been added.
+    public BloomFilter(final long expectedInsertions, final double falsePositiveRate)
+    {
+        if ( ( falsePositiveRate <= 0 ) || ( falsePositiveRate >= 1 ) ) { throw new IllegalArgumentException("The false-positive rate must be between 0 and 1."); }
+
+        double ln2 = Math.log(2);
+        long insertions = Math.max(expectedInsertions, 1);
+        double bitCount = Math.ceil(( -insertions * Math.log(falsePositiveRate) ) / ( ln2 * ln2 ));
+
+        this.blockCount = (int) Math.min(Integer.MAX_VALUE >> BloomFilter.BLOCK_SHIFT, Math.max(1, (long) Math.ceil(bitCount / BloomFilter.BLOCK_BITS)));
+        this.bits = new long[this.blockCount << BloomFilter.BLOCK_SHIFT];
+        this.hashCount = (int) Math.max(1, Math.min(BloomFilter.MAXIMUM_HASHES, Math.round(( bitCount / insertions ) * ln2)));
+    }
+
+    // Record a hash code as present.
+    public final void add(final int hash)
+    {
+        int base = this.blockOf(hash);
+        int h1 = SizingPolicy.mix(~hash);
+        int h2 = ( ( h1 >>> 16 ) | 1 );
+
+        for ( int i = 0; i < this.hashCount; i++ )
+        {
+            int bit = ( ( h1 + ( i * h2 ) ) & ( BloomFilter.BLOCK_BITS - 1 ) );
+            this.bits[base + ( bit >>> 6 )] |= ( 1L << bit );
+        }
+    }
+
+    // Return the index of the first long of the block for this hash code.
+    private int blockOf(final int hash)
+    {
+        return ( (int) ( ( ( SizingPolicy.mix(hash) & 0xFFFFFFFFL ) * this.blockCount ) >>> 32 ) << BloomFilter.BLOCK_SHIFT );
+    }
+
+    public final int getHashCount()
+    {
+        return this.hashCount;
+    }
+
+    // Return the size of the filter in bits.
+    public final long getSize()
+    {
+        return ( (long) this.bits.length * 64 );
+    }
+
+    // Might the hash code have been added? A false answer is always correct.
+    public final boolean mightContain(final int hash)
+    {
+        int base = this.blockOf(hash);
+        int h1 = SizingPolicy.mix(~hash);
+        int h2 = ( ( h1 >>> 16 ) | 1 );
+
+        for ( int i = 0; i < this.hashCount; i++ )
+        {
+            int bit = ( ( h1 + ( i * h2 ) ) & ( BloomFilter.BLOCK_BITS - 1 ) );
+
+            if ( ( this.bits[base + ( bit >>> 6 )] & ( 1L << bit ) ) == 0 ) { return false; }
+        }
+
+        return true;
+    }
+}
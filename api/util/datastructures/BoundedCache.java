@@ -0,0 +1,712 @@
+/*
+ * Title: BoundedCache
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * A thread-safe cache bounded by a number of entries or by a total weight, built from a SeparateChainingSymbolTable index and DoubleLinkedList queues.
+ *
+ * LRU evicts the least recently used entry.
+ * LFU evicts the least frequently used entry, breaking ties by recency. Counts saturate at 15 and never decay, so an entry which was popular long ago keeps its
+ * count and outlives newer entries until it is invalidated; W_TINY_LFU, whose sketch halves its counts, suits workloads whose popular keys change over time.
+ * W_TINY_LFU admits new entries through a small LRU window of 1% of the bound. An entry leaving the window enters the main space only if a frequency sketch has
+ * seen its key more often than the main space's next victim. The main space is a segmented LRU whose protected segment, holding up to 80% of it, is reached
+ * by a second hit, so a one-off scan cannot flush the entries which are used repeatedly.
+ *
+ * With an expiry time, entries are dropped that long after they were last written. Every entry lives for the same time, so the write order is also the expiry
+ * order, and each operation removes the expired entries from the old end of a write-order queue.
+ *
+ * get(key, loader) runs the loader outside the lock. Concurrent misses on the same key share one load: the first caller runs the loader and the others wait for its
+ * result. A loader which returns null caches nothing, and an exception thrown by the loader, or by the weigher while caching its value, is rethrown to every caller
+ * waiting on it. A loader must not call get for the key it is loading: that would wait on itself, so it throws IllegalStateException instead.
+ */
+
+package api.util.datastructures;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+
+public class BoundedCache<K, V>
+{
+    public static enum EvictionPolicy
+    {
+        LFU, LRU, W_TINY_LFU
+    }
+
+    // A cached key-value pair and its positions in the queues.
+    private static final class Entry<K, V>
+    {
+        private final K               key;
+        private DataNode<Entry<K, V>> node      = null; // Position in the queue of the eviction policy.
+        private int                   queue     = 0;    // Index of that queue.
+        private V                     value     = null;
+        private long                  weight    = 0;
+        private DataNode<Entry<K, V>> writeNode = null; // Position in the write-order queue, if entries expire.
+        private long                  writeTime = 0;
+
+        private Entry(final K key, final V value, final long weight)
+        {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    // A count-min sketch of recent key frequencies: four 4-bit counters per key, sixteen to a long. The counters are halved after a sample of 10 increments per
+    // long, so that the sketch forgets old popularity.
+    private static final class FrequencySketch
+    {
+        private static final int   MAXIMUM_LENGTH = ( 1 << 24 );
+        private static final int[] SEEDS          = { 0x97CB3127, 0xB8B6D5E5, 0x9E3779B9, 0xC2B2AE35 };
+
+        private int    additions  = 0;
+        private int    sampleSize = 0;
+        private long[] table      = null;
+
+        private FrequencySketch(final long expectedEntries)
+        {
+            this.ensureCapacity(expectedEntries);
+        }
+
+        // Grow the sketch to suit the number of distinct keys being tracked. Growing discards the counts.
+        private void ensureCapacity(final long expectedEntries)
+        {
+            int length = SizingPolicy.POWER_OF_TWO.capacityAtLeast(Math.min(Math.max(expectedEntries, 16), FrequencySketch.MAXIMUM_LENGTH));
+
+            if ( ( this.table != null ) && ( this.table.length >= length ) ) { return; }
+
+            this.table = new long[length];
+            this.sampleSize = 10 * length;
+            this.additions = 0;
+        }
+
+        // Return the estimated number of recent occurrences of a hash code, at most 15.
+        private int frequency(final int hash)
+        {
+            int frequency = 15;
+
+            for ( int i = 0; i < FrequencySketch.SEEDS.length; i++ )
+            {
+                int h = SizingPolicy.mix(hash * FrequencySketch.SEEDS[i]);
+                frequency = Math.min(frequency, (int) ( ( this.table[h & ( this.table.length - 1 )] >>> ( ( h >>> 28 ) << 2 ) ) & 0xF ));
+            }
+
+            return frequency;
+        }
+
+        private void increment(final int hash)
+        {
+            boolean added = false;
+
+            for ( int i = 0; i < FrequencySketch.SEEDS.length; i++ )
+            {
+                int h = SizingPolicy.mix(hash * FrequencySketch.SEEDS[i]);
+                int index = ( h & ( this.table.length - 1 ) );
+                int shift = ( ( h >>> 28 ) << 2 );
+
+                if ( ( ( this.table[index] >>> shift ) & 0xF ) < 15 )
+                {
+                    this.table[index] += ( 1L << shift );
+                    added = true;
+                }
+            }
+
+            if ( added && ( ++this.additions >= this.sampleSize ) )
+            {
+                for ( int i = 0; i < this.table.length; i++ )
+                {
+                    this.table[i] = ( ( this.table[i] >>> 1 ) & 0x7777777777777777L );
+                }
+
+                this.additions >>>= 1;
+            }
+        }
+    }
+
+    // A load in progress, which remembers the thread running its loader.
+    private static final class Load<V> extends CompletableFuture<V>
+    {
+        private final Thread loader = Thread.currentThread();
+    }
+
+    private static final int LFU_MAXIMUM_FREQUENCY = 15;
+    private static final int PROBATION             = 1; // Queues of W_TINY_LFU.
+    private static final int PROTECTED             = 2;
+    private static final int WINDOW                = 0;
+
+    private SeparateChainingSymbolTable<K, Entry<K, V>>          entries          = new SeparateChainingSymbolTable<K, Entry<K, V>>();
+    private long                                                 evictionCount    = 0;
+    private final int[]                                          evictionOrder;                 // Queues in the order in which they give up victims.
+    private long                                                 evictionWeight   = 0;
+    private long                                                 expirationCount  = 0;
+    private final long                                           expireAfterWrite;              // In nanoseconds; 0 if entries never expire.
+    private long                                                 hitCount         = 0;
+    private long                                                 loadFailureCount = 0;
+    private SeparateChainingSymbolTable<K, Load<V>>              loads            = new SeparateChainingSymbolTable<K, Load<V>>(); // Loads in progress.
+    private long                                                 loadSuccessCount = 0;
+    private final ReentrantLock                                  lock             = new ReentrantLock();
+    private final long                                           maximumWeight;
+    private long                                                 missCount        = 0;
+    private final EvictionPolicy                                 policy;
+    private final long                                           protectedMaximum;              // Weight bound of the protected segment of W_TINY_LFU.
+    private final DoubleLinkedList<Entry<K, V>>[]                queues;                        // Most recently used entries at the head.
+    private final long[]                                         queueWeights;
+    private final FrequencySketch                                sketch;                        // Admission filter of W_TINY_LFU, otherwise null.
+    private long                                                 totalLoadNanos   = 0;
+    private final ToLongBiFunction<? super K, ? super V>         weigher;                       // Null if every entry weighs 1.
+    private long                                                 weightedSize     = 0;
+    private final long                                           windowMaximum;                 // Weight bound of the window of W_TINY_LFU.
+    private final DoubleLinkedList<Entry<K, V>>                  writeOrder;                    // Most recently written entries at the head, or null if entries never expire.
+
+    // Create a cache holding at most 'maximumSize' entries, which never expire.
+    public BoundedCache(final EvictionPolicy policy, final long maximumSize)
+    {
+        this(policy, maximumSize, null, 0, TimeUnit.NANOSECONDS);
+    }
+
+    // Create a cache holding at most 'maximumSize' entries, each expiring the given time after it was last written.
+    public BoundedCache(final EvictionPolicy policy, final long maximumSize, final long expireAfterWrite, final TimeUnit unit)
+    {
+        this(policy, maximumSize, null, expireAfterWrite, unit);
+    }
+
+    // Create a cache whose entries weigh at most 'maximumWeight' in total, each expiring the given time after it was last written; an expiry time of 0 means never.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BoundedCache(final EvictionPolicy policy, final long maximumWeight, final ToLongBiFunction<? super K, ? super V> weigher, final long expireAfterWrite, final TimeUnit unit)
+    {
+        if ( maximumWeight < 0 ) { throw new IllegalArgumentException("The maximum weight must not be negative."); }
+
+        if ( expireAfterWrite < 0 ) { throw new IllegalArgumentException("The expiry time must not be negative."); }
+
+        this.expireAfterWrite = unit.toNanos(expireAfterWrite);
+        this.maximumWeight = maximumWeight;
+        this.policy = policy;
+        this.weigher = weigher;
+        this.writeOrder = ( ( this.expireAfterWrite > 0 ) ? new DoubleLinkedList<Entry<K, V>>() : null );
+
+        switch ( policy )
+        {
+            case LFU:
+                // One queue per frequency, from 1 in queue 0 up to the maximum.
+                this.evictionOrder = new int[BoundedCache.LFU_MAXIMUM_FREQUENCY];
+
+                for ( int i = 0; i < this.evictionOrder.length; i++ )
+                {
+                    this.evictionOrder[i] = i;
+                }
+
+                break;
+
+            case W_TINY_LFU:
+                this.evictionOrder = new int[] { BoundedCache.PROBATION, BoundedCache.PROTECTED, BoundedCache.WINDOW };
+                break;
+
+            default:
+                this.evictionOrder = new int[] { 0 };
+                break;
+        }
+
+        this.queues = new DoubleLinkedList[this.evictionOrder.length];
+        this.queueWeights = new long[this.evictionOrder.length];
+
+        for ( int i = 0; i < this.queues.length; i++ )
+        {
+            this.queues[i] = new DoubleLinkedList<Entry<K, V>>();
+        }
+
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.protectedMaximum = (long) ( 0.8 * Math.max(0, maximumWeight - this.windowMaximum) );
+        this.sketch = ( ( policy == EvictionPolicy.W_TINY_LFU ) ? new FrequencySketch(( weigher == null ) ? maximumWeight : 0) : null );
+    }
+
+    // Remove expired entries now rather than during the next operation.
+    public final void cleanUp()
+    {
+        this.lock.lock();
+
+        try
+        {
+            this.expire(System.nanoTime());
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    // Move entries leaving the window of W_TINY_LFU into probation, each either evicting the probation victim or being evicted itself, whichever is used less often.
+    private void drainWindow()
+    {
+        while ( this.queueWeights[BoundedCache.WINDOW] > this.windowMaximum )
+        {
+            Entry<K, V> candidate = this.tailOf(BoundedCache.WINDOW);
+            this.moveTo(candidate, BoundedCache.PROBATION);
+
+            if ( this.weightedSize <= this.maximumWeight )
+            {
+                continue;
+            }
+
+            Entry<K, V> victim = this.tailOf(BoundedCache.PROBATION);
+
+            if ( victim == candidate )
+            {
+                victim = this.tailOf(BoundedCache.PROTECTED);
+            }
+
+            if ( victim == null )
+            {
+                continue;
+            }
+
+            if ( this.sketch.frequency(candidate.key.hashCode()) > this.sketch.frequency(victim.key.hashCode()) )
+            {
+                this.evict(victim);
+            }
+            else
+            {
+                this.evict(candidate);
+            }
+        }
+    }
+
+    private void evict(final Entry<K, V> entry)
+    {
+        this.evictionCount++;
+        this.evictionWeight += entry.weight;
+        this.remove(entry);
+    }
+
+    // Remove entries until the cache is within its bound.
+    private void evictToBound()
+    {
+        if ( this.policy == EvictionPolicy.W_TINY_LFU )
+        {
+            this.drainWindow();
+        }
+
+        while ( this.weightedSize > this.maximumWeight )
+        {
+            for ( int queue : this.evictionOrder )
+            {
+                if ( !this.queues[queue].isEmpty() )
+                {
+                    this.evict(this.tailOf(queue));
+                    break;
+                }
+            }
+        }
+    }
+
+    // Remove every entry written at least 'expireAfterWrite' before 'now'.
+    private void expire(final long now)
+    {
+        if ( this.writeOrder == null ) { return; }
+
+        while ( !this.writeOrder.isEmpty() )
+        {
+            @SuppressWarnings("unchecked")
+            Entry<K, V> oldest = ( (DataNode<Entry<K, V>>) this.writeOrder.getTail() ).getData();
+
+            if ( ( now - oldest.writeTime ) < this.expireAfterWrite ) { return; }
+
+            this.expirationCount++;
+            this.remove(oldest);
+        }
+    }
+
+    // Return the value cached for the key, loading it with 'loader' on a miss. A caller which misses while another caller is loading the same key waits for that load.
+    public final V get(final K key, final Function<? super K, ? extends V> loader)
+    {
+        Load<V> load = null;
+        boolean isLoader = false;
+        this.lock.lock();
+
+        try
+        {
+            this.expire(System.nanoTime());
+            Entry<K, V> entry = this.entries.get(key);
+
+            if ( entry != null )
+            {
+                this.hitCount++;
+                this.onAccess(entry);
+                return entry.value;
+            }
+
+            this.missCount++;
+            load = this.loads.get(key);
+
+            if ( ( load != null ) && ( load.loader == Thread.currentThread() ) ) { throw new IllegalStateException("A loader must not get the key it is loading."); }
+
+            if ( load == null )
+            {
+                load = new Load<V>();
+                this.loads.put(key, load);
+                isLoader = true;
+            }
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+
+        if ( isLoader )
+        {
+            this.load(key, loader, load);
+        }
+
+        try
+        {
+            return load.join();
+        }
+        catch ( CompletionException e )
+        {
+            if ( e.getCause() instanceof RuntimeException ) { throw (RuntimeException) e.getCause(); }
+
+            if ( e.getCause() instanceof Error ) { throw (Error) e.getCause(); }
+
+            throw e;
+        }
+    }
+
+    // Return the number of entries, including any expired entries not yet removed.
+    public final long getCurSize()
+    {
+        this.lock.lock();
+
+        try
+        {
+            return this.entries.getCurSize();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    // Return the value cached for the key, or null if there is none.
+    public final V getIfPresent(final K key)
+    {
+        this.lock.lock();
+
+        try
+        {
+            this.expire(System.nanoTime());
+            Entry<K, V> entry = this.entries.get(key);
+
+            if ( entry == null )
+            {
+                this.missCount++;
+                return null;
+            }
+
+            this.hitCount++;
+            this.onAccess(entry);
+            return entry.value;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    public final long getMaximumWeight()
+    {
+        return this.maximumWeight;
+    }
+
+    public final EvictionPolicy getPolicy()
+    {
+        return this.policy;
+    }
+
+    // Return a consistent snapshot of the hit, miss, load, and eviction counts.
+    public final CacheStats getStats()
+    {
+        this.lock.lock();
+
+        try
+        {
+            return new CacheStats(this.hitCount, this.missCount, this.loadSuccessCount, this.loadFailureCount, this.totalLoadNanos, this.evictionCount, this.evictionWeight,
+                    this.expirationCount);
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    // Return the total weight of the entries.
+    public final long getWeightedSize()
+    {
+        this.lock.lock();
+
+        try
+        {
+            return this.weightedSize;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    // Remove the key's entry, if any. A load of the key which is in progress is detached: its callers still receive its value, but it is not cached.
+    public final void invalidate(final K key)
+    {
+        this.lock.lock();
+
+        try
+        {
+            this.loads.delete(key);
+            Entry<K, V> entry = this.entries.get(key);
+
+            if ( entry != null )
+            {
+                this.remove(entry);
+            }
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    // Remove every entry and detach every load in progress.
+    public final void invalidateAll()
+    {
+        this.lock.lock();
+
+        try
+        {
+            this.entries = new SeparateChainingSymbolTable<K, Entry<K, V>>();
+            this.loads = new SeparateChainingSymbolTable<K, Load<V>>();
+
+            for ( int i = 0; i < this.queues.length; i++ )
+            {
+                this.queues[i].clear();
+                this.queueWeights[i] = 0;
+            }
+
+            if ( this.writeOrder != null )
+            {
+                this.writeOrder.clear();
+            }
+
+            this.weightedSize = 0;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    // Run the loader for a key, cache its value unless the load was detached meanwhile, and complete the load for every caller waiting on it. The load is removed
+    // and completed whatever the loader or the weigher throws, so that no caller waits on it forever.
+    private void load(final K key, final Function<? super K, ? extends V> loader, final Load<V> load)
+    {
+        long startTime = System.nanoTime();
+        Throwable failure = null;
+        V value = null;
+
+        try
+        {
+            value = loader.apply(key);
+        }
+        catch ( Throwable t )
+        {
+            failure = t;
+        }
+
+        long now = System.nanoTime();
+        this.lock.lock();
+
+        try
+        {
+            if ( this.loads.get(key) == load )
+            {
+                this.loads.delete(key);
+
+                if ( ( failure == null ) && ( value != null ) )
+                {
+                    this.store(key, value, now);
+                }
+            }
+        }
+        catch ( Throwable t )
+        {
+            failure = t;
+        }
+        finally
+        {
+            if ( failure == null )
+            {
+                this.loadSuccessCount++;
+            }
+            else
+            {
+                this.loadFailureCount++;
+            }
+
+            this.totalLoadNanos += ( now - startTime );
+            this.lock.unlock();
+        }
+
+        if ( failure == null )
+        {
+            load.complete(value);
+        }
+        else
+        {
+            load.completeExceptionally(failure);
+        }
+    }
+
+    // Move an entry to the head of another queue.
+    private void moveTo(final Entry<K, V> entry, final int queue)
+    {
+        this.queues[queue].transferToHead(entry.node, this.queues[entry.queue]);
+        this.queueWeights[entry.queue] -= entry.weight;
+        this.queueWeights[queue] += entry.weight;
+        entry.queue = queue;
+    }
+
+    // Record a use of an entry.
+    private void onAccess(final Entry<K, V> entry)
+    {
+        switch ( this.policy )
+        {
+            case LFU:
+                if ( entry.queue < ( BoundedCache.LFU_MAXIMUM_FREQUENCY - 1 ) )
+                {
+                    this.moveTo(entry, entry.queue + 1);
+                }
+                else
+                {
+                    this.queues[entry.queue].moveToHead(entry.node);
+                }
+
+                break;
+
+            case W_TINY_LFU:
+                this.sketch.increment(entry.key.hashCode());
+
+                if ( entry.queue == BoundedCache.PROBATION )
+                {
+                    // A second use promotes an entry to the protected segment, which pushes its least recently used entries back to probation when full.
+                    this.moveTo(entry, BoundedCache.PROTECTED);
+
+                    while ( this.queueWeights[BoundedCache.PROTECTED] > this.protectedMaximum )
+                    {
+                        this.moveTo(this.tailOf(BoundedCache.PROTECTED), BoundedCache.PROBATION);
+                    }
+                }
+                else
+                {
+                    this.queues[entry.queue].moveToHead(entry.node);
+                }
+
+                break;
+
+            default:
+                this.queues[entry.queue].moveToHead(entry.node);
+                break;
+        }
+    }
+
+    // Cache a value for the key, replacing any cached value. A null value removes the key. A load of the key which is in progress is detached.
+    public final void put(final K key, final V value)
+    {
+        if ( value == null )
+        {
+            this.invalidate(key);
+            return;
+        }
+
+        this.lock.lock();
+
+        try
+        {
+            long now = System.nanoTime();
+            this.expire(now);
+            this.loads.delete(key);
+            this.store(key, value, now);
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    private void remove(final Entry<K, V> entry)
+    {
+        this.entries.delete(entry.key);
+        this.queues[entry.queue].unlink(entry.node);
+        this.queueWeights[entry.queue] -= entry.weight;
+        this.weightedSize -= entry.weight;
+
+        if ( this.writeOrder != null )
+        {
+            this.writeOrder.unlink(entry.writeNode);
+        }
+    }
+
+    // Insert or replace an entry, then evict down to the bound.
+    private void store(final K key, final V value, final long now)
+    {
+        long weight = ( ( this.weigher == null ) ? 1 : this.weigher.applyAsLong(key, value) );
+
+        if ( weight < 0 ) { throw new IllegalArgumentException("An entry must not have a negative weight."); }
+
+        Entry<K, V> entry = this.entries.get(key);
+
+        if ( entry != null )
+        {
+            this.queueWeights[entry.queue] += ( weight - entry.weight );
+            this.weightedSize += ( weight - entry.weight );
+            entry.value = value;
+            entry.weight = weight;
+            this.onAccess(entry);
+
+            if ( this.writeOrder != null )
+            {
+                this.writeOrder.moveToHead(entry.writeNode);
+            }
+        }
+        else
+        {
+            entry = new Entry<K, V>(key, value, weight);
+            this.entries.put(key, entry);
+            entry.node = this.queues[0].linkHead(entry);
+            this.queueWeights[0] += weight;
+            this.weightedSize += weight;
+
+            if ( this.writeOrder != null )
+            {
+                entry.writeNode = this.writeOrder.linkHead(entry);
+            }
+
+            if ( this.sketch != null )
+            {
+                this.sketch.ensureCapacity(this.entries.getCurSize());
+                this.sketch.increment(key.hashCode());
+            }
+        }
+
+        entry.writeTime = now;
+        this.evictToBound();
+    }
+
+    // Return the least recently used entry of a queue, or null if it is empty.
+    @SuppressWarnings("unchecked")
+    private Entry<K, V> tailOf(final int queue)
+    {
+        if ( this.queues[queue].isEmpty() ) { return null; }
+
+        return ( (DataNode<Entry<K, V>>) this.queues[queue].getTail() ).getData();
+    }
+}
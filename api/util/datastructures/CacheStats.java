@@ -0,0 +1,121 @@
+/*
+ * Title: CacheStats
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * An immutable snapshot of the statistics of a BoundedCache or of the page cache of a DiskBPlusTree, taken at a single point in time.
+ *
+ * Every lookup is either a hit or a miss. A miss made through a loader is followed by one load, unless it joined a load already in progress for the same key.
+ * Evictions count entries removed to respect the bound; expirations count entries removed because they outlived their expiry time.
+ */
+
+package api.util.datastructures;
+
+public final class CacheStats
+{
+    private final long evictionCount;
+    private final long evictionWeight;
+    private final long expirationCount;
+    private final long hitCount;
+    private final long loadFailureCount;
+    private final long loadSuccessCount;
+    private final long missCount;
+    private final long totalLoadNanos;
+
+    public CacheStats(final long hitCount, final long missCount, final long loadSuccessCount, final long loadFailureCount, final long totalLoadNanos, final long evictionCount, final long evictionWeight, final long expirationCount)
+    {
+        this.evictionCount = evictionCount;
+        this.evictionWeight = evictionWeight;
+        this.expirationCount = expirationCount;
+        this.hitCount = hitCount;
+        this.loadFailureCount = loadFailureCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.missCount = missCount;
+        this.totalLoadNanos = totalLoadNanos;
+    }
+
+    // Return the mean time spent in the loader per load, in nanoseconds.
+    public final double getAverageLoadNanos()
+    {
+        long loads = this.getLoadSuccessCount() + this.getLoadFailureCount();
+        return ( ( loads == 0 ) ? 0.0 : ( (double) this.getTotalLoadNanos() / loads ) );
+    }
+
+    public final long getEvictionCount()
+    {
+        return this.evictionCount;
+    }
+
+    public final long getEvictionWeight()
+    {
+        return this.evictionWeight;
+    }
+
+    public final long getExpirationCount()
+    {
+        return this.expirationCount;
+    }
+
+    public final long getHitCount()
+    {
+        return this.hitCount;
+    }
+
+    // Return the fraction of lookups which were hits, or 1 if there have been no lookups.
+    public final double getHitRate()
+    {
+        long requests = this.getRequestCount();
+        return ( ( requests == 0 ) ? 1.0 : ( (double) this.getHitCount() / requests ) );
+    }
+
+    public final long getLoadFailureCount()
+    {
+        return this.loadFailureCount;
+    }
+
+    public final long getLoadSuccessCount()
+    {
+        return this.loadSuccessCount;
+    }
+
+    public final long getMissCount()
+    {
+        return this.missCount;
+    }
+
+    public final long getRequestCount()
+    {
+        return ( this.getHitCount() + this.getMissCount() );
+    }
+
+    public final long getTotalLoadNanos()
+    {
+        return this.totalLoadNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("CacheStats [hitCount=");
+        builder.append(this.getHitCount());
+        builder.append(", missCount=");
+        builder.append(this.getMissCount());
+        builder.append(", hitRate=");
+        builder.append(String.format("%.3f", this.getHitRate()));
+        builder.append(", loadSuccessCount=");
+        builder.append(this.getLoadSuccessCount());
+        builder.append(", loadFailureCount=");
+        builder.append(this.getLoadFailureCount());
+        builder.append(", totalLoadNanos=");
+        builder.append(this.getTotalLoadNanos());
+        builder.append(", evictionCount=");
+        builder.append(this.getEvictionCount());
+        builder.append(", evictionWeight=");
+        builder.append(this.getEvictionWeight());
+        builder.append(", expirationCount=");
+        builder.append(this.getExpirationCount());
+        builder.append("]");
+        return builder.toString();
+    }
+}
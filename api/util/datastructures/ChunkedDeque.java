@@ -0,0 +1,270 @@
+/*
+ * Title: ChunkedDeque
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * An array-backed counterpart to DoubleLinkedList, with the same insertHead/insertTail/deleteHead/deleteTail interface.
+ *
+ * The elements live in a ring of fixed-size chunks, CHUNK_SIZE elements to a chunk, so that neighbouring elements are neighbours in memory and a traversal
+ * reads whole chunks instead of chasing one pointer per element. Chunks are allocated the first time the ring reaches them and are kept when emptied, so a deque
+ * which has reached its working size inserts and deletes without allocating. A full ring doubles its number of chunks; the chunks themselves are moved by
+ * reference, and only the part of one chunk which wraps around is copied.
+ *
+ * Deleting from an empty deque returns null. The elements can also be read by index in constant time, and traversed by a fail-fast iterator or forEach().
+ */
+
+package api.util.datastructures;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+public class ChunkedDeque<T> implements Iterable<T>
+{
+    public static final int CHUNK_SIZE = 64;
+
+    private static final int CHUNK_SHIFT    = 6;
+    private static final int INITIAL_CHUNKS = 4;
+
+    private Object[][] chunks   = new Object[ChunkedDeque.INITIAL_CHUNKS][]; // The ring of chunks; its length is always a power of two.
+    private int        head     = 0;                                         // Position of the first element in the ring.
+    private int        modCount = 0;                                         // Number of insertions and deletions, checked by fail-fast cursors.
+    private int        size     = 0;
+
+    public ChunkedDeque()
+    {
+    }
+
+    @SafeVarargs
+    public ChunkedDeque(final T... args)
+    {
+        for ( T arg : args )
+        {
+            this.insertTail(arg);
+        }
+    }
+
+    // Return the number of positions in the ring.
+    private int capacity()
+    {
+        return ( this.chunks.length << ChunkedDeque.CHUNK_SHIFT );
+    }
+
+    // Return the chunk holding a position of the ring, allocating it if the ring has not reached it before.
+    private Object[] chunkAt(final int position)
+    {
+        Object[] chunk = this.chunks[position >>> ChunkedDeque.CHUNK_SHIFT];
+
+        if ( chunk == null )
+        {
+            chunk = new Object[ChunkedDeque.CHUNK_SIZE];
+            this.chunks[position >>> ChunkedDeque.CHUNK_SHIFT] = chunk;
+        }
+
+        return chunk;
+    }
+
+    // Remove every element, keeping the chunks for reuse.
+    public void clear()
+    {
+        for ( Object[] chunk : this.chunks )
+        {
+            if ( chunk != null )
+            {
+                Arrays.fill(chunk, null);
+            }
+        }
+
+        this.head = 0;
+        this.size = 0;
+        this.modCount++;
+    }
+
+    public T deleteHead()
+    {
+        if ( this.isEmpty() ) { return null; }
+
+        T retVal = this.take(this.head);
+        this.head = ( ( this.head + 1 ) & ( this.capacity() - 1 ) );
+        this.size--;
+        this.modCount++;
+        return retVal;
+    }
+
+    public T deleteTail()
+    {
+        if ( this.isEmpty() ) { return null; }
+
+        T retVal = this.take(this.positionOf(this.size - 1));
+        this.size--;
+        this.modCount++;
+        return retVal;
+    }
+
+    // Perform an action on each element from head to tail, one chunk at a time.
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(final Consumer<? super T> action)
+    {
+        int expectedModCount = this.modCount;
+        int position = this.head;
+        int remaining = this.size;
+
+        while ( remaining > 0 )
+        {
+            Object[] chunk = this.chunks[position >>> ChunkedDeque.CHUNK_SHIFT];
+            int offset = ( position & ( ChunkedDeque.CHUNK_SIZE - 1 ) );
+            int count = Math.min(remaining, ChunkedDeque.CHUNK_SIZE - offset);
+
+            for ( int i = offset; i < ( offset + count ); i++ )
+            {
+                action.accept((T) chunk[i]);
+            }
+
+            remaining -= count;
+            position = ( ( position + count ) & ( this.capacity() - 1 ) );
+        }
+
+        if ( this.modCount != expectedModCount ) { throw new ConcurrentModificationException(); }
+    }
+
+    // Return the element at the given index, counting from the head.
+    @SuppressWarnings("unchecked")
+    public T get(final int index)
+    {
+        if ( ( index < 0 ) || ( index >= this.size ) ) { throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size); }
+
+        int position = this.positionOf(index);
+        return (T) this.chunks[position >>> ChunkedDeque.CHUNK_SHIFT][position & ( ChunkedDeque.CHUNK_SIZE - 1 )];
+    }
+
+    public T getHead()
+    {
+        return ( this.isEmpty() ? null : this.get(0) );
+    }
+
+    public int getSize()
+    {
+        return this.size;
+    }
+
+    public T getTail()
+    {
+        return ( this.isEmpty() ? null : this.get(this.size - 1) );
+    }
+
+    // Double the number of chunks in the full ring, unrolling it so that the head chunk comes first.
+    private void grow()
+    {
+        int chunkCount = this.chunks.length;
+        int headChunk = ( this.head >>> ChunkedDeque.CHUNK_SHIFT );
+        int headOffset = ( this.head & ( ChunkedDeque.CHUNK_SIZE - 1 ) );
+        Object[][] grown = new Object[chunkCount * 2][];
+
+        for ( int i = 0; i < chunkCount; i++ )
+        {
+            grown[i] = this.chunks[( headChunk + i ) & ( chunkCount - 1 )];
+        }
+
+        if ( headOffset != 0 )
+        {
+            // The start of the head chunk holds the last elements of the deque, which now belong just past the old end of the ring.
+            grown[chunkCount] = new Object[ChunkedDeque.CHUNK_SIZE];
+            System.arraycopy(grown[0], 0, grown[chunkCount], 0, headOffset);
+            Arrays.fill(grown[0], 0, headOffset, null);
+        }
+
+        this.chunks = grown;
+        this.head = headOffset;
+    }
+
+    public void insertHead(final T data)
+    {
+        if ( this.size == this.capacity() )
+        {
+            this.grow();
+        }
+
+        this.head = ( ( this.head - 1 ) & ( this.capacity() - 1 ) );
+        this.chunkAt(this.head)[this.head & ( ChunkedDeque.CHUNK_SIZE - 1 )] = data;
+        this.size++;
+        this.modCount++;
+    }
+
+    public void insertTail(final T data)
+    {
+        if ( this.size == this.capacity() )
+        {
+            this.grow();
+        }
+
+        int position = this.positionOf(this.size);
+        this.chunkAt(position)[position & ( ChunkedDeque.CHUNK_SIZE - 1 )] = data;
+        this.size++;
+        this.modCount++;
+    }
+
+    public boolean isEmpty()
+    {
+        return ( this.getSize() <= 0 );
+    }
+
+    // Return a fail-fast cursor over the elements from head to tail.
+    @Override
+    public Iterator<T> iterator()
+    {
+        return new Iterator<T>()
+        {
+            private final int expectedModCount = ChunkedDeque.this.modCount;
+            private int       index            = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return ( this.index < ChunkedDeque.this.size );
+            }
+
+            @Override
+            public T next()
+            {
+                if ( ChunkedDeque.this.modCount != this.expectedModCount ) { throw new ConcurrentModificationException(); }
+
+                if ( !this.hasNext() ) { throw new NoSuchElementException(); }
+
+                return ChunkedDeque.this.get(this.index++);
+            }
+        };
+    }
+
+    // Return the position in the ring of the element at the given index.
+    private int positionOf(final int index)
+    {
+        return ( ( this.head + index ) & ( this.capacity() - 1 ) );
+    }
+
+    // Remove and return the element at a position of the ring.
+    @SuppressWarnings("unchecked")
+    private T take(final int position)
+    {
+        Object[] chunk = this.chunks[position >>> ChunkedDeque.CHUNK_SHIFT];
+        int offset = ( position & ( ChunkedDeque.CHUNK_SIZE - 1 ) );
+        T retVal = (T) chunk[offset];
+        chunk[offset] = null;
+        return retVal;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder output = new StringBuilder();
+
+        for ( T element : this )
+        {
+            output.append(element.toString() + "\n");
+        }
+
+        return output.toString();
+    }
+}
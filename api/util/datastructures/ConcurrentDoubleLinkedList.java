@@ -0,0 +1,423 @@
+/*
+ * Title: ConcurrentDoubleLinkedList
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * A lock-free counterpart to DoubleLinkedList for use as a work queue: any number of threads may insert and delete at either end at once.
+ *
+ * The algorithm is Maged Michael's CAS-based deque. The ends of the list and a status word are kept together in one immutable anchor, which every insertion and
+ * deletion replaces with a single compare-and-set. An insertion first swings the anchor to its new node, marking the anchor as unstable, and then links the old
+ * end node to the new node with a second compare-and-set; any thread which finds the anchor unstable completes that link before making its own change, so a
+ * stalled thread never blocks the others. Anchors are never reused, so the garbage collector rules out the ABA problem. After a deletion swings the anchor, the new
+ * end entry's link back to the removed entry is cleared with a compare-and-set, as ConcurrentLinkedDeque unlinks its nodes, so that removed entries do not
+ * stay reachable from the list in an ever-growing chain.
+ *
+ * Deleting from an empty list returns null, so null elements are not allowed. The size is a moment-in-time estimate under concurrent updates.
+ */
+
+package api.util.datastructures;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+import edu.princeton.cs.algs4.StdOut;
+
+public class ConcurrentDoubleLinkedList<T>
+{
+    // The two ends of the list and whether the most recent insertion has been fully linked.
+    private static final class Anchor<T>
+    {
+        private final Entry<T> head;
+        private final int      status;
+        private final Entry<T> tail;
+
+        private Anchor(final Entry<T> head, final Entry<T> tail, final int status)
+        {
+            this.head = head;
+            this.status = status;
+            this.tail = tail;
+        }
+    }
+
+    // A list link. The links are changed only by compare-and-set once the entry is reachable; they are not private, because a field updater cannot reach
+    // the private fields of a nested class before Java 11.
+    private static final class Entry<T>
+    {
+        private T         data     = null;
+        volatile Entry<T> next     = null;
+        volatile Entry<T> previous = null;
+
+        private Entry(final T data)
+        {
+            this.data = data;
+        }
+    }
+
+    private static final int HEAD_PUSH = 1; // The new head is not yet linked from the entry after it.
+    private static final int STABLE    = 0;
+    private static final int TAIL_PUSH = 2; // The new tail is not yet linked from the entry before it.
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Entry, Entry> NEXT     = AtomicReferenceFieldUpdater.newUpdater(Entry.class, Entry.class, "next");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Entry, Entry> PREVIOUS = AtomicReferenceFieldUpdater.newUpdater(Entry.class, Entry.class, "previous");
+
+    private final AtomicReference<Anchor<T>> anchor = new AtomicReference<Anchor<T>>(new Anchor<T>(null, null, ConcurrentDoubleLinkedList.STABLE));
+    private final LongAdder                  size   = new LongAdder();
+
+    public ConcurrentDoubleLinkedList()
+    {
+    }
+
+    @SafeVarargs
+    public ConcurrentDoubleLinkedList(final T... args)
+    {
+        for ( T arg : args )
+        {
+            this.insertTail(arg);
+        }
+    }
+
+    // Remove and return the head element, or return null if the list is empty.
+    public T deleteHead()
+    {
+        Anchor<T> current = null;
+
+        while ( true )
+        {
+            current = this.anchor.get();
+
+            if ( current.head == null ) { return null; }
+
+            if ( current.head == current.tail )
+            {
+                if ( this.anchor.compareAndSet(current, new Anchor<T>(null, null, ConcurrentDoubleLinkedList.STABLE)) )
+                {
+                    break;
+                }
+            }
+            else if ( current.status == ConcurrentDoubleLinkedList.STABLE )
+            {
+                Entry<T> next = current.head.next;
+
+                if ( this.anchor.compareAndSet(current, new Anchor<T>(next, current.tail, ConcurrentDoubleLinkedList.STABLE)) )
+                {
+                    // Unlink the new head from the removed entry, unless an insertion has already linked it to a newer head.
+                    ConcurrentDoubleLinkedList.PREVIOUS.compareAndSet(next, current.head, null);
+                    break;
+                }
+            }
+            else
+            {
+                this.stabilize(current);
+            }
+        }
+
+        return this.take(current.head);
+    }
+
+    // Remove and return the tail element, or return null if the list is empty.
+    public T deleteTail()
+    {
+        Anchor<T> current = null;
+
+        while ( true )
+        {
+            current = this.anchor.get();
+
+            if ( current.tail == null ) { return null; }
+
+            if ( current.head == current.tail )
+            {
+                if ( this.anchor.compareAndSet(current, new Anchor<T>(null, null, ConcurrentDoubleLinkedList.STABLE)) )
+                {
+                    break;
+                }
+            }
+            else if ( current.status == ConcurrentDoubleLinkedList.STABLE )
+            {
+                Entry<T> previous = current.tail.previous;
+
+                if ( this.anchor.compareAndSet(current, new Anchor<T>(current.head, previous, ConcurrentDoubleLinkedList.STABLE)) )
+                {
+                    // Unlink the new tail from the removed entry, unless an insertion has already linked it to a newer tail.
+                    ConcurrentDoubleLinkedList.NEXT.compareAndSet(previous, current.tail, null);
+                    break;
+                }
+            }
+            else
+            {
+                this.stabilize(current);
+            }
+        }
+
+        return this.take(current.tail);
+    }
+
+    // Return the number of elements. Under concurrent updates this is a moment-in-time estimate.
+    public long getSize()
+    {
+        return this.size.sum();
+    }
+
+    public void insertHead(final T data)
+    {
+        Entry<T> entry = this.newEntry(data);
+
+        while ( true )
+        {
+            Anchor<T> current = this.anchor.get();
+
+            if ( current.head == null )
+            {
+                if ( this.anchor.compareAndSet(current, new Anchor<T>(entry, entry, ConcurrentDoubleLinkedList.STABLE)) )
+                {
+                    break;
+                }
+            }
+            else if ( current.status == ConcurrentDoubleLinkedList.STABLE )
+            {
+                entry.next = current.head;
+                Anchor<T> pushed = new Anchor<T>(entry, current.tail, ConcurrentDoubleLinkedList.HEAD_PUSH);
+
+                if ( this.anchor.compareAndSet(current, pushed) )
+                {
+                    this.stabilizeHead(pushed);
+                    break;
+                }
+            }
+            else
+            {
+                this.stabilize(current);
+            }
+        }
+
+        this.size.increment();
+    }
+
+    public void insertTail(final T data)
+    {
+        Entry<T> entry = this.newEntry(data);
+
+        while ( true )
+        {
+            Anchor<T> current = this.anchor.get();
+
+            if ( current.tail == null )
+            {
+                if ( this.anchor.compareAndSet(current, new Anchor<T>(entry, entry, ConcurrentDoubleLinkedList.STABLE)) )
+                {
+                    break;
+                }
+            }
+            else if ( current.status == ConcurrentDoubleLinkedList.STABLE )
+            {
+                entry.previous = current.tail;
+                Anchor<T> pushed = new Anchor<T>(current.head, entry, ConcurrentDoubleLinkedList.TAIL_PUSH);
+
+                if ( this.anchor.compareAndSet(current, pushed) )
+                {
+                    this.stabilizeTail(pushed);
+                    break;
+                }
+            }
+            else
+            {
+                this.stabilize(current);
+            }
+        }
+
+        this.size.increment();
+    }
+
+    public boolean isEmpty()
+    {
+        return ( this.anchor.get().head == null );
+    }
+
+    public static void main(final String[] args) throws InterruptedException
+    {
+        // It comes with a limited stress test: each thread keeps inserting at one end and deleting at either end while only a few elements are live, then the
+        // elements taken are checked against those inserted, and the entries still reachable from either end are counted.
+        final ConcurrentDoubleLinkedList<Long> list = new ConcurrentDoubleLinkedList<Long>();
+        final int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        final int operations = ( ( args.length > 0 ) ? Integer.parseInt(args[0]) : 1000000 );
+        final AtomicLong insertedSum = new AtomicLong();
+        final AtomicLong takenCount = new AtomicLong();
+        final AtomicLong takenSum = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+
+        for ( int i = 0; i < threads; i++ )
+        {
+            final int id = i;
+
+            workers[i] = new Thread(() ->
+            {
+                long inserted = 0;
+                long taken = 0;
+                long takenTotal = 0;
+
+                try
+                {
+                    start.await();
+                }
+                catch ( InterruptedException e )
+                {
+                    return;
+                }
+
+                for ( int j = 0; j < operations; j++ )
+                {
+                    Long value = Long.valueOf(( (long) id * operations ) + j + 1);
+
+                    if ( ( ( id + j ) & 1 ) == 0 )
+                    {
+                        list.insertHead(value);
+                    }
+                    else
+                    {
+                        list.insertTail(value);
+                    }
+
+                    inserted += value;
+
+                    if ( list.getSize() > 10 )
+                    {
+                        Long data = ( ( ( j & 2 ) == 0 ) ? list.deleteHead() : list.deleteTail() );
+
+                        if ( data != null )
+                        {
+                            taken++;
+                            takenTotal += data;
+                        }
+                    }
+                }
+
+                insertedSum.addAndGet(inserted);
+                takenCount.addAndGet(taken);
+                takenSum.addAndGet(takenTotal);
+            });
+
+            workers[i].start();
+        }
+
+        start.countDown();
+
+        for ( Thread worker : workers )
+        {
+            worker.join();
+        }
+
+        Long data = null;
+        long live = 0;
+
+        while ( ( data = list.deleteHead() ) != null )
+        {
+            live++;
+            takenCount.incrementAndGet();
+            takenSum.addAndGet(data);
+        }
+
+        boolean isCorrect = ( ( takenCount.get() == ( (long) threads * operations ) ) && ( takenSum.get() == insertedSum.get() ) && list.isEmpty() );
+        StdOut.println("Threads: " + threads + ", operations per thread: " + operations + ", left in the list: " + live);
+        StdOut.println("Every element taken exactly once: " + isCorrect);
+
+        // Refill the list and count the entries reachable beyond its ends; only entries removed by a thread which stalled mid-deletion may remain.
+        for ( long i = 0; i < 10; i++ )
+        {
+            list.insertTail(Long.valueOf(i));
+        }
+
+        for ( long i = 0; i < operations; i++ )
+        {
+            list.insertTail(Long.valueOf(i));
+            list.deleteHead();
+        }
+
+        Anchor<Long> current = list.anchor.get();
+        long retained = 0;
+
+        for ( Entry<Long> entry = current.head.previous; entry != null; entry = entry.previous )
+        {
+            retained++;
+        }
+
+        for ( Entry<Long> entry = current.tail.next; entry != null; entry = entry.next )
+        {
+            retained++;
+        }
+
+        StdOut.println("Removed entries still reachable from the list: " + retained);
+    }
+
+    private Entry<T> newEntry(final T data)
+    {
+        if ( data == null ) { throw new IllegalArgumentException("A ConcurrentDoubleLinkedList cannot hold null elements."); }
+
+        return new Entry<T>(data);
+    }
+
+    // Complete the insertion recorded by an unstable anchor.
+    private void stabilize(final Anchor<T> current)
+    {
+        if ( current.status == ConcurrentDoubleLinkedList.HEAD_PUSH )
+        {
+            this.stabilizeHead(current);
+        }
+        else
+        {
+            this.stabilizeTail(current);
+        }
+    }
+
+    // Link the entry after a newly inserted head back to it, then mark the anchor stable. Gives up quietly if another thread got there first.
+    private void stabilizeHead(final Anchor<T> current)
+    {
+        Entry<T> next = current.head.next;
+
+        if ( this.anchor.get() != current ) { return; }
+
+        Entry<T> nextPrevious = next.previous;
+
+        if ( nextPrevious != current.head )
+        {
+            if ( this.anchor.get() != current ) { return; }
+
+            if ( !ConcurrentDoubleLinkedList.PREVIOUS.compareAndSet(next, nextPrevious, current.head) ) { return; }
+        }
+
+        this.anchor.compareAndSet(current, new Anchor<T>(current.head, current.tail, ConcurrentDoubleLinkedList.STABLE));
+    }
+
+    // Link the entry before a newly inserted tail forward to it, then mark the anchor stable. Gives up quietly if another thread got there first.
+    private void stabilizeTail(final Anchor<T> current)
+    {
+        Entry<T> previous = current.tail.previous;
+
+        if ( this.anchor.get() != current ) { return; }
+
+        Entry<T> previousNext = previous.next;
+
+        if ( previousNext != current.tail )
+        {
+            if ( this.anchor.get() != current ) { return; }
+
+            if ( !ConcurrentDoubleLinkedList.NEXT.compareAndSet(previous, previousNext, current.tail) ) { return; }
+        }
+
+        this.anchor.compareAndSet(current, new Anchor<T>(current.head, current.tail, ConcurrentDoubleLinkedList.STABLE));
+    }
+
+    // Return the element of an entry which this thread has just removed, and drop the entry's reference to it.
+    private T take(final Entry<T> entry)
+    {
+        T data = entry.data;
+        entry.data = null;
+        this.size.decrement();
+        return data;
+    }
+}
@@ -0,0 +1,515 @@
+/*
+ * Title: ConcurrentHashTable
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * A lock-free counterpart to HashTable for lookup tables shared by many threads.
+ *
+ * Slots live in an atomic reference array and are claimed with compare-and-set, using either Linear probing or Quadratic probing.
+ * Lookups never write to the table, so read throughput scales with the number of cores.
+ *
+ * When an insertion would push the table past its load factor, a larger table is chained onto the current one.
+ * Every thread that inserts or deletes while a resize is pending claims chunks of the old table and migrates them before doing its own work. Once every
+ * chunk has been claimed, it sweeps the old table for slots which are still unfinished, so it never waits for the threads which claimed them.
+ * A slot being migrated is first frozen (readers still see its element), then copied, then marked as moved. Readers search the oldest table first and follow
+ * the chain to newer tables, which guarantees that an element is never missed while it moves.
+ *
+ * Any thread which meets a frozen slot finishes its copy rather than waiting for the thread which froze it. The threads first agree on the slot of the new
+ * table which the copy will take, and only then write it there, so an element is copied exactly once however many threads help.
+ */
+
+package api.util.datastructures;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import api.util.Mathematics;
+
+public class ConcurrentHashTable<T>
+{
+    // An element which is in the middle of being copied to the next table. Readers treat it as the element. The copy is finished by finishCopy(), which
+    // places this Frozen in the agreed slot of the next table, marks its slot in the old table as moved, and then unwraps it in the next table.
+    private static final class Frozen
+    {
+        private final Object        data;
+        private final Table         destination;
+        private final int           index;                             // The slot of 'source' which this Frozen replaced.
+        private final Table         source;
+        private final AtomicInteger target      = new AtomicInteger(-1); // The slot of 'destination' chosen for the copy; -1 until one is chosen.
+
+        private Frozen(final Object data, final Table source, final int index, final Table destination)
+        {
+            this.data = data;
+            this.destination = destination;
+            this.index = index;
+            this.source = source;
+        }
+    }
+
+    // One generation of the table. While a resize is pending, 'next' points at its replacement.
+    private static final class Table
+    {
+        private final AtomicInteger                claimIndex = new AtomicInteger();  // The first slot not yet claimed for migration.
+        private final AtomicInteger                migrated   = new AtomicInteger();  // The number of slots migrated so far.
+        private final AtomicReference<Table>       next       = new AtomicReference<Table>();
+        private final int                          size;
+        private final AtomicReferenceArray<Object> slots;
+        private final AtomicInteger                used       = new AtomicInteger();  // Slots ever claimed from empty, including tombstones.
+
+        private Table(final int size)
+        {
+            this.size = size;
+            this.slots = new AtomicReferenceArray<Object>(size);
+        }
+
+        private boolean isMigrated()
+        {
+            return ( this.migrated.get() >= this.size );
+        }
+    }
+
+    private static final int    MIGRATION_CHUNK = 64;
+    private static final Object MOVED           = new Object();  // An element or tombstone which has been migrated; probe sequences continue past it.
+    private static final Object MOVED_EMPTY     = new Object();  // An empty slot which has been migrated; probe sequences end here.
+    private static final int    REDIRECT        = -2;
+    private static final Object TOMBSTONE       = new Object();  // A deleted element; probe sequences continue past it.
+
+    private final LongAdder              currentSize          = new LongAdder();
+    private final double                 loadFactor;
+    private final boolean                probeIsLinear;
+    private final AtomicReference<Table> root                 = new AtomicReference<Table>();  // The oldest table which may still hold elements.
+    private final LongAdder              totalProbeLenFailure = new LongAdder();
+    private final LongAdder              totalProbeLenSuccess = new LongAdder();
+
+    public ConcurrentHashTable(final double loadFactor, final boolean useLinearProbe, final int fillSize)
+    {
+        this.loadFactor = loadFactor;
+        this.probeIsLinear = useLinearProbe;
+        this.root.set(new Table((int) Mathematics.makePrimeGreater((long) Math.ceil(fillSize / loadFactor))));
+    }
+
+    // Advance the root past every table which has been completely migrated.
+    private void advanceRoot()
+    {
+        Table oldest = this.root.get();
+
+        while ( oldest.isMigrated() && ( oldest.next.get() != null ) )
+        {
+            this.root.compareAndSet(oldest, oldest.next.get());
+            oldest = this.root.get();
+        }
+    }
+
+    // Remove one occurrence of 'data' from the table. Returns true if an element was removed.
+    public boolean delete(final T data)
+    {
+        if ( data == null ) { return false; }
+
+        for ( Table table = this.root.get(); table != null; table = table.next.get() )
+        {
+            if ( table.next.get() != null )
+            {
+                // Finish the pending migration first, as insert() does. The table is then left holding nothing but moved slots.
+                this.helpMigrate(table);
+                continue;
+            }
+
+            int index = this.hash(data, table.size);
+
+            for ( int probeLen = 1; probeLen <= table.size; probeLen++ )
+            {
+                Object slot = table.slots.get(index);
+
+                if ( ( slot == null ) || ( slot == ConcurrentHashTable.MOVED_EMPTY ) )
+                {
+                    break;
+                }
+
+                if ( ( slot instanceof Frozen ) && data.equals(( (Frozen) slot ).data) )
+                {
+                    // The element is being copied between tables. Finish the copy, then look at the slot again: it is either moved or the bare element.
+                    this.finishCopy((Frozen) slot);
+                    probeLen--;
+                    continue;
+                }
+
+                if ( ( slot != ConcurrentHashTable.TOMBSTONE ) && ( slot != ConcurrentHashTable.MOVED ) && data.equals(slot) )
+                {
+                    if ( table.slots.compareAndSet(index, slot, ConcurrentHashTable.TOMBSTONE) )
+                    {
+                        this.currentSize.decrement();
+                        return true;
+                    }
+
+                    // The slot changed under us; look at it again.
+                    probeLen--;
+                    continue;
+                }
+
+                index = this.nextProbe(index, probeLen, table.size);
+            }
+        }
+
+        return false;
+    }
+
+    // Finish copying a frozen element, on behalf of whichever thread froze it.
+    // The chosen slot is recorded in 'target' as a slot index, and as -2 - index once the copy is in it. Only a chosen slot can be replaced by another, so
+    // a thread which looks at the slot after the copy has finished cannot move the target away from it.
+    private void finishCopy(final Frozen frozen)
+    {
+        Table next = frozen.destination;
+
+        while ( frozen.source.slots.get(frozen.index) == frozen )
+        {
+            int target = frozen.target.get();
+
+            if ( target <= -2 )
+            {
+                if ( frozen.source.slots.compareAndSet(frozen.index, frozen, ConcurrentHashTable.MOVED) )
+                {
+                    this.markMigrated(frozen.source);
+                }
+
+                continue;
+            }
+
+            if ( target == -1 )
+            {
+                int free = this.freeSlot(next, frozen.data);
+
+                if ( free >= 0 )
+                {
+                    frozen.target.compareAndSet(-1, free);
+                }
+
+                continue;
+            }
+
+            Object slot = next.slots.get(target);
+
+            if ( slot == frozen )
+            {
+                frozen.target.compareAndSet(target, -2 - target);
+            }
+            else if ( slot == null )
+            {
+                if ( next.slots.compareAndSet(target, null, frozen) )
+                {
+                    next.used.incrementAndGet();
+                }
+            }
+            else
+            {
+                // An insertion took the chosen slot first. Slots never become empty again, so choosing anew cannot revisit it.
+                int free = this.freeSlot(next, frozen.data);
+
+                if ( free >= 0 )
+                {
+                    frozen.target.compareAndSet(target, free);
+                }
+            }
+        }
+
+        // The old slot is moved, so the copy is the only one; replace it with the bare element unless that has happened or it was deleted meanwhile.
+        next.slots.compareAndSet(-2 - frozen.target.get(), frozen, frozen.data);
+    }
+
+    public int find(final T data)
+    {
+        if ( data == null ) { return -1; }
+
+        int probeLen = 0;
+
+        // Search from the oldest table to the newest. An element leaves an older table only after it has been copied to a newer one.
+        for ( Table table = this.root.get(); table != null; table = table.next.get() )
+        {
+            int index = this.hash(data, table.size);
+
+            for ( int step = 1; step <= table.size; step++ )
+            {
+                Object slot = table.slots.get(index);
+                probeLen++;
+
+                if ( ( slot == null ) || ( slot == ConcurrentHashTable.MOVED_EMPTY ) )
+                {
+                    break;
+                }
+
+                if ( slot instanceof Frozen )
+                {
+                    slot = ( (Frozen) slot ).data;
+                }
+
+                if ( ( slot != ConcurrentHashTable.TOMBSTONE ) && ( slot != ConcurrentHashTable.MOVED ) && data.equals(slot) )
+                {
+                    this.totalProbeLenSuccess.add(probeLen);
+                    return index;
+                }
+
+                index = this.nextProbe(index, step, table.size);
+            }
+        }
+
+        this.totalProbeLenFailure.add(probeLen);
+        return -1;
+    }
+
+    // Return the first empty slot of 'data''s probe sequence in 'table', or -1 if there is none. A table receives copies only while it is not itself being
+    // migrated, and it is sized for the live elements of the table before it, so -1 is seen only by a thread which has fallen behind a finished copy.
+    private int freeSlot(final Table table, final Object data)
+    {
+        int index = this.hash(data, table.size);
+
+        for ( int probeLen = 1; probeLen <= table.size; probeLen++ )
+        {
+            if ( table.slots.get(index) == null ) { return index; }
+
+            index = this.nextProbe(index, probeLen, table.size);
+        }
+
+        return -1;
+    }
+
+    // Return the number of elements. Under concurrent updates this is a moment-in-time estimate.
+    public int getCurrentSize()
+    {
+        return this.currentSize.intValue();
+    }
+
+    public double getLoadFactor()
+    {
+        return this.loadFactor;
+    }
+
+    // Return the capacity of the newest table.
+    public int getMaximumSize()
+    {
+        Table table = this.root.get();
+
+        while ( table.next.get() != null )
+        {
+            table = table.next.get();
+        }
+
+        return table.size;
+    }
+
+    public long getTotalProbeLenFailure()
+    {
+        return this.totalProbeLenFailure.sum();
+    }
+
+    public long getTotalProbeLenSuccess()
+    {
+        return this.totalProbeLenSuccess.sum();
+    }
+
+    public int hash(final T data)
+    {
+        return this.hash(data, this.getMaximumSize());
+    }
+
+    private int hash(final Object data, final int size)
+    {
+        if ( data == null ) { return -1; }
+
+        return ( ( SizingPolicy.mix(data.hashCode()) & 0x7FFFFFFF ) % size );
+    }
+
+    // Claim and migrate chunks of 'table' until none are left to claim, then sweep it for slots which other threads claimed but have not finished.
+    // On return every slot of 'table' has been migrated.
+    private void helpMigrate(final Table table)
+    {
+        Table next = table.next.get();
+
+        while ( true )
+        {
+            int start = table.claimIndex.getAndAdd(ConcurrentHashTable.MIGRATION_CHUNK);
+
+            if ( start >= table.size )
+            {
+                break;
+            }
+
+            int end = Math.min(start + ConcurrentHashTable.MIGRATION_CHUNK, table.size);
+
+            for ( int i = start; i < end; i++ )
+            {
+                this.migrateSlot(table, next, i);
+            }
+        }
+
+        for ( int i = 0; !table.isMigrated() && ( i < table.size ); i++ )
+        {
+            this.migrateSlot(table, next, i);
+        }
+    }
+
+    public int insert(final T data)
+    {
+        if ( data == null ) { return -1; }
+
+        int retVal = this.insertFrom(this.root.get(), data);
+        this.currentSize.increment();
+        return retVal;
+    }
+
+    // Insert into the newest table reachable from 'start', helping any pending migration on the way.
+    private int insertFrom(final Table start, final Object data)
+    {
+        Table table = start;
+
+        while ( true )
+        {
+            while ( table.next.get() != null )
+            {
+                this.helpMigrate(table);
+                table = table.next.get();
+            }
+
+            if ( ( table.used.get() + 1 ) > ( this.getLoadFactor() * table.size ) )
+            {
+                this.startResize(table);
+                continue;
+            }
+
+            int retVal = this.tryInsert(table, data);
+
+            if ( retVal >= 0 ) { return retVal; }
+
+            // Either a migration overtook us or the probe sequence was exhausted; in both cases a newer table is (or will be) available.
+            if ( retVal != ConcurrentHashTable.REDIRECT )
+            {
+                this.startResize(table);
+            }
+        }
+    }
+
+    public boolean isEmpty()
+    {
+        return ( this.getCurrentSize() <= 0 );
+    }
+
+    public boolean isProbeLinear()
+    {
+        return this.probeIsLinear;
+    }
+
+    // Count one more slot of 'table' as migrated. Each slot is counted by the one thread whose compare-and-set moved it.
+    private void markMigrated(final Table table)
+    {
+        if ( table.migrated.incrementAndGet() >= table.size )
+        {
+            this.advanceRoot();
+        }
+    }
+
+    // Move one slot of 'table' into 'next', unless it has been moved already. The element stays visible to readers (as Frozen) until the copy is in place.
+    private void migrateSlot(final Table table, final Table next, final int index)
+    {
+        while ( true )
+        {
+            Object slot = table.slots.get(index);
+
+            if ( ( slot == ConcurrentHashTable.MOVED ) || ( slot == ConcurrentHashTable.MOVED_EMPTY ) )
+            {
+                return;
+            }
+            else if ( slot == null )
+            {
+                if ( table.slots.compareAndSet(index, null, ConcurrentHashTable.MOVED_EMPTY) )
+                {
+                    this.markMigrated(table);
+                    return;
+                }
+            }
+            else if ( slot == ConcurrentHashTable.TOMBSTONE )
+            {
+                if ( table.slots.compareAndSet(index, slot, ConcurrentHashTable.MOVED) )
+                {
+                    this.markMigrated(table);
+                    return;
+                }
+            }
+            else if ( slot instanceof Frozen )
+            {
+                // Either this slot's own copy, started by another thread, or a copy placed here from the table before, which must be unwrapped first.
+                this.finishCopy((Frozen) slot);
+            }
+            else
+            {
+                Frozen frozen = new Frozen(slot, table, index, next);
+
+                if ( table.slots.compareAndSet(index, slot, frozen) )
+                {
+                    this.finishCopy(frozen);
+                    return;
+                }
+            }
+        }
+    }
+
+    // Return the next index in the probe sequence, where 'step' is the number of probes already made.
+    // Quadratic probing visits h + step^2, which is computed incrementally as the previous index plus (2 * step) - 1.
+    private int nextProbe(final int index, final int step, final int size)
+    {
+        long next = index;
+
+        if ( this.isProbeLinear() )
+        {
+            next++;
+        }
+        else
+        {
+            next += ( ( 2L * step ) - 1 );
+        }
+
+        return (int) ( next % size );
+    }
+
+    // Chain a replacement onto 'table' (unless another thread already did), sized for the live elements rather than the tombstones.
+    private void startResize(final Table table)
+    {
+        if ( table.next.get() != null ) { return; }
+
+        long live = Math.max(this.currentSize.sum(), 0) + 1;
+        long capacity = Math.max(table.size, (long) Math.ceil(( 2.0 * live ) / this.getLoadFactor()));
+        table.next.compareAndSet(null, new Table((int) Mathematics.makePrimeGreater(capacity)));
+    }
+
+    // Try to claim a slot for 'data' in 'table'. Returns the index, REDIRECT if the table is being migrated past the slot, or -1 if the probe sequence is exhausted.
+    private int tryInsert(final Table table, final Object data)
+    {
+        int index = this.hash(data, table.size);
+
+        for ( int probeLen = 1; probeLen <= table.size; probeLen++ )
+        {
+            Object slot = table.slots.get(index);
+
+            if ( slot == ConcurrentHashTable.MOVED_EMPTY ) { return ConcurrentHashTable.REDIRECT; }
+
+            if ( ( slot == null ) || ( slot == ConcurrentHashTable.TOMBSTONE ) )
+            {
+                if ( table.slots.compareAndSet(index, slot, data) )
+                {
+                    if ( slot == null )
+                    {
+                        table.used.incrementAndGet();
+                    }
+
+                    return index;
+                }
+
+                // Another thread claimed the slot first; look at it again.
+                probeLen--;
+                continue;
+            }
+
+            index = this.nextProbe(index, probeLen, table.size);
+        }
+
+        return -1;
+    }
+}
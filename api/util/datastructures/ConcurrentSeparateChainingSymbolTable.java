@@ -0,0 +1,320 @@
+/*
+ * Title: ConcurrentSeparateChainingSymbolTable
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * A thread-safe counterpart to SeparateChainingSymbolTable.
+ *
+ * Writers lock only the stripe which owns the chain they modify, so puts and deletes on different stripes proceed in parallel.
+ * Readers never lock: chain entries have final keys and links and a volatile value, and a delete copies the entries ahead of the removed one instead of unlinking in place.
+ * A resize takes every stripe lock, builds a new chain array, and publishes it with a single volatile write, so readers keep using the old array until then.
+ */
+
+package api.util.datastructures;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import api.util.Mathematics;
+
+public class ConcurrentSeparateChainingSymbolTable<K, V>
+{
+    // An immutable chain link. Only the value may change after construction.
+    private static final class Entry<K, V>
+    {
+        private final int         hash;
+        private final K           key;
+        private final Entry<K, V> next;
+        private volatile V        value;
+
+        private Entry(final int hash, final K key, final V value, final Entry<K, V> next)
+        {
+            this.hash = hash;
+            this.key = key;
+            this.next = next;
+            this.value = value;
+        }
+    }
+
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private static final long PRIMES(final long capacity)
+    {
+        return Mathematics.makePrimeLesser((long) Math.pow(2, capacity));
+    }
+
+    private volatile long                              capacity = 0;               // Current capacity factor.
+    private final LongAdder                            curSize  = new LongAdder(); // Current table size (number of key-value pairs).
+    private final ReentrantLock[]                      locks;                      // One lock per stripe of chains.
+    private volatile AtomicReferenceArray<Entry<K, V>> table    = null;            // Internal array of chain heads.
+
+    // Create concurrent separate chaining hash table with the default capacity factor.
+    public ConcurrentSeparateChainingSymbolTable()
+    {
+        this(0);
+    }
+
+    // Create concurrent separate chaining hash table with a specific capacity factor.
+    public ConcurrentSeparateChainingSymbolTable(final long capacity)
+    {
+        this(capacity, ConcurrentSeparateChainingSymbolTable.DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    // Create concurrent separate chaining hash table with a specific capacity factor and number of lock stripes.
+    public ConcurrentSeparateChainingSymbolTable(final long capacity, final int concurrencyLevel)
+    {
+        this.locks = new ReentrantLock[Math.max(1, concurrencyLevel)];
+
+        for ( int i = 0; i < this.locks.length; i++ )
+        {
+            this.locks[i] = new ReentrantLock();
+        }
+
+        this.capacity = ConcurrentSeparateChainingSymbolTable.clampCapacity(capacity);
+        this.table = new AtomicReferenceArray<Entry<K, V>>((int) ConcurrentSeparateChainingSymbolTable.PRIMES(this.capacity));
+    }
+
+    private static final long clampCapacity(final long capacity)
+    {
+        return Math.min(Math.max(capacity, 7), 31);
+    }
+
+    private static final int indexFor(final int hash, final int chains)
+    {
+        return ( ( hash & 0x7FFFFFFF ) % chains );
+    }
+
+    // Is the key in the symbol table?
+    public final boolean contains(final K key)
+    {
+        return ( this.get(key) != null );
+    }
+
+    // Delete key (and associated value) if key is in the table.
+    public final void delete(final K key)
+    {
+        int hash = key.hashCode();
+
+        while ( true )
+        {
+            AtomicReferenceArray<Entry<K, V>> chains = this.table;
+            int i = ConcurrentSeparateChainingSymbolTable.indexFor(hash, chains.length());
+            ReentrantLock lock = this.lockFor(i);
+            lock.lock();
+
+            try
+            {
+                // The array may have been replaced while we waited for the lock.
+                if ( chains != this.table )
+                {
+                    continue;
+                }
+
+                Entry<K, V> head = chains.get(i);
+                Entry<K, V> target = head;
+
+                while ( ( target != null ) && !( ( target.hash == hash ) && key.equals(target.key) ) )
+                {
+                    target = target.next;
+                }
+
+                if ( target == null ) { return; }
+
+                // Links are final, so copy the entries ahead of the removed one onto the rest of the chain.
+                Entry<K, V> newHead = target.next;
+
+                for ( Entry<K, V> e = head; e != target; e = e.next )
+                {
+                    newHead = new Entry<K, V>(e.hash, e.key, e.value, newHead);
+                }
+
+                chains.set(i, newHead);
+                this.curSize.decrement();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            break;
+        }
+
+        // Reduce table size if average length of list <= 2 and the table is larger than the initial capacity.
+        long chainCount = this.getMaxSize();
+
+        if ( ( this.getCapacity() > 7 ) && ( this.getCurSize() <= ( 2 * chainCount ) ) )
+        {
+            this.resize(chainCount, this.getCapacity() - 1);
+        }
+    }
+
+    // Return value associated with key, null if no such key.
+    public final V get(final K key)
+    {
+        int hash = key.hashCode();
+        AtomicReferenceArray<Entry<K, V>> chains = this.table;
+
+        for ( Entry<K, V> e = chains.get(ConcurrentSeparateChainingSymbolTable.indexFor(hash, chains.length())); e != null; e = e.next )
+        {
+            if ( ( e.hash == hash ) && key.equals(e.key) ) { return e.value; }
+        }
+
+        return null;
+    }
+
+    // Return the current capacity factor of the symbol table.
+    public final long getCapacity()
+    {
+        return this.capacity;
+    }
+
+    // Return the current size of the symbol table. Under concurrent updates this is a moment-in-time estimate.
+    public final long getCurSize()
+    {
+        return this.curSize.sum();
+    }
+
+    // Return the current number of chains.
+    public final long getMaxSize()
+    {
+        return this.table.length();
+    }
+
+    // Hash value between 0 and m-1.
+    public final long hash(final K key)
+    {
+        return ConcurrentSeparateChainingSymbolTable.indexFor(key.hashCode(), this.table.length());
+    }
+
+    // Is the symbol table empty?
+    public final boolean isEmpty()
+    {
+        return ( this.getCurSize() == 0 );
+    }
+
+    // Return keys in symbol table as an Iterable. The keys are read without locking, so concurrent updates may or may not be reflected.
+    public final Iterable<K> keysIterable()
+    {
+        return this.keysList();
+    }
+
+    // Return keys in symbol table as a list. The keys are read without locking, so concurrent updates may or may not be reflected.
+    public final List<K> keysList()
+    {
+        List<K> queue = new LinkedList<K>();
+        AtomicReferenceArray<Entry<K, V>> chains = this.table;
+
+        for ( int i = 0; i < chains.length(); i++ )
+        {
+            for ( Entry<K, V> e = chains.get(i); e != null; e = e.next )
+            {
+                queue.add(e.key);
+            }
+        }
+
+        return queue;
+    }
+
+    private ReentrantLock lockFor(final int chainIndex)
+    {
+        return this.locks[chainIndex % this.locks.length];
+    }
+
+    // Insert key-value pair into the table.
+    public final void put(final K key, final V value)
+    {
+        if ( value == null )
+        {
+            this.delete(key);
+            return;
+        }
+
+        int hash = key.hashCode();
+
+        while ( true )
+        {
+            AtomicReferenceArray<Entry<K, V>> chains = this.table;
+            int i = ConcurrentSeparateChainingSymbolTable.indexFor(hash, chains.length());
+            ReentrantLock lock = this.lockFor(i);
+            lock.lock();
+
+            try
+            {
+                // The array may have been replaced while we waited for the lock.
+                if ( chains != this.table )
+                {
+                    continue;
+                }
+
+                Entry<K, V> head = chains.get(i);
+
+                for ( Entry<K, V> e = head; e != null; e = e.next )
+                {
+                    if ( ( e.hash == hash ) && key.equals(e.key) )
+                    {
+                        e.value = value;
+                        return;
+                    }
+                }
+
+                chains.set(i, new Entry<K, V>(hash, key, value, head));
+                this.curSize.increment();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            break;
+        }
+
+        // Increase table size if average length of list >= 10.
+        long chainCount = this.getMaxSize();
+
+        if ( ( this.getCapacity() < 31 ) && ( this.getCurSize() >= ( 10 * chainCount ) ) )
+        {
+            this.resize(chainCount, this.getCapacity() + 1);
+        }
+    }
+
+    // Rehash every entry into a new chain array for the given capacity factor, unless another thread already resized away from 'expectedChains'.
+    // Every stripe lock is held (always acquired in the same order), so no writer can run; readers continue on the old array until the new one is published.
+    protected final void resize(final long expectedChains, final long newCapacity)
+    {
+        for ( ReentrantLock lock : this.locks )
+        {
+            lock.lock();
+        }
+
+        try
+        {
+            AtomicReferenceArray<Entry<K, V>> oldChains = this.table;
+
+            if ( oldChains.length() != expectedChains ) { return; }
+
+            long capacity = ConcurrentSeparateChainingSymbolTable.clampCapacity(newCapacity);
+            AtomicReferenceArray<Entry<K, V>> newChains = new AtomicReferenceArray<Entry<K, V>>((int) ConcurrentSeparateChainingSymbolTable.PRIMES(capacity));
+
+            for ( int i = 0; i < oldChains.length(); i++ )
+            {
+                for ( Entry<K, V> e = oldChains.get(i); e != null; e = e.next )
+                {
+                    int j = ConcurrentSeparateChainingSymbolTable.indexFor(e.hash, newChains.length());
+                    newChains.set(j, new Entry<K, V>(e.hash, e.key, e.value, newChains.get(j)));
+                }
+            }
+
+            this.capacity = capacity;
+            this.table = newChains;
+        }
+        finally
+        {
+            for ( int i = this.locks.length - 1; i >= 0; i-- )
+            {
+                this.locks[i].unlock();
+            }
+        }
+    }
+}
@@ -50,6 +50,13 @@ public class DataNode<T> extends Node
         return result;
     }
 
+    @Override
+    public void recycle()
+    {
+        super.recycle();
+        this.setData(null);
+    }
+
     public final void setData(final T data)
     {
         this.data = data;
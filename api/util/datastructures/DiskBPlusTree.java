@@ -0,0 +1,1241 @@
+/*
+ * Title: DiskBPlusTree
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * A persistent B+tree index from long keys to long values, for ordered indexes too large to keep in memory. The values are typically record numbers or file
+ * offsets into the data being indexed.
+ *
+ * The tree lives in a file of fixed-size pages which are read and written through a FileChannel. Page 0 is the file header. A leaf page holds up to
+ * (pageSize - 24) / 16 sorted keys and values, kept in two separate arrays so that a binary search reads only keys, and links to its neighbours for range
+ * scans. An internal page holds up to (pageSize - 16) / 16 separator keys between its children. A 4096-byte page therefore has a fanout of 256, and a tree
+ * of a billion keys is four levels deep. Keys equal to a separator are found in the child to its right.
+ *
+ * Pages are held in an LRU page cache of 'cachePages' pages, indexed by a SeparateChainingSymbolTable and ordered by a DoubleLinkedList. The cache may grow
+ * past its bound during a single operation and is trimmed back when the operation ends, so an operation never loses a page it is still working on.
+ *
+ * Changes become durable in batches, at each commit() and at close(). Until then the committed state on disk is never overwritten. A dirty page evicted
+ * before the commit goes to a write-ahead log beside the file, named with a ".wal" suffix. The exception is a page allocated past the end of the committed
+ * file, which nothing committed refers to and which is written in place. commit() first forces the new pages. It then appends every other dirty page and a
+ * checksummed commit record to the log and forces the log. Only then does it copy the logged pages into the file and truncate the log. If a crash interrupts
+ * this, open() finds the complete batch in the log and finishes the copy, or finds an incomplete one and discards it. The file is therefore always either at
+ * the last commit or at the one before it.
+ *
+ * bulkLoad() builds the tree from sorted input in one sequential pass, filling each page to a chosen fraction, with the levels above the leaves built as
+ * the leaves are written. A Cursor scans a key range leaf by leaf, copying one leaf at a time out of the cache.
+ *
+ * Deletion removes a leaf as soon as it is empty, and an internal page once it has no children left, instead of merging pages which are merely underfull.
+ * Freed pages are kept on a free list in the file for reuse. The tree is not thread-safe, and any use after close() throws IllegalStateException.
+ */
+
+package api.util.datastructures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import edu.princeton.cs.algs4.StdOut;
+
+public class DiskBPlusTree implements Closeable
+{
+    // A forward scan over the entries whose keys lie in [fromKey, toKey]. Call next() to move onto each entry in turn, including the first.
+    public final class Cursor
+    {
+        private int          count    = 0;  // Number of entries copied from the current leaf.
+        private final int    expectedModCount;
+        private int          index    = -1; // The current entry among those copied.
+        private final long[] keys;
+        private long         nextLeaf = 0;  // The leaf after the current one, or 0 if there is none.
+        private final long   toKey;
+        private final long[] values;
+
+        private Cursor(final long fromKey, final long toKey) throws IOException
+        {
+            DiskBPlusTree tree = DiskBPlusTree.this;
+            this.expectedModCount = tree.modCount;
+            this.keys = new long[tree.leafCapacity];
+            this.toKey = toKey;
+            this.values = new long[tree.leafCapacity];
+
+            Page leaf = tree.findLeaf(fromKey);
+            this.copy(leaf, tree.leafLowerBound(leaf, fromKey));
+            tree.trimCache();
+        }
+
+        // Copy the entries of a leaf from index 'start' onward.
+        private void copy(final Page leaf, final int start)
+        {
+            DiskBPlusTree tree = DiskBPlusTree.this;
+            this.count = Math.max(0, tree.countOf(leaf) - start);
+
+            for ( int i = 0; i < this.count; i++ )
+            {
+                this.keys[i] = tree.leafKey(leaf, start + i);
+                this.values[i] = tree.leafValue(leaf, start + i);
+            }
+
+            this.index = -1;
+            this.nextLeaf = leaf.buffer.getLong(DiskBPlusTree.PAGE_NEXT);
+        }
+
+        public long getKey()
+        {
+            if ( ( this.index < 0 ) || ( this.index >= this.count ) ) { throw new NoSuchElementException(); }
+
+            return this.keys[this.index];
+        }
+
+        public long getValue()
+        {
+            if ( ( this.index < 0 ) || ( this.index >= this.count ) ) { throw new NoSuchElementException(); }
+
+            return this.values[this.index];
+        }
+
+        // Move onto the next entry in the range. Return false, leaving the cursor exhausted, once there is none.
+        public boolean next() throws IOException
+        {
+            DiskBPlusTree tree = DiskBPlusTree.this;
+
+            if ( tree.modCount != this.expectedModCount ) { throw new ConcurrentModificationException(); }
+
+            this.index++;
+
+            while ( this.index >= this.count )
+            {
+                if ( this.nextLeaf == 0 )
+                {
+                    this.count = 0;
+                    this.index = 0;
+                    return false;
+                }
+
+                this.copy(tree.page(this.nextLeaf), 0);
+                this.index = 0;
+                tree.trimCache();
+            }
+
+            if ( this.keys[this.index] > this.toKey )
+            {
+                this.count = 0;
+                this.index = 0;
+                this.nextLeaf = 0;
+                return false;
+            }
+
+            return true;
+        }
+    }
+
+    // The open page of one level of a bulk load: its children so far, and the least key below each of them.
+    private static final class LevelBuilder
+    {
+        private final long[] children;
+        private int          count = 0;
+        private final long[] firstKeys;
+
+        private LevelBuilder(final int capacity)
+        {
+            this.children = new long[capacity];
+            this.firstKeys = new long[capacity];
+        }
+    }
+
+    // A cached page and its position in the recency order.
+    private static final class Page
+    {
+        private final ByteBuffer buffer;
+        private boolean          dirty = false;
+        private final long       id;
+        private DataNode<Page>   node  = null;
+
+        private Page(final long id, final ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+            this.id = id;
+        }
+    }
+
+    public static final int DEFAULT_CACHE_PAGES = 1024;
+    public static final int DEFAULT_PAGE_SIZE   = 4096;
+    public static final int MINIMUM_PAGE_SIZE   = 256;
+
+    private static final long COMMIT_RECORD      = -1;         // The page id field of a commit record.
+    private static final int  FILE_MAGIC         = 0x42505452; // "BPTR"
+    private static final int  FILE_VERSION       = 1;
+    private static final int  HEADER_FREE_HEAD   = 32;
+    private static final int  HEADER_HEIGHT      = 12;
+    private static final int  HEADER_PAGE_COUNT  = 24;
+    private static final int  HEADER_PAGE_SIZE   = 8;
+    private static final int  HEADER_ROOT        = 16;
+    private static final int  HEADER_SIZE        = 40;
+    private static final int  HEADER_VERSION     = 4;
+    private static final int  INTERNAL_CHILDREN  = 8;          // Offset of the child array of an internal page, followed by its key array.
+    private static final int  LEAF_ENTRIES       = 24;         // Offset of the key array of a leaf, followed by its value array.
+    private static final int  PAGE_COUNT         = 4;          // Number of keys in a page.
+    private static final int  PAGE_NEXT          = 16;         // The next leaf, or the next page of the free list.
+    private static final int  PAGE_PREVIOUS      = 8;
+    private static final int  PAGE_TYPE          = 0;
+    private static final int  RECORD_HEADER      = 24;         // Page id (8 bytes), record count (8 bytes), CRC-32 (4 bytes), and 4 unused bytes.
+    private static final byte TYPE_FREE          = 0;
+    private static final byte TYPE_INTERNAL      = 2;
+    private static final byte TYPE_LEAF          = 1;
+
+    private final int                                     cacheCapacity;        // Number of pages the cache keeps between operations.
+    private final SeparateChainingSymbolTable<Long, Page> cached             = new SeparateChainingSymbolTable<Long, Page>();
+    private boolean                                       closed             = false;
+    private long                                          committedPageCount = 0;    // Pages at or past this one are not part of the committed tree.
+    private long                                          evictionCount      = 0;
+    private final FileChannel                             file;
+    private long                                          freeHead           = 0;    // The first page of the free list, or 0 if it is empty.
+    private int                                           height             = 0;    // Number of internal levels; 0 if the root is a leaf.
+    private long                                          hitCount           = 0;
+    private final int                                     internalCapacity;     // Maximum number of keys in an internal page.
+    private final int                                     leafCapacity;         // Maximum number of keys in a leaf.
+    private final FileChannel                             log;
+    private long                                          logEnd             = 0;    // Length of the write-ahead log.
+    private long                                          logRecords         = 0;    // Number of page records in the write-ahead log.
+    private long                                          missCount          = 0;
+    private int                                           modCount           = 0;    // Number of insertions and deletions, checked by fail-fast cursors.
+    private long                                          pageCount          = 0;
+    private final int                                     pageSize;
+    private long                                          readNanos          = 0;    // Time spent reading pages on cache misses.
+    private final DoubleLinkedList<Page>                  recency            = new DoubleLinkedList<Page>(); // Cached pages, most recently used first.
+    private long                                          root               = 0;
+    private long                                          size               = 0;    // Number of key-value pairs.
+    private SeparateChainingSymbolTable<Long, Long>       spilled            = new SeparateChainingSymbolTable<Long, Long>(); // Log offsets of evicted dirty pages.
+
+    private DiskBPlusTree(final FileChannel file, final FileChannel log, final int pageSize, final int cachePages)
+    {
+        this.cacheCapacity = cachePages;
+        this.file = file;
+        this.internalCapacity = ( ( pageSize - DiskBPlusTree.INTERNAL_CHILDREN - 8 ) / 16 );
+        this.leafCapacity = ( ( pageSize - DiskBPlusTree.LEAF_ENTRIES ) / 16 );
+        this.log = log;
+        this.pageSize = pageSize;
+    }
+
+    // Add a completed page to a level of a bulk load, closing the level's open page into the level above if it is already full.
+    private void addToLevel(final List<LevelBuilder> levels, final int level, final long firstKey, final long child, final int fill) throws IOException
+    {
+        if ( levels.size() == level )
+        {
+            levels.add(new LevelBuilder(this.internalCapacity + 1));
+        }
+
+        LevelBuilder builder = levels.get(level);
+
+        if ( builder.count == fill )
+        {
+            this.closeLevel(levels, level, fill);
+        }
+
+        builder.firstKeys[builder.count] = firstKey;
+        builder.children[builder.count] = child;
+        builder.count++;
+    }
+
+    // Return a new page of the given type, reusing a page from the free list if there is one.
+    private Page allocatePage(final byte type) throws IOException
+    {
+        Page page = null;
+
+        if ( this.freeHead != 0 )
+        {
+            page = this.page(this.freeHead);
+            this.freeHead = page.buffer.getLong(DiskBPlusTree.PAGE_NEXT);
+            Arrays.fill(page.buffer.array(), (byte) 0);
+        }
+        else
+        {
+            page = new Page(this.pageCount++, ByteBuffer.allocate(this.pageSize));
+            page.node = this.recency.linkHead(page);
+            this.cached.put(page.id, page);
+        }
+
+        page.buffer.put(DiskBPlusTree.PAGE_TYPE, type);
+        page.dirty = true;
+        return page;
+    }
+
+    // Append a page image to the write-ahead log and return its offset.
+    private long appendRecord(final long id, final ByteBuffer contents) throws IOException
+    {
+        long offset = this.logEnd;
+        ByteBuffer header = ByteBuffer.allocate(DiskBPlusTree.RECORD_HEADER);
+        header.putLong(0, id);
+        header.putInt(16, DiskBPlusTree.checksum(id, 0, contents));
+        DiskBPlusTree.writeFully(this.log, header, offset);
+        DiskBPlusTree.writeFully(this.log, contents.duplicate(), offset + DiskBPlusTree.RECORD_HEADER);
+        this.logEnd += ( DiskBPlusTree.RECORD_HEADER + this.pageSize );
+        this.logRecords++;
+        return offset;
+    }
+
+    // Fill an empty tree from entries in strictly ascending key order, packing each page to 'fillFactor' of its capacity. A fill factor below 1 leaves room
+    // for later insertions without splits. Throws IllegalArgumentException at the first entry out of order, after loading the entries before it.
+    public final void bulkLoad(final Iterator<KeyValuePair<Long, Long>> sortedEntries, final double fillFactor) throws IOException
+    {
+        this.ensureOpen();
+
+        if ( !this.isEmpty() ) { throw new IllegalStateException("bulkLoad() requires an empty tree."); }
+
+        if ( !( fillFactor > 0.0 ) || ( fillFactor > 1.0 ) ) { throw new IllegalArgumentException("The fill factor must be in (0, 1]."); }
+
+        int leafFill = Math.max(1, (int) ( this.leafCapacity * fillFactor ));
+        int internalFill = Math.max(2, (int) ( ( this.internalCapacity + 1 ) * fillFactor ));
+        List<LevelBuilder> levels = new ArrayList<LevelBuilder>();
+        Page leaf = this.page(this.root);
+        String outOfOrder = null;
+        long lastKey = 0;
+
+        while ( sortedEntries.hasNext() )
+        {
+            KeyValuePair<Long, Long> entry = sortedEntries.next();
+            long key = entry.getKey();
+
+            if ( ( this.size > 0 ) && ( key <= lastKey ) )
+            {
+                outOfOrder = ( "Key " + key + " does not follow key " + lastKey + "." );
+                break;
+            }
+
+            if ( this.countOf(leaf) == leafFill )
+            {
+                Page next = this.allocatePage(DiskBPlusTree.TYPE_LEAF);
+                next.buffer.putLong(DiskBPlusTree.PAGE_PREVIOUS, leaf.id);
+                leaf.buffer.putLong(DiskBPlusTree.PAGE_NEXT, next.id);
+                this.addToLevel(levels, 0, this.leafKey(leaf, 0), leaf.id, internalFill);
+                leaf = next;
+                this.trimCache();
+            }
+
+            int count = this.countOf(leaf);
+            leaf.buffer.putLong(this.leafKeyOffset(count), key);
+            leaf.buffer.putLong(this.leafValueOffset(count), entry.getValue());
+            leaf.buffer.putInt(DiskBPlusTree.PAGE_COUNT, count + 1);
+            leaf.dirty = true;
+            lastKey = key;
+            this.size++;
+        }
+
+        if ( this.size > 0 )
+        {
+            this.addToLevel(levels, 0, this.leafKey(leaf, 0), leaf.id, internalFill);
+
+            for ( int level = 0; level < levels.size(); level++ )
+            {
+                if ( ( level == ( levels.size() - 1 ) ) && ( levels.get(level).count == 1 ) )
+                {
+                    this.root = levels.get(level).children[0];
+                    this.height = level;
+                    break;
+                }
+
+                this.closeLevel(levels, level, internalFill);
+            }
+
+            this.modCount++;
+        }
+
+        this.trimCache();
+
+        if ( outOfOrder != null ) { throw new IllegalArgumentException(outOfOrder); }
+    }
+
+    private static int checksum(final long id, final long count, final ByteBuffer contents)
+    {
+        CRC32 crc = new CRC32();
+        ByteBuffer fields = ByteBuffer.allocate(16);
+        fields.putLong(id);
+        fields.putLong(count);
+        fields.flip();
+        crc.update(fields);
+
+        if ( contents != null )
+        {
+            crc.update(contents.duplicate());
+        }
+
+        return (int) crc.getValue();
+    }
+
+    // Return the slot of the child of an internal page which covers the key: the number of separators not greater than the key.
+    private int childSlot(final Page page, final long key)
+    {
+        int lo = 0;
+        int hi = this.countOf(page);
+
+        while ( lo < hi )
+        {
+            int mid = ( ( lo + hi ) >>> 1 );
+
+            if ( this.internalKey(page, mid) <= key )
+            {
+                lo = ( mid + 1 );
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+
+        return lo;
+    }
+
+    // Commit any pending changes, then close the file and the log.
+    @Override
+    public final void close() throws IOException
+    {
+        if ( this.isClosed() ) { return; }
+
+        try
+        {
+            this.commit();
+        }
+        finally
+        {
+            this.closed = true;
+            this.file.close();
+            this.log.close();
+        }
+    }
+
+    // Write the open page of a level of a bulk load as an internal page, and add it to the level above.
+    private void closeLevel(final List<LevelBuilder> levels, final int level, final int fill) throws IOException
+    {
+        LevelBuilder builder = levels.get(level);
+        Page page = this.allocatePage(DiskBPlusTree.TYPE_INTERNAL);
+
+        for ( int i = 0; i < builder.count; i++ )
+        {
+            page.buffer.putLong(this.childOffset(i), builder.children[i]);
+
+            if ( i > 0 )
+            {
+                page.buffer.putLong(this.internalKeyOffset(i - 1), builder.firstKeys[i]);
+            }
+        }
+
+        page.buffer.putInt(DiskBPlusTree.PAGE_COUNT, builder.count - 1);
+        long firstKey = builder.firstKeys[0];
+        builder.count = 0;
+        this.addToLevel(levels, level + 1, firstKey, page.id, fill);
+    }
+
+    private int childOffset(final int slot)
+    {
+        return ( DiskBPlusTree.INTERNAL_CHILDREN + ( 8 * slot ) );
+    }
+
+    // Make every change since the last commit durable, as one atomic batch.
+    public final void commit() throws IOException
+    {
+        this.ensureOpen();
+        this.writeHeader();
+
+        // New pages go straight into the file; nothing committed refers to them. They must be on disk before the commit record which refers to them.
+        for ( Node node = this.recency.getHead(); node != null; node = node.getNext() )
+        {
+            @SuppressWarnings("unchecked")
+            Page page = ( (DataNode<Page>) node ).getData();
+
+            if ( page.dirty && ( page.id >= this.committedPageCount ) )
+            {
+                DiskBPlusTree.writeFully(this.file, page.buffer.duplicate(), page.id * this.pageSize);
+                page.dirty = false;
+            }
+        }
+
+        this.file.force(false);
+
+        for ( Node node = this.recency.getHead(); node != null; node = node.getNext() )
+        {
+            @SuppressWarnings("unchecked")
+            Page page = ( (DataNode<Page>) node ).getData();
+
+            if ( page.dirty )
+            {
+                this.appendRecord(page.id, page.buffer);
+                page.dirty = false;
+            }
+        }
+
+        ByteBuffer commitRecord = ByteBuffer.allocate(DiskBPlusTree.RECORD_HEADER);
+        commitRecord.putLong(0, DiskBPlusTree.COMMIT_RECORD);
+        commitRecord.putLong(8, this.logRecords);
+        commitRecord.putInt(16, DiskBPlusTree.checksum(DiskBPlusTree.COMMIT_RECORD, this.logRecords, null));
+        DiskBPlusTree.writeFully(this.log, commitRecord, this.logEnd);
+        this.log.force(false);
+
+        DiskBPlusTree.recover(this.file, this.log, this.pageSize);
+        this.committedPageCount = this.pageCount;
+        this.logEnd = 0;
+        this.logRecords = 0;
+        this.spilled = new SeparateChainingSymbolTable<Long, Long>();
+    }
+
+    // Is the key in the tree?
+    public final boolean contains(final long key) throws IOException
+    {
+        this.ensureOpen();
+        Page leaf = this.findLeaf(key);
+        int slot = this.leafLowerBound(leaf, key);
+        boolean retVal = ( ( slot < this.countOf(leaf) ) && ( this.leafKey(leaf, slot) == key ) );
+        this.trimCache();
+        return retVal;
+    }
+
+    private int countOf(final Page page)
+    {
+        return page.buffer.getInt(DiskBPlusTree.PAGE_COUNT);
+    }
+
+    // Create a new, empty tree in 'path', replacing any file there.
+    public static final DiskBPlusTree create(final Path path, final int pageSize, final int cachePages) throws IOException
+    {
+        if ( ( pageSize < DiskBPlusTree.MINIMUM_PAGE_SIZE ) || ( Integer.bitCount(pageSize) != 1 ) ) { throw new IllegalArgumentException("The page size must be a power of two of at least " + DiskBPlusTree.MINIMUM_PAGE_SIZE + " bytes."); }
+
+        if ( cachePages < 1 ) { throw new IllegalArgumentException("The cache must hold at least one page."); }
+
+        FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel log = FileChannel.open(DiskBPlusTree.logPath(path), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        DiskBPlusTree tree = new DiskBPlusTree(file, log, pageSize, cachePages);
+        tree.allocatePage(DiskBPlusTree.TYPE_FREE); // The header.
+        tree.root = tree.allocatePage(DiskBPlusTree.TYPE_LEAF).id;
+        tree.commit();
+        return tree;
+    }
+
+    // Return a cursor over the entries with keys in [fromKey, toKey], in ascending key order.
+    public final Cursor cursor(final long fromKey, final long toKey) throws IOException
+    {
+        this.ensureOpen();
+        return new Cursor(fromKey, toKey);
+    }
+
+    // Remove the key and its value. Return true if the key was present.
+    public final boolean delete(final long key) throws IOException
+    {
+        this.ensureOpen();
+        long[] path = new long[this.height];
+        int[] slots = new int[this.height];
+        Page leaf = this.descend(key, path, slots);
+        int slot = this.leafLowerBound(leaf, key);
+        int count = this.countOf(leaf);
+
+        if ( ( slot >= count ) || ( this.leafKey(leaf, slot) != key ) )
+        {
+            this.trimCache();
+            return false;
+        }
+
+        byte[] bytes = leaf.buffer.array();
+        System.arraycopy(bytes, this.leafKeyOffset(slot + 1), bytes, this.leafKeyOffset(slot), 8 * ( count - slot - 1 ));
+        System.arraycopy(bytes, this.leafValueOffset(slot + 1), bytes, this.leafValueOffset(slot), 8 * ( count - slot - 1 ));
+        leaf.buffer.putInt(DiskBPlusTree.PAGE_COUNT, count - 1);
+        leaf.dirty = true;
+        this.size--;
+        this.modCount++;
+
+        if ( ( count == 1 ) && ( this.height > 0 ) )
+        {
+            this.removeLeaf(leaf, path, slots);
+        }
+
+        this.trimCache();
+        return true;
+    }
+
+    // Walk from the root to the leaf which covers the key, recording the internal pages passed through and the child slot taken in each.
+    private Page descend(final long key, final long[] path, final int[] slots) throws IOException
+    {
+        Page page = this.page(this.root);
+
+        for ( int level = 0; level < this.height; level++ )
+        {
+            path[level] = page.id;
+            slots[level] = this.childSlot(page, key);
+            page = this.page(page.buffer.getLong(this.childOffset(slots[level])));
+        }
+
+        return page;
+    }
+
+    private void ensureOpen()
+    {
+        if ( this.isClosed() ) { throw new IllegalStateException("The B+tree has been closed."); }
+    }
+
+    private Page findLeaf(final long key) throws IOException
+    {
+        Page page = this.page(this.root);
+
+        for ( int level = 0; level < this.height; level++ )
+        {
+            page = this.page(page.buffer.getLong(this.childOffset(this.childSlot(page, key))));
+        }
+
+        return page;
+    }
+
+    // Clear a page and put it on the free list.
+    private void freePage(final Page page)
+    {
+        Arrays.fill(page.buffer.array(), (byte) 0);
+        page.buffer.put(DiskBPlusTree.PAGE_TYPE, DiskBPlusTree.TYPE_FREE);
+        page.buffer.putLong(DiskBPlusTree.PAGE_NEXT, this.freeHead);
+        page.dirty = true;
+        this.freeHead = page.id;
+    }
+
+    // Return the value of the key, or 'defaultValue' if the key is not in the tree.
+    public final long get(final long key, final long defaultValue) throws IOException
+    {
+        this.ensureOpen();
+        Page leaf = this.findLeaf(key);
+        int slot = this.leafLowerBound(leaf, key);
+        long retVal = ( ( ( slot < this.countOf(leaf) ) && ( this.leafKey(leaf, slot) == key ) ) ? this.leafValue(leaf, slot) : defaultValue );
+        this.trimCache();
+        return retVal;
+    }
+
+    public final int getCacheCapacity()
+    {
+        return this.cacheCapacity;
+    }
+
+    // Return the statistics of the page cache. A load is a page read from disk on a miss, and an eviction's weight is the page size.
+    public final CacheStats getCacheStats()
+    {
+        return new CacheStats(this.hitCount, this.missCount, this.missCount, 0, this.readNanos, this.evictionCount, this.evictionCount * this.pageSize, 0);
+    }
+
+    // Return the number of internal levels above the leaves.
+    public final int getHeight()
+    {
+        return this.height;
+    }
+
+    public final int getPageSize()
+    {
+        return this.pageSize;
+    }
+
+    public final long getSize()
+    {
+        return this.size;
+    }
+
+    // Insert 'key' and 'childId' into the internal page at 'level' of the path, splitting pages up the path as needed.
+    private void insertIntoParent(final long[] path, final int[] slots, final int startLevel, final long startKey, final long startChild) throws IOException
+    {
+        long key = startKey;
+        long child = startChild;
+
+        for ( int level = startLevel; level >= 0; level-- )
+        {
+            Page parent = this.page(path[level]);
+            int slot = slots[level];
+            int count = this.countOf(parent);
+
+            if ( count < this.internalCapacity )
+            {
+                byte[] bytes = parent.buffer.array();
+                System.arraycopy(bytes, this.internalKeyOffset(slot), bytes, this.internalKeyOffset(slot + 1), 8 * ( count - slot ));
+                System.arraycopy(bytes, this.childOffset(slot + 1), bytes, this.childOffset(slot + 2), 8 * ( count - slot ));
+                parent.buffer.putLong(this.internalKeyOffset(slot), key);
+                parent.buffer.putLong(this.childOffset(slot + 1), child);
+                parent.buffer.putInt(DiskBPlusTree.PAGE_COUNT, count + 1);
+                parent.dirty = true;
+                return;
+            }
+
+            // Lay out the overfull page in full, then keep the left half and move the right half to a new page. The middle key moves up a level.
+            long[] keys = new long[count + 1];
+            long[] children = new long[count + 2];
+
+            for ( int i = 0, j = 0; i <= count; i++ )
+            {
+                keys[i] = ( ( i == slot ) ? key : this.internalKey(parent, j++) );
+            }
+
+            for ( int i = 0, j = 0; i <= ( count + 1 ); i++ )
+            {
+                children[i] = ( ( i == ( slot + 1 ) ) ? child : parent.buffer.getLong(this.childOffset(j++)) );
+            }
+
+            int middle = ( ( count + 1 ) >>> 1 );
+            Page right = this.allocatePage(DiskBPlusTree.TYPE_INTERNAL);
+            this.writeInternal(parent, keys, children, 0, middle);
+            this.writeInternal(right, keys, children, middle + 1, count + 1);
+            key = keys[middle];
+            child = right.id;
+        }
+
+        Page newRoot = this.allocatePage(DiskBPlusTree.TYPE_INTERNAL);
+        newRoot.buffer.putLong(this.childOffset(0), this.root);
+        newRoot.buffer.putLong(this.childOffset(1), child);
+        newRoot.buffer.putLong(this.internalKeyOffset(0), key);
+        newRoot.buffer.putInt(DiskBPlusTree.PAGE_COUNT, 1);
+        this.root = newRoot.id;
+        this.height++;
+    }
+
+    private long internalKey(final Page page, final int slot)
+    {
+        return page.buffer.getLong(this.internalKeyOffset(slot));
+    }
+
+    private int internalKeyOffset(final int slot)
+    {
+        return ( DiskBPlusTree.INTERNAL_CHILDREN + ( 8 * ( this.internalCapacity + 1 ) ) + ( 8 * slot ) );
+    }
+
+    public final boolean isClosed()
+    {
+        return this.closed;
+    }
+
+    public final boolean isEmpty()
+    {
+        return ( this.getSize() == 0 );
+    }
+
+    private long leafKey(final Page page, final int slot)
+    {
+        return page.buffer.getLong(this.leafKeyOffset(slot));
+    }
+
+    private int leafKeyOffset(final int slot)
+    {
+        return ( DiskBPlusTree.LEAF_ENTRIES + ( 8 * slot ) );
+    }
+
+    // Return the slot of the least key of a leaf not less than the given one, or the leaf's count if there is none.
+    private int leafLowerBound(final Page page, final long key)
+    {
+        int lo = 0;
+        int hi = this.countOf(page);
+
+        while ( lo < hi )
+        {
+            int mid = ( ( lo + hi ) >>> 1 );
+
+            if ( this.leafKey(page, mid) < key )
+            {
+                lo = ( mid + 1 );
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+
+        return lo;
+    }
+
+    private long leafValue(final Page page, final int slot)
+    {
+        return page.buffer.getLong(this.leafValueOffset(slot));
+    }
+
+    private int leafValueOffset(final int slot)
+    {
+        return ( DiskBPlusTree.LEAF_ENTRIES + ( 8 * this.leafCapacity ) + ( 8 * slot ) );
+    }
+
+    private static Path logPath(final Path path)
+    {
+        return path.resolveSibling(path.getFileName() + ".wal");
+    }
+
+    public static void main(final String[] args) throws IOException
+    {
+        // It comes with a limited test bed: random insertions and deletions are checked against a TreeMap by lookups and range scans, then crashes are simulated
+        // after a commit has forced its log but before it has copied the logged pages into the file.
+        Path path = Files.createTempFile("DiskBPlusTree", ".db");
+        Random random = new Random(( args.length > 0 ) ? Long.parseLong(args[0]) : 1);
+        TreeMap<Long, Long> expected = new TreeMap<Long, Long>();
+        int pageSize = DiskBPlusTree.MINIMUM_PAGE_SIZE;
+
+        try
+        {
+            // A small cache forces dirty pages out to the log between commits.
+            try ( DiskBPlusTree tree = DiskBPlusTree.create(path, pageSize, 16) )
+            {
+                DiskBPlusTree.update(tree, expected, random, 20000);
+            }
+
+            StdOut.println("Lookups and range scans match after reopening: " + DiskBPlusTree.matches(path, expected, random));
+
+            byte[] before = Files.readAllBytes(path);
+            TreeMap<Long, Long> committed = new TreeMap<Long, Long>(expected);
+
+            try ( DiskBPlusTree tree = DiskBPlusTree.open(path, 16) )
+            {
+                DiskBPlusTree.update(tree, expected, random, 5000);
+            }
+
+            // Log every page the last commit changed, as that commit did, and put back the file as it was before the commit.
+            byte[] after = Files.readAllBytes(path);
+            ByteBuffer log = ByteBuffer.allocate(( after.length / pageSize ) * ( DiskBPlusTree.RECORD_HEADER + pageSize ) + DiskBPlusTree.RECORD_HEADER);
+            long records = 0;
+
+            for ( int id = 0; id < ( after.length / pageSize ); id++ )
+            {
+                ByteBuffer contents = ByteBuffer.wrap(after, id * pageSize, pageSize).slice();
+
+                if ( ( ( ( id + 1 ) * pageSize ) <= before.length ) && contents.equals(ByteBuffer.wrap(before, id * pageSize, pageSize)) ) { continue; }
+
+                log.putLong(id).putLong(0).putInt(DiskBPlusTree.checksum(id, 0, contents)).putInt(0).put(contents);
+                records++;
+            }
+
+            log.putLong(DiskBPlusTree.COMMIT_RECORD).putLong(records).putInt(DiskBPlusTree.checksum(DiskBPlusTree.COMMIT_RECORD, records, null)).putInt(0);
+            Files.write(path, before);
+            Files.write(DiskBPlusTree.logPath(path), Arrays.copyOf(log.array(), log.position()));
+            StdOut.println("A complete logged commit is finished by open(): " + DiskBPlusTree.matches(path, expected, random));
+
+            Files.write(path, before);
+            Files.write(DiskBPlusTree.logPath(path), Arrays.copyOf(log.array(), log.position() / 2));
+            StdOut.println("A torn logged commit is discarded by open(): " + DiskBPlusTree.matches(path, committed, random));
+
+            ByteBuffer header = ByteBuffer.wrap(before);
+            header.putInt(DiskBPlusTree.HEADER_PAGE_SIZE, pageSize + 1);
+            Files.write(path, before);
+
+            try
+            {
+                DiskBPlusTree.open(path, 16).close();
+                StdOut.println("A corrupt page size is rejected: false");
+            }
+            catch ( IOException e )
+            {
+                StdOut.println("A corrupt page size is rejected: true");
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(DiskBPlusTree.logPath(path));
+        }
+    }
+
+    // Open the tree in 'path' and compare it with 'expected' by a lookup of every key in its range and by range scans with random bounds.
+    private static boolean matches(final Path path, final TreeMap<Long, Long> expected, final Random random) throws IOException
+    {
+        try ( DiskBPlusTree tree = DiskBPlusTree.open(path, 16) )
+        {
+            if ( tree.getSize() != expected.size() ) { return false; }
+
+            long limit = ( expected.isEmpty() ? 0 : ( expected.lastKey() + 1 ) );
+
+            for ( long key = 0; key <= limit; key++ )
+            {
+                Long value = expected.get(key);
+
+                if ( tree.get(key, -1) != ( ( value == null ) ? -1 : value.longValue() ) ) { return false; }
+            }
+
+            for ( int i = 0; i < 100; i++ )
+            {
+                long fromKey = ( random.nextLong() % ( limit + 1 ) );
+                long toKey = ( fromKey + random.nextInt(1000) );
+                DiskBPlusTree.Cursor cursor = tree.cursor(fromKey, toKey);
+
+                for ( Map.Entry<Long, Long> entry : expected.subMap(fromKey, true, toKey, true).entrySet() )
+                {
+                    if ( !cursor.next() || ( cursor.getKey() != entry.getKey() ) || ( cursor.getValue() != entry.getValue() ) ) { return false; }
+                }
+
+                if ( cursor.next() ) { return false; }
+            }
+
+            return true;
+        }
+    }
+
+    // Open the tree in 'path', first completing or discarding any commit which a crash interrupted.
+    public static final DiskBPlusTree open(final Path path, final int cachePages) throws IOException
+    {
+        if ( cachePages < 1 ) { throw new IllegalArgumentException("The cache must hold at least one page."); }
+
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel log = FileChannel.open(DiskBPlusTree.logPath(path), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try
+        {
+            ByteBuffer header = DiskBPlusTree.readFully(file, 0, DiskBPlusTree.MINIMUM_PAGE_SIZE);
+
+            if ( header.getInt(0) != DiskBPlusTree.FILE_MAGIC ) { throw new IOException(path + " is not a B+tree file."); }
+
+            if ( header.getInt(DiskBPlusTree.HEADER_VERSION) != DiskBPlusTree.FILE_VERSION ) { throw new IOException(path + " has unsupported B+tree version " + header.getInt(DiskBPlusTree.HEADER_VERSION) + "."); }
+
+            int pageSize = header.getInt(DiskBPlusTree.HEADER_PAGE_SIZE);
+
+            if ( ( pageSize < DiskBPlusTree.MINIMUM_PAGE_SIZE ) || ( Integer.bitCount(pageSize) != 1 ) ) { throw new IOException(path + " has an invalid page size of " + pageSize + " bytes."); }
+
+            DiskBPlusTree.recover(file, log, pageSize);
+
+            DiskBPlusTree tree = new DiskBPlusTree(file, log, pageSize, cachePages);
+            header = DiskBPlusTree.readFully(file, 0, pageSize);
+            tree.freeHead = header.getLong(DiskBPlusTree.HEADER_FREE_HEAD);
+            tree.height = header.getInt(DiskBPlusTree.HEADER_HEIGHT);
+            tree.pageCount = header.getLong(DiskBPlusTree.HEADER_PAGE_COUNT);
+            tree.committedPageCount = tree.pageCount;
+            tree.root = header.getLong(DiskBPlusTree.HEADER_ROOT);
+            tree.size = header.getLong(DiskBPlusTree.HEADER_SIZE);
+            return tree;
+        }
+        catch ( IOException | RuntimeException exception )
+        {
+            file.close();
+            log.close();
+            throw exception;
+        }
+    }
+
+    // Return a page through the cache, reading it from the log or the file on a miss.
+    private Page page(final long id) throws IOException
+    {
+        Page page = this.cached.get(id);
+
+        if ( page != null )
+        {
+            this.hitCount++;
+            this.recency.moveToHead(page.node);
+            return page;
+        }
+
+        long startTime = System.nanoTime();
+        Long logOffset = this.spilled.get(id);
+
+        if ( logOffset != null )
+        {
+            page = new Page(id, DiskBPlusTree.readFully(this.log, logOffset + DiskBPlusTree.RECORD_HEADER, this.pageSize));
+        }
+        else
+        {
+            page = new Page(id, DiskBPlusTree.readFully(this.file, id * this.pageSize, this.pageSize));
+        }
+
+        this.readNanos += ( System.nanoTime() - startTime );
+        this.missCount++;
+        page.node = this.recency.linkHead(page);
+        this.cached.put(id, page);
+        return page;
+    }
+
+    // Insert the key-value pair, replacing the value if the key is already present.
+    public final void put(final long key, final long value) throws IOException
+    {
+        this.ensureOpen();
+        long[] path = new long[this.height];
+        int[] slots = new int[this.height];
+        Page leaf = this.descend(key, path, slots);
+        int slot = this.leafLowerBound(leaf, key);
+        int count = this.countOf(leaf);
+
+        if ( ( slot < count ) && ( this.leafKey(leaf, slot) == key ) )
+        {
+            leaf.buffer.putLong(this.leafValueOffset(slot), value);
+            leaf.dirty = true;
+            this.trimCache();
+            return;
+        }
+
+        this.size++;
+        this.modCount++;
+
+        if ( count < this.leafCapacity )
+        {
+            this.putInLeaf(leaf, slot, key, value);
+            this.trimCache();
+            return;
+        }
+
+        // Move the upper half of the full leaf to a new leaf to its right, then insert into whichever half covers the key.
+        Page right = this.allocatePage(DiskBPlusTree.TYPE_LEAF);
+        int middle = ( count >>> 1 );
+        byte[] from = leaf.buffer.array();
+        byte[] to = right.buffer.array();
+        System.arraycopy(from, this.leafKeyOffset(middle), to, this.leafKeyOffset(0), 8 * ( count - middle ));
+        System.arraycopy(from, this.leafValueOffset(middle), to, this.leafValueOffset(0), 8 * ( count - middle ));
+        leaf.buffer.putInt(DiskBPlusTree.PAGE_COUNT, middle);
+        right.buffer.putInt(DiskBPlusTree.PAGE_COUNT, count - middle);
+
+        long next = leaf.buffer.getLong(DiskBPlusTree.PAGE_NEXT);
+        right.buffer.putLong(DiskBPlusTree.PAGE_NEXT, next);
+        right.buffer.putLong(DiskBPlusTree.PAGE_PREVIOUS, leaf.id);
+        leaf.buffer.putLong(DiskBPlusTree.PAGE_NEXT, right.id);
+
+        if ( next != 0 )
+        {
+            Page nextLeaf = this.page(next);
+            nextLeaf.buffer.putLong(DiskBPlusTree.PAGE_PREVIOUS, right.id);
+            nextLeaf.dirty = true;
+        }
+
+        if ( slot < middle )
+        {
+            this.putInLeaf(leaf, slot, key, value);
+        }
+        else
+        {
+            this.putInLeaf(right, slot - middle, key, value);
+        }
+
+        leaf.dirty = true;
+        this.insertIntoParent(path, slots, this.height - 1, this.leafKey(right, 0), right.id);
+        this.trimCache();
+    }
+
+    private void putInLeaf(final Page leaf, final int slot, final long key, final long value)
+    {
+        int count = this.countOf(leaf);
+        byte[] bytes = leaf.buffer.array();
+        System.arraycopy(bytes, this.leafKeyOffset(slot), bytes, this.leafKeyOffset(slot + 1), 8 * ( count - slot ));
+        System.arraycopy(bytes, this.leafValueOffset(slot), bytes, this.leafValueOffset(slot + 1), 8 * ( count - slot ));
+        leaf.buffer.putLong(this.leafKeyOffset(slot), key);
+        leaf.buffer.putLong(this.leafValueOffset(slot), value);
+        leaf.buffer.putInt(DiskBPlusTree.PAGE_COUNT, count + 1);
+        leaf.dirty = true;
+    }
+
+    // Read 'length' bytes at 'position' of the channel into a new heap buffer. Bytes past the end of the channel read as zero.
+    private static ByteBuffer readFully(final FileChannel channel, final long position, final int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read(buffer, position + buffer.position()) < 0 ) { break; }
+        }
+
+        buffer.clear();
+        return buffer;
+    }
+
+    // If the log ends with a complete, intact batch, copy its pages into the file. Then empty the log.
+    private static void recover(final FileChannel file, final FileChannel log, final int pageSize) throws IOException
+    {
+        long end = log.size();
+        long offset = 0;
+        long records = 0;
+        long committedEnd = -1;
+
+        while ( ( offset + DiskBPlusTree.RECORD_HEADER ) <= end )
+        {
+            ByteBuffer header = DiskBPlusTree.readFully(log, offset, DiskBPlusTree.RECORD_HEADER);
+            long id = header.getLong(0);
+
+            if ( id == DiskBPlusTree.COMMIT_RECORD )
+            {
+                long count = header.getLong(8);
+
+                if ( ( count == records ) && ( header.getInt(16) == DiskBPlusTree.checksum(id, count, null) ) )
+                {
+                    committedEnd = offset;
+                }
+
+                break;
+            }
+
+            if ( ( offset + DiskBPlusTree.RECORD_HEADER + pageSize ) > end ) { break; }
+
+            ByteBuffer contents = DiskBPlusTree.readFully(log, offset + DiskBPlusTree.RECORD_HEADER, pageSize);
+
+            if ( header.getInt(16) != DiskBPlusTree.checksum(id, 0, contents) ) { break; }
+
+            records++;
+            offset += ( DiskBPlusTree.RECORD_HEADER + pageSize );
+        }
+
+        if ( committedEnd >= 0 )
+        {
+            for ( offset = 0; offset < committedEnd; offset += ( DiskBPlusTree.RECORD_HEADER + pageSize ) )
+            {
+                long id = DiskBPlusTree.readFully(log, offset, DiskBPlusTree.RECORD_HEADER).getLong(0);
+                DiskBPlusTree.writeFully(file, DiskBPlusTree.readFully(log, offset + DiskBPlusTree.RECORD_HEADER, pageSize), id * pageSize);
+            }
+
+            file.force(false);
+        }
+
+        log.truncate(0);
+        log.force(false);
+    }
+
+    // Unlink an emptied leaf and free it, then remove it from its parent, freeing any internal page left without children and collapsing a root with one child.
+    private void removeLeaf(final Page leaf, final long[] path, final int[] slots) throws IOException
+    {
+        long previous = leaf.buffer.getLong(DiskBPlusTree.PAGE_PREVIOUS);
+        long next = leaf.buffer.getLong(DiskBPlusTree.PAGE_NEXT);
+
+        if ( previous != 0 )
+        {
+            Page previousLeaf = this.page(previous);
+            previousLeaf.buffer.putLong(DiskBPlusTree.PAGE_NEXT, next);
+            previousLeaf.dirty = true;
+        }
+
+        if ( next != 0 )
+        {
+            Page nextLeaf = this.page(next);
+            nextLeaf.buffer.putLong(DiskBPlusTree.PAGE_PREVIOUS, previous);
+            nextLeaf.dirty = true;
+        }
+
+        this.freePage(leaf);
+
+        for ( int level = ( this.height - 1 ); level >= 0; level-- )
+        {
+            Page parent = this.page(path[level]);
+            int slot = slots[level];
+            int count = this.countOf(parent);
+
+            if ( count == 0 )
+            {
+                // The removed child was the only one; the parent goes too.
+                this.freePage(parent);
+
+                if ( level == 0 )
+                {
+                    this.root = this.allocatePage(DiskBPlusTree.TYPE_LEAF).id;
+                    this.height = 0;
+                    return;
+                }
+
+                continue;
+            }
+
+            // Remove the child and the separator on one side of it.
+            int keySlot = Math.max(0, slot - 1);
+            byte[] bytes = parent.buffer.array();
+            System.arraycopy(bytes, this.internalKeyOffset(keySlot + 1), bytes, this.internalKeyOffset(keySlot), 8 * ( count - keySlot - 1 ));
+            System.arraycopy(bytes, this.childOffset(slot + 1), bytes, this.childOffset(slot), 8 * ( count - slot ));
+            parent.buffer.putInt(DiskBPlusTree.PAGE_COUNT, count - 1);
+            parent.dirty = true;
+            break;
+        }
+
+        while ( this.height > 0 )
+        {
+            Page rootPage = this.page(this.root);
+
+            if ( this.countOf(rootPage) > 0 ) { break; }
+
+            this.root = rootPage.buffer.getLong(this.childOffset(0));
+            this.freePage(rootPage);
+            this.height--;
+        }
+    }
+
+    // Evict the least recently used pages until the cache is back within its capacity. A dirty page which belongs to the committed tree is saved to the log;
+    // a dirty new page is written to the file.
+    private void trimCache() throws IOException
+    {
+        while ( this.cached.getCurSize() > this.cacheCapacity )
+        {
+            @SuppressWarnings("unchecked")
+            Page page = ( (DataNode<Page>) this.recency.getTail() ).getData();
+
+            if ( page.dirty )
+            {
+                if ( page.id >= this.committedPageCount )
+                {
+                    DiskBPlusTree.writeFully(this.file, page.buffer.duplicate(), page.id * this.pageSize);
+                }
+                else
+                {
+                    this.spilled.put(page.id, this.appendRecord(page.id, page.buffer));
+                }
+            }
+
+            this.recency.unlink(page.node);
+            this.cached.delete(page.id);
+            this.evictionCount++;
+        }
+    }
+
+    // Apply random insertions and deletions of small keys to the tree and to 'expected', committing after every quarter of them.
+    private static void update(final DiskBPlusTree tree, final TreeMap<Long, Long> expected, final Random random, final int operations) throws IOException
+    {
+        for ( int i = 0; i < operations; i++ )
+        {
+            long key = random.nextInt(5000);
+
+            if ( random.nextInt(4) == 0 )
+            {
+                tree.delete(key);
+                expected.remove(key);
+            }
+            else
+            {
+                long value = ( random.nextLong() & Long.MAX_VALUE );
+                tree.put(key, value);
+                expected.put(key, value);
+            }
+
+            if ( ( ( i + 1 ) % ( operations / 4 ) ) == 0 )
+            {
+                tree.commit();
+            }
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException
+    {
+        buffer.clear();
+
+        while ( buffer.hasRemaining() )
+        {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private void writeHeader() throws IOException
+    {
+        Page header = this.page(0);
+        header.buffer.putInt(0, DiskBPlusTree.FILE_MAGIC);
+        header.buffer.putInt(DiskBPlusTree.HEADER_VERSION, DiskBPlusTree.FILE_VERSION);
+        header.buffer.putInt(DiskBPlusTree.HEADER_PAGE_SIZE, this.pageSize);
+        header.buffer.putInt(DiskBPlusTree.HEADER_HEIGHT, this.height);
+        header.buffer.putLong(DiskBPlusTree.HEADER_ROOT, this.root);
+        header.buffer.putLong(DiskBPlusTree.HEADER_PAGE_COUNT, this.pageCount);
+        header.buffer.putLong(DiskBPlusTree.HEADER_FREE_HEAD, this.freeHead);
+        header.buffer.putLong(DiskBPlusTree.HEADER_SIZE, this.size);
+        header.dirty = true;
+    }
+
+    // Fill an internal page with the keys [from, to) and the children [from, to + 1) of a laid-out page.
+    private void writeInternal(final Page page, final long[] keys, final long[] children, final int from, final int to)
+    {
+        for ( int i = from; i < to; i++ )
+        {
+            page.buffer.putLong(this.internalKeyOffset(i - from), keys[i]);
+        }
+
+        for ( int i = from; i <= to; i++ )
+        {
+            page.buffer.putLong(this.childOffset(i - from), children[i]);
+        }
+
+        page.buffer.putInt(DiskBPlusTree.PAGE_COUNT, to - from);
+        page.dirty = true;
+    }
+}
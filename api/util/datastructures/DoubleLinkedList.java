@@ -2,17 +2,251 @@
  * Title: DoubleLinkedList
  * Author: Matthew Boyette
  * Date: 5/24/2013
- * 
+ *
  * A minimalist generic double linked-list data structure.
+ *
+ * linkHead() returns the node it creates, which can later be handed to moveToHead(), transferToHead() or unlink() to reposition or remove the element in constant time.
+ *
+ * get(), insertAt() and removeAt() address elements by position. They walk the list from the nearer end, unless enableIndex() has added a skip-list index,
+ * under which they take O(log n) expected time. The index is updated incrementally by insertions and deletions at the head, at the tail, or by position.
+ * Any other change (relinking a node by reference, editing through a DoubleLinkedListIterator, or calling a setter) marks the index stale, and the next
+ * positional access rebuilds it in linear time.
+ *
+ * With a NodePool, nodes come from the pool and nodes removed by deleteHead(), deleteTail(), removeAt() or clear() go back to it. Nodes removed by unlink() are left
+ * to the caller which holds them.
  */
 
 package api.util.datastructures;
 
 public class DoubleLinkedList<T>
 {
-    private Node head = null;
-    private int  size = 0;
-    private Node tail = null;
+    // An indexable skip list over the nodes of the list. Level 0 is the list itself; every entry of a higher level records the number of list positions
+    // between its node and the next entry of that level, so that a search can skip over them. Each level starts with a header at position -1.
+    private static final class PositionIndex
+    {
+        private static final class Entry
+        {
+            private Entry      down   = null; // The entry for the same node one level lower, or null on level 1.
+            private Entry      next   = null;
+            private final Node target;        // The list node at this entry's position, or null for a header.
+            private int        width  = 0;    // Position of the next entry (or of the end of the list) minus the position of this one.
+
+            private Entry(final Node target)
+            {
+                this.target = target;
+            }
+        }
+
+        private static final int MAXIMUM_LEVELS = 16;
+
+        private final Entry[] heads      = new Entry[PositionIndex.MAXIMUM_LEVELS]; // heads[L - 1] is the header of level L.
+        private int           levelCount = 0;
+        private int           seed       = 0x2545F491;
+
+        private PositionIndex()
+        {
+            for ( int level = 0; level < PositionIndex.MAXIMUM_LEVELS; level++ )
+            {
+                this.heads[level] = new Entry(null);
+                this.heads[level].down = ( ( level > 0 ) ? this.heads[level - 1] : null );
+            }
+        }
+
+        // Find the last entry before 'position' on every level, storing the entries and their positions by level.
+        private void findPredecessors(final int position, final Entry[] predecessors, final int[] predecessorPositions)
+        {
+            Entry x = this.heads[this.levelCount - 1];
+            int xPosition = -1;
+
+            for ( int level = this.levelCount; level >= 1; level-- )
+            {
+                while ( ( x.next != null ) && ( ( xPosition + x.width ) < position ) )
+                {
+                    xPosition += x.width;
+                    x = x.next;
+                }
+
+                predecessors[level - 1] = x;
+                predecessorPositions[level - 1] = xPosition;
+                x = x.down;
+            }
+        }
+
+        // Record a node just linked into the list at 'position'; 'size' is the size of the list including it.
+        private void insert(final int position, final Node node, final int size)
+        {
+            int height = this.randomHeight();
+
+            for ( ; this.levelCount < height; this.levelCount++ )
+            {
+                // An unused level is reopened with a header spanning the list as it was before this insertion.
+                this.heads[this.levelCount].next = null;
+                this.heads[this.levelCount].width = size;
+            }
+
+            if ( this.levelCount == 0 ) { return; }
+
+            Entry[] predecessors = new Entry[this.levelCount];
+            int[] predecessorPositions = new int[this.levelCount];
+            this.findPredecessors(position, predecessors, predecessorPositions);
+            Entry below = null;
+
+            for ( int level = 1; level <= this.levelCount; level++ )
+            {
+                Entry predecessor = predecessors[level - 1];
+
+                if ( level <= height )
+                {
+                    Entry entry = new Entry(node);
+                    entry.down = below;
+                    entry.next = predecessor.next;
+                    entry.width = ( ( predecessorPositions[level - 1] + predecessor.width + 1 ) - position );
+                    predecessor.next = entry;
+                    predecessor.width = ( position - predecessorPositions[level - 1] );
+                    below = entry;
+                }
+                else
+                {
+                    predecessor.width++;
+                }
+            }
+        }
+
+        // Return the node at 'position' of the list.
+        private Node nodeAt(final Node head, final int position)
+        {
+            Node node = head;
+            int nodePosition = 0;
+
+            if ( this.levelCount > 0 )
+            {
+                Entry x = this.heads[this.levelCount - 1];
+                int xPosition = -1;
+
+                for ( int level = this.levelCount; level >= 1; level-- )
+                {
+                    while ( ( x.next != null ) && ( ( xPosition + x.width ) <= position ) )
+                    {
+                        xPosition += x.width;
+                        x = x.next;
+                    }
+
+                    if ( level > 1 )
+                    {
+                        x = x.down;
+                    }
+                }
+
+                if ( x.target != null )
+                {
+                    node = x.target;
+                    nodePosition = xPosition;
+                }
+            }
+
+            for ( ; nodePosition < position; nodePosition++ )
+            {
+                node = node.getNext();
+            }
+
+            return node;
+        }
+
+        // Return how many index levels a new node gets: at least k with probability 4^-k.
+        private int randomHeight()
+        {
+            this.seed ^= ( this.seed << 13 );
+            this.seed ^= ( this.seed >>> 17 );
+            this.seed ^= ( this.seed << 5 );
+
+            int height = 0;
+
+            for ( int bits = this.seed; ( ( bits & 3 ) == 0 ) && ( height < PositionIndex.MAXIMUM_LEVELS ); bits >>>= 2 )
+            {
+                height++;
+            }
+
+            return height;
+        }
+
+        // Rebuild the index over every node of the list.
+        private void rebuild(final Node head, final int size)
+        {
+            Entry[] tails = new Entry[PositionIndex.MAXIMUM_LEVELS];
+            int[] tailPositions = new int[PositionIndex.MAXIMUM_LEVELS];
+
+            for ( int level = 0; level < PositionIndex.MAXIMUM_LEVELS; level++ )
+            {
+                this.heads[level].next = null;
+                tails[level] = this.heads[level];
+                tailPositions[level] = -1;
+            }
+
+            this.levelCount = 0;
+            int position = 0;
+
+            for ( Node node = head; node != null; node = node.getNext(), position++ )
+            {
+                int height = this.randomHeight();
+                Entry below = null;
+
+                for ( int level = 1; level <= height; level++ )
+                {
+                    Entry entry = new Entry(node);
+                    entry.down = below;
+                    tails[level - 1].next = entry;
+                    tails[level - 1].width = ( position - tailPositions[level - 1] );
+                    tails[level - 1] = entry;
+                    tailPositions[level - 1] = position;
+                    below = entry;
+                }
+
+                this.levelCount = Math.max(this.levelCount, height);
+            }
+
+            for ( int level = 1; level <= this.levelCount; level++ )
+            {
+                tails[level - 1].width = ( size - tailPositions[level - 1] );
+            }
+        }
+
+        // Forget the node at 'position', which is about to be unlinked from the list.
+        private void remove(final int position)
+        {
+            if ( this.levelCount == 0 ) { return; }
+
+            Entry[] predecessors = new Entry[this.levelCount];
+            int[] predecessorPositions = new int[this.levelCount];
+            this.findPredecessors(position, predecessors, predecessorPositions);
+
+            for ( int level = 1; level <= this.levelCount; level++ )
+            {
+                Entry predecessor = predecessors[level - 1];
+
+                if ( ( predecessor.next != null ) && ( ( predecessorPositions[level - 1] + predecessor.width ) == position ) )
+                {
+                    predecessor.width += ( predecessor.next.width - 1 );
+                    predecessor.next = predecessor.next.next;
+                }
+                else
+                {
+                    predecessor.width--;
+                }
+            }
+
+            while ( ( this.levelCount > 0 ) && ( this.heads[this.levelCount - 1].next == null ) )
+            {
+                this.levelCount--;
+            }
+        }
+    }
+
+    private Node                  head       = null;
+    private PositionIndex         index      = null;  // Skip-list index for positional access, or null if disabled.
+    private boolean               indexStale = false; // Has the list changed in a way the index could not follow?
+    private NodePool<DataNode<T>> nodePool   = null;  // Source of recycled nodes, or null to allocate every node.
+    private int                   size       = 0;
+    private Node                  tail       = null;
 
     public DoubleLinkedList()
     {
@@ -27,29 +261,56 @@ public class DoubleLinkedList<T>
         }
     }
 
+    @SuppressWarnings("unchecked")
     public void clear()
     {
+        if ( this.getNodePool() != null )
+        {
+            Node node = this.getHead();
+
+            while ( node != null )
+            {
+                Node next = node.getNext();
+                this.getNodePool().release((DataNode<T>) node);
+                node = next;
+            }
+        }
+
         this.setSize(0);
         this.setHead(null);
         this.setTail(null);
     }
 
+    // Remove and return the head element, or return null if the list is empty.
     public T deleteHead()
     {
-        T retVal = null;
-        DoubleLinkedListIterator<T> iterator = this.getIterator();
-        iterator.resetHead();
-        retVal = iterator.deleteCurrent();
-        return retVal;
+        return ( this.isEmpty() ? null : this.removeAt(0) );
     }
 
+    // Remove and return the tail element, or return null if the list is empty.
     public T deleteTail()
     {
-        T retVal = null;
-        DoubleLinkedListIterator<T> iterator = this.getIterator();
-        iterator.resetTail();
-        retVal = iterator.deleteCurrent();
-        return retVal;
+        return ( this.isEmpty() ? null : this.removeAt(this.getSize() - 1) );
+    }
+
+    // Drop the skip-list index.
+    public void disableIndex()
+    {
+        this.index = null;
+    }
+
+    // Build a skip-list index, so that positional access takes O(log n) expected time.
+    public void enableIndex()
+    {
+        this.index = new PositionIndex();
+        this.indexStale = true;
+    }
+
+    // Return the element at the given position, counting from the head.
+    @SuppressWarnings("unchecked")
+    public T get(final int position)
+    {
+        return ( (DataNode<T>) this.nodeAt(position) ).getData();
     }
 
     public Node getHead()
@@ -62,6 +323,11 @@ public class DoubleLinkedList<T>
         return new DoubleLinkedListIterator<T>(this);
     }
 
+    public NodePool<DataNode<T>> getNodePool()
+    {
+        return this.nodePool;
+    }
+
     public int getSize()
     {
         return this.size;
@@ -72,18 +338,50 @@ public class DoubleLinkedList<T>
         return this.tail;
     }
 
+    // Insert 'data' so that it ends up at the given position, between 0 and getSize() inclusive.
+    public void insertAt(final int position, final T data)
+    {
+        if ( ( position < 0 ) || ( position > this.getSize() ) ) { throw new IndexOutOfBoundsException("Position: " + position + ", Size: " + this.getSize()); }
+
+        Node node = this.newNode(data);
+
+        if ( position == 0 )
+        {
+            this.linkNodeAtHead(node);
+        }
+        else
+        {
+            Node previous = ( ( position == this.getSize() ) ? this.getTail() : this.nodeAt(position - 1) );
+            node.setPrevious(previous);
+            node.setNext(previous.getNext());
+
+            if ( previous.getNext() != null )
+            {
+                previous.getNext().setPrevious(node);
+            }
+            else
+            {
+                this.tail = node;
+            }
+
+            previous.setNext(node);
+            this.size++;
+        }
+
+        if ( this.isIndexed() )
+        {
+            this.index.insert(position, node, this.getSize());
+        }
+    }
+
     public void insertHead(final T data)
     {
-        DoubleLinkedListIterator<T> iterator = this.getIterator();
-        iterator.resetHead();
-        iterator.insertBefore(data);
+        this.insertAt(0, data);
     }
 
     public void insertTail(final T data)
     {
-        DoubleLinkedListIterator<T> iterator = this.getIterator();
-        iterator.resetTail();
-        iterator.insertAfter(data);
+        this.insertAt(this.getSize(), data);
     }
 
     public boolean isEmpty()
@@ -91,19 +389,147 @@ public class DoubleLinkedList<T>
         return ( this.getSize() <= 0 );
     }
 
+    // Is positional access served by an up-to-date skip-list index?
+    private boolean isIndexed()
+    {
+        return ( ( this.index != null ) && !this.indexStale );
+    }
+
+    // Insert 'data' at the head and return the node holding it.
+    public DataNode<T> linkHead(final T data)
+    {
+        DataNode<T> node = this.newNode(data);
+        this.linkNodeAtHead(node);
+
+        if ( this.isIndexed() )
+        {
+            this.index.insert(0, node, this.getSize());
+        }
+
+        return node;
+    }
+
+    // Link a node in at the head. Like unlinkNode(), this writes the fields directly, since the setters would mark the index stale.
+    private void linkNodeAtHead(final Node node)
+    {
+        node.setPrevious(null);
+        node.setNext(this.getHead());
+
+        if ( this.getHead() != null )
+        {
+            this.getHead().setPrevious(node);
+        }
+        else
+        {
+            this.tail = node;
+        }
+
+        this.head = node;
+        this.size++;
+    }
+
+    // Move a node of this list to the head.
+    public void moveToHead(final Node node)
+    {
+        if ( node == this.getHead() ) { return; }
+
+        this.unlink(node);
+        this.linkNodeAtHead(node);
+    }
+
+    private DataNode<T> newNode(final T data)
+    {
+        DataNode<T> node = ( ( this.nodePool != null ) ? this.nodePool.acquire() : null );
+
+        if ( node == null ) { return new DataNode<T>(data, null, null); }
+
+        node.setData(data);
+        return node;
+    }
+
+    // Return the node at the given position, using the index if there is one.
+    private Node nodeAt(final int position)
+    {
+        if ( ( position < 0 ) || ( position >= this.getSize() ) ) { throw new IndexOutOfBoundsException("Position: " + position + ", Size: " + this.getSize()); }
+
+        if ( this.index != null )
+        {
+            if ( this.indexStale )
+            {
+                this.index.rebuild(this.getHead(), this.getSize());
+                this.indexStale = false;
+            }
+
+            return this.index.nodeAt(this.getHead(), position);
+        }
+
+        // Without an index, walk from whichever end is nearer.
+        if ( position < ( this.getSize() / 2 ) )
+        {
+            Node node = this.getHead();
+
+            for ( int i = 0; i < position; i++ )
+            {
+                node = node.getNext();
+            }
+
+            return node;
+        }
+
+        Node node = this.getTail();
+
+        for ( int i = this.getSize() - 1; i > position; i-- )
+        {
+            node = node.getPrevious();
+        }
+
+        return node;
+    }
+
+    // Remove and return the element at the given position, counting from the head.
+    @SuppressWarnings("unchecked")
+    public T removeAt(final int position)
+    {
+        Node node = this.nodeAt(position);
+
+        if ( this.isIndexed() )
+        {
+            this.index.remove(position);
+        }
+
+        this.unlinkNode(node);
+        T data = ( (DataNode<T>) node ).getData();
+
+        if ( this.nodePool != null )
+        {
+            this.nodePool.release((DataNode<T>) node);
+        }
+
+        return data;
+    }
+
     public void setHead(final Node head)
     {
         this.head = head;
+        this.indexStale = true;
+    }
+
+    // Draw nodes from a pool and return deleted nodes to it, or allocate every node if the pool is null.
+    public void setNodePool(final NodePool<DataNode<T>> nodePool)
+    {
+        this.nodePool = nodePool;
     }
 
     public void setSize(final int size)
     {
         this.size = size;
+        this.indexStale = true;
     }
 
     public void setTail(final Node tail)
     {
         this.tail = tail;
+        this.indexStale = true;
     }
 
     @Override
@@ -121,4 +547,48 @@ public class DoubleLinkedList<T>
 
         return output.toString();
     }
+
+    // Move a node from the source list (which may be this one) to the head of this list, without allocating.
+    public void transferToHead(final Node node, final DoubleLinkedList<T> source)
+    {
+        source.unlink(node);
+        this.linkNodeAtHead(node);
+
+        if ( this.isIndexed() )
+        {
+            this.index.insert(0, node, this.getSize());
+        }
+    }
+
+    // Remove a node of this list, wherever it is. Its position is unknown, so this marks the index stale.
+    public void unlink(final Node node)
+    {
+        this.unlinkNode(node);
+        this.indexStale = true;
+    }
+
+    private void unlinkNode(final Node node)
+    {
+        if ( node.getPrevious() != null )
+        {
+            node.getPrevious().setNext(node.getNext());
+        }
+        else
+        {
+            this.head = node.getNext();
+        }
+
+        if ( node.getNext() != null )
+        {
+            node.getNext().setPrevious(node.getPrevious());
+        }
+        else
+        {
+            this.tail = node.getPrevious();
+        }
+
+        node.setNext(null);
+        node.setPrevious(null);
+        this.size--;
+    }
 }
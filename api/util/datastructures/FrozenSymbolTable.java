@@ -0,0 +1,302 @@
+/*
+ * Title: FrozenSymbolTable
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * An immutable symbol table built around a minimal perfect hash function, for lookup sets which are filled once and then only read.
+ * Instances are made by SeparateChainingSymbolTable.freeze().
+ *
+ * The n keys are stored in flat arrays of exactly n slots. Construction uses hash and displace: keys are grouped into buckets by one hash, and each bucket is assigned
+ * a displacement under which a second hash sends all of its keys to free slots. Buckets of a single key are pointed straight at a free slot. A lookup reads the
+ * displacement of its bucket, computes one slot, and compares one key, so it never probes, never divides, and never allocates.
+ *
+ * The hash code is all the function sees of a key, so it is built over the distinct hash codes: the first key with each hash code gets a slot, and any other key
+ * sharing that hash code goes into small overflow arrays sorted by hash code. A lookup whose hash code matches its slot but whose key does not falls back to a
+ * binary search of the overflow, which is empty unless two keys collide.
+ */
+
+package api.util.datastructures;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+public class FrozenSymbolTable<K, V>
+{
+    public static final int KEYS_PER_BUCKET = 4;
+
+    private static final int DISPLACEMENT_LIMIT = ( 1 << 24 ); // Give up on a bucket after this many displacements. Only reachable with pathological hash codes.
+
+    // Map a 32-bit value uniformly onto [0, n) with a multiplication instead of a division.
+    private static final int reduce(final int x, final int n)
+    {
+        return (int) ( ( ( x & 0xFFFFFFFFL ) * n ) >>> 32 );
+    }
+
+    private final int[]    displacements;  // Per bucket: a displacement for the second hash, or -(slot + 1) for a bucket holding a single key.
+    private final int[]    hashes;
+    private final Object[] keys;
+    private final int[]    overflowHashes; // Sorted; keys whose hash code is also that of a key with a slot.
+    private final Object[] overflowKeys;
+    private final Object[] overflowValues;
+    private final Object[] values;
+
+    FrozenSymbolTable(final Iterator<KeyValuePair<K, V>> entries, final int size)
+    {
+        // Gather the entries, and order them by hash code, packed above the entry number, so that keys sharing a hash code are adjacent.
+        Object[] sourceKeys = new Object[size];
+        Object[] sourceValues = new Object[size];
+        int[] sourceHashes = new int[size];
+        long[] byHash = new long[size];
+
+        for ( int i = 0; i < size; i++ )
+        {
+            KeyValuePair<K, V> entry = entries.next();
+            sourceKeys[i] = entry.getKey();
+            sourceValues[i] = entry.getValue();
+            sourceHashes[i] = entry.getKey().hashCode();
+            byHash[i] = ( ( (long) sourceHashes[i] << 32 ) | i );
+        }
+
+        Arrays.sort(byHash);
+
+        // The first entry with each hash code gets a slot; the rest go to the overflow.
+        int distinct = 0;
+
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( ( i == 0 ) || ( ( byHash[i] >> 32 ) != ( byHash[i - 1] >> 32 ) ) )
+            {
+                distinct++;
+            }
+        }
+
+        int[] primary = new int[distinct];
+        this.overflowHashes = new int[size - distinct];
+        this.overflowKeys = new Object[size - distinct];
+        this.overflowValues = new Object[size - distinct];
+
+        for ( int i = 0, p = 0, o = 0; i < size; i++ )
+        {
+            int entry = (int) byHash[i];
+
+            if ( ( i == 0 ) || ( ( byHash[i] >> 32 ) != ( byHash[i - 1] >> 32 ) ) )
+            {
+                primary[p++] = entry;
+                continue;
+            }
+
+            this.overflowHashes[o] = sourceHashes[entry];
+            this.overflowKeys[o] = sourceKeys[entry];
+            this.overflowValues[o] = sourceValues[entry];
+            o++;
+        }
+
+        this.hashes = new int[distinct];
+        this.keys = new Object[distinct];
+        this.values = new Object[distinct];
+        this.displacements = new int[Math.max(1, ( distinct + FrozenSymbolTable.KEYS_PER_BUCKET - 1 ) / FrozenSymbolTable.KEYS_PER_BUCKET)];
+
+        // Group the entries with slots by bucket.
+        final int[][] members = new int[this.displacements.length][];
+        int[] memberCounts = new int[this.displacements.length];
+
+        for ( int entry : primary )
+        {
+            memberCounts[this.bucketOf(sourceHashes[entry])]++;
+        }
+
+        for ( int b = 0; b < members.length; b++ )
+        {
+            members[b] = new int[memberCounts[b]];
+            memberCounts[b] = 0;
+        }
+
+        for ( int entry : primary )
+        {
+            int b = this.bucketOf(sourceHashes[entry]);
+            members[b][memberCounts[b]++] = entry;
+        }
+
+        // Place the largest buckets first, while most slots are still free.
+        Integer[] order = new Integer[members.length];
+
+        for ( int b = 0; b < order.length; b++ )
+        {
+            order[b] = b;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(final Integer b1, final Integer b2)
+            {
+                return ( members[b2].length - members[b1].length );
+            }
+        });
+
+        boolean[] taken = new boolean[distinct];
+        int nextFree = 0;
+
+        for ( int b : order )
+        {
+            int[] bucket = members[b];
+
+            if ( bucket.length == 0 )
+            {
+                break;
+            }
+
+            if ( bucket.length == 1 )
+            {
+                // A single key needs no search; point the bucket straight at the next free slot.
+                while ( taken[nextFree] )
+                {
+                    nextFree++;
+                }
+
+                taken[nextFree] = true;
+                this.displacements[b] = -( nextFree + 1 );
+                this.store(nextFree, sourceKeys, sourceValues, sourceHashes, bucket[0]);
+                continue;
+            }
+
+            int[] slots = new int[bucket.length];
+            int displacement = 0;
+
+            while ( !this.tryPlace(bucket, sourceHashes, displacement, taken, slots) )
+            {
+                if ( ++displacement >= FrozenSymbolTable.DISPLACEMENT_LIMIT ) { throw new IllegalArgumentException("No perfect hash was found for these keys."); }
+            }
+
+            this.displacements[b] = displacement;
+
+            for ( int j = 0; j < bucket.length; j++ )
+            {
+                taken[slots[j]] = true;
+                this.store(slots[j], sourceKeys, sourceValues, sourceHashes, bucket[j]);
+            }
+        }
+    }
+
+    private int bucketOf(final int hash)
+    {
+        return FrozenSymbolTable.reduce(SizingPolicy.mix(hash), this.displacements.length);
+    }
+
+    // Is the key in the symbol table?
+    public final boolean contains(final K key)
+    {
+        return ( this.get(key) != null );
+    }
+
+    // Return value associated with key, null if no such key.
+    @SuppressWarnings("unchecked")
+    public final V get(final K key)
+    {
+        if ( this.keys.length == 0 ) { return null; }
+
+        int hash = key.hashCode();
+        int slot = this.slotOf(hash);
+
+        if ( this.hashes[slot] != hash ) { return null; }
+
+        if ( key.equals(this.keys[slot]) ) { return (V) this.values[slot]; }
+
+        return this.getOverflow(hash, key);
+    }
+
+    // Return the size of the symbol table.
+    public final long getCurSize()
+    {
+        return ( this.keys.length + this.overflowKeys.length );
+    }
+
+    // Return value associated with a key which shares its hash code with the key in its slot, null if no such key.
+    @SuppressWarnings("unchecked")
+    private V getOverflow(final int hash, final K key)
+    {
+        int i = Arrays.binarySearch(this.overflowHashes, hash);
+
+        if ( i < 0 ) { return null; }
+
+        while ( ( i > 0 ) && ( this.overflowHashes[i - 1] == hash ) )
+        {
+            i--;
+        }
+
+        for ( ; ( i < this.overflowHashes.length ) && ( this.overflowHashes[i] == hash ); i++ )
+        {
+            if ( key.equals(this.overflowKeys[i]) ) { return (V) this.overflowValues[i]; }
+        }
+
+        return null;
+    }
+
+    // Is the symbol table empty?
+    public final boolean isEmpty()
+    {
+        return ( this.getCurSize() == 0 );
+    }
+
+    // Return keys in symbol table as a list.
+    @SuppressWarnings("unchecked")
+    public final List<K> keysList()
+    {
+        List<K> queue = new LinkedList<K>();
+
+        for ( Object key : this.keys )
+        {
+            queue.add((K) key);
+        }
+
+        for ( Object key : this.overflowKeys )
+        {
+            queue.add((K) key);
+        }
+
+        return queue;
+    }
+
+    // Return the only slot which can hold a key with this hash code.
+    private int slotOf(final int hash)
+    {
+        int displacement = this.displacements[this.bucketOf(hash)];
+
+        if ( displacement < 0 ) { return ( -displacement - 1 ); }
+
+        return this.slotOf(hash, displacement);
+    }
+
+    private int slotOf(final int hash, final int displacement)
+    {
+        return FrozenSymbolTable.reduce(SizingPolicy.mix(hash ^ ( ( displacement * 0x9E3779B9 ) + 0x7F4A7C15 )), this.keys.length);
+    }
+
+    private void store(final int slot, final Object[] sourceKeys, final Object[] sourceValues, final int[] sourceHashes, final int entry)
+    {
+        this.hashes[slot] = sourceHashes[entry];
+        this.keys[slot] = sourceKeys[entry];
+        this.values[slot] = sourceValues[entry];
+    }
+
+    // Compute the slots of a bucket's keys under a displacement. Returns true, with the slots filled in, if they are all free and all different.
+    private boolean tryPlace(final int[] bucket, final int[] sourceHashes, final int displacement, final boolean[] taken, final int[] slots)
+    {
+        for ( int j = 0; j < bucket.length; j++ )
+        {
+            slots[j] = this.slotOf(sourceHashes[bucket[j]], displacement);
+
+            if ( taken[slots[j]] ) { return false; }
+
+            for ( int k = 0; k < j; k++ )
+            {
+                if ( slots[k] == slots[j] ) { return false; }
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Title: FrozenTree
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * An immutable ordered set laid out in a single array, for search trees which are filled once and then only read.
+ * Instances are made by Tree.freeze().
+ *
+ * The n elements are stored in Eytzinger order, the order in which a breadth-first walk visits a complete binary search tree: the root is at index 1 and the
+ * children of index k are at 2k and 2k + 1. A search touches one array slot per level instead of one TreeNode object, and the top levels, which every search
+ * reads, share a few cache lines. The descent has no early exit and its only decision is folded into the next index, so the JIT can compile it without a
+ * branch to mispredict. The sixteen slots four levels below any slot are consecutive, so the part of the array a search can still reach narrows to a few
+ * neighbouring cache lines instead of being scattered across the heap.
+ *
+ * Comparing elements still reads each element object. A tree frozen with a key function also stores a long key per slot, and searches compare the keys alone,
+ * so the descent reads nothing but one long array. The key function must be consistent with the tree's order: a < b must hold exactly when key(a) < key(b).
+ */
+
+package api.util.datastructures;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+public class FrozenTree<T>
+{
+    // Return the slot after slot k in order, or 0 if k is the last. The layout has 'size' slots numbered from 1.
+    private static final int nextSlot(final int k, final int size)
+    {
+        int slot = k;
+
+        if ( ( ( 2 * slot ) + 1 ) <= size )
+        {
+            slot = ( ( 2 * slot ) + 1 );
+
+            while ( ( 2 * slot ) <= size )
+            {
+                slot *= 2;
+            }
+
+            return slot;
+        }
+
+        // Climb past every ancestor of which this slot is in the right subtree; the next one up comes next.
+        return ( slot >>> ( Integer.numberOfTrailingZeros(~slot) + 1 ) );
+    }
+
+    private final Comparator<? super T>     comparator;  // The element order, or null for the natural ordering.
+    private final Object[]                  elements;    // The elements in Eytzinger order; slot 0 is unused.
+    private final ToLongFunction<? super T> keyFunction; // Maps elements to their search keys, or null to compare the elements themselves.
+    private final long[]                    keys;        // The key of each slot, or null if there is no key function.
+
+    FrozenTree(final Iterator<T> inOrder, final int size, final Comparator<? super T> comparator, final ToLongFunction<? super T> keyFunction)
+    {
+        this.comparator = comparator;
+        this.elements = new Object[size + 1];
+        this.keyFunction = keyFunction;
+        this.keys = ( ( keyFunction == null ) ? null : new long[size + 1] );
+
+        // Visit the slots in order, filling each from the sorted elements.
+        int slot = this.firstSlot();
+
+        for ( int i = 0; i < size; i++ )
+        {
+            T element = inOrder.next();
+            this.elements[slot] = element;
+
+            if ( this.keys != null )
+            {
+                this.keys[slot] = keyFunction.applyAsLong(element);
+            }
+
+            slot = FrozenTree.nextSlot(slot, size);
+        }
+    }
+
+    // Return the least element not less than the given one, or null if there is none.
+    @SuppressWarnings("unchecked")
+    public final T ceiling(final T data)
+    {
+        return (T) this.elements[this.lowerBound(data)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(final T data1, final T data2)
+    {
+        if ( this.comparator != null ) { return this.comparator.compare(data1, data2); }
+
+        return ( (Comparable<? super T>) data1 ).compareTo(data2);
+    }
+
+    public final boolean contains(final T data)
+    {
+        return ( this.matches(this.lowerBound(data), data) );
+    }
+
+    // Return the slot of the least element.
+    private int firstSlot()
+    {
+        int slot = 1;
+
+        while ( ( 2 * slot ) <= this.getSize() )
+        {
+            slot *= 2;
+        }
+
+        return ( ( this.getSize() == 0 ) ? 0 : slot );
+    }
+
+    // Return the greatest element not greater than the given one, or null if there is none.
+    @SuppressWarnings("unchecked")
+    public final T floor(final T data)
+    {
+        int slot = this.lowerBound(data);
+
+        if ( this.matches(slot, data) ) { return (T) this.elements[slot]; }
+
+        return (T) this.elements[this.lastLess(data)];
+    }
+
+    public final Comparator<? super T> getComparator()
+    {
+        return this.comparator;
+    }
+
+    // Return the least element, or null if the tree is empty.
+    @SuppressWarnings("unchecked")
+    public final T getFirst()
+    {
+        return (T) this.elements[this.firstSlot()];
+    }
+
+    // Return the greatest element, or null if the tree is empty.
+    @SuppressWarnings("unchecked")
+    public final T getLast()
+    {
+        int slot = 1;
+
+        while ( ( ( 2 * slot ) + 1 ) <= this.getSize() )
+        {
+            slot = ( ( 2 * slot ) + 1 );
+        }
+
+        return ( ( this.getSize() == 0 ) ? null : (T) this.elements[slot] );
+    }
+
+    public final int getSize()
+    {
+        return ( this.elements.length - 1 );
+    }
+
+    public final boolean isEmpty()
+    {
+        return ( this.getSize() == 0 );
+    }
+
+    // Return the slot of the greatest element less than the given one, or 0 if there is none.
+    @SuppressWarnings("unchecked")
+    private int lastLess(final T data)
+    {
+        int size = this.getSize();
+        int slot = 1;
+        int retVal = 0;
+
+        if ( this.keys != null )
+        {
+            long key = this.keyFunction.applyAsLong(data);
+
+            while ( slot <= size )
+            {
+                boolean less = ( this.keys[slot] < key );
+                retVal = ( less ? slot : retVal );
+                slot = ( ( 2 * slot ) + ( less ? 1 : 0 ) );
+            }
+        }
+        else
+        {
+            while ( slot <= size )
+            {
+                boolean less = ( this.compare((T) this.elements[slot], data) < 0 );
+                retVal = ( less ? slot : retVal );
+                slot = ( ( 2 * slot ) + ( less ? 1 : 0 ) );
+            }
+        }
+
+        return retVal;
+    }
+
+    // Return the elements in order as a list.
+    @SuppressWarnings("unchecked")
+    public final List<T> list()
+    {
+        List<T> queue = new LinkedList<T>();
+
+        for ( int slot = this.firstSlot(); slot != 0; slot = FrozenTree.nextSlot(slot, this.getSize()) )
+        {
+            queue.add((T) this.elements[slot]);
+        }
+
+        return queue;
+    }
+
+    // Return the slot of the least element not less than the given one, or 0 if there is none.
+    @SuppressWarnings("unchecked")
+    private int lowerBound(final T data)
+    {
+        int size = this.getSize();
+        int slot = 1;
+
+        // Go right past every element less than the one sought. The slot then runs off the bottom of the layout, and the last left turn is the answer.
+        if ( this.keys != null )
+        {
+            long key = this.keyFunction.applyAsLong(data);
+
+            while ( slot <= size )
+            {
+                slot = ( ( 2 * slot ) + ( ( this.keys[slot] < key ) ? 1 : 0 ) );
+            }
+        }
+        else
+        {
+            while ( slot <= size )
+            {
+                slot = ( ( 2 * slot ) + ( ( this.compare((T) this.elements[slot], data) < 0 ) ? 1 : 0 ) );
+            }
+        }
+
+        return ( slot >>> ( Integer.numberOfTrailingZeros(~slot) + 1 ) );
+    }
+
+    // Does the slot hold an element equal to the given one?
+    @SuppressWarnings("unchecked")
+    private boolean matches(final int slot, final T data)
+    {
+        if ( slot == 0 ) { return false; }
+
+        if ( this.keys != null ) { return ( this.keys[slot] == this.keyFunction.applyAsLong(data) ); }
+
+        return ( this.compare((T) this.elements[slot], data) == 0 );
+    }
+}
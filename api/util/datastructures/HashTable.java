@@ -2,77 +2,370 @@
  * Title: HashTable
  * Author: Matthew Boyette
  * Date: 6/19/2013
- * 
+ *
  * A specialized hash table data structure designed to allow a comparative analysis between Linear probing and Quadratic probing.
+ * A third mode, Robin Hood probing, uses the linear probe sequence but lets an insertion take the slot of any element closer to its home slot, which bounds the variance of probe lengths.
+ *
+ * A growable table doubles its capacity, up to MAXIMUM_CAPACITY, whenever an insertion would push it past the load factor.
+ * The elements of the previous array are migrated a few slots at a time by each subsequent operation, so no single operation pays for a full copy.
+ * Its load factor must be below 1, and at most 0.5 under quadratic probing of prime capacities, whose probe sequences only reach half of the slots.
+ * An insertion whose probe sequence still finds no free slot grows the table and tries again.
+ *
+ * Deleted elements leave a tombstone behind in the Linear and Quadratic modes, so that the probe sequences of other elements remain intact.
+ * Tombstones are purged by rebuilding the array once they make up too much of it. Robin Hood mode instead shifts the following elements back into the hole.
+ *
+ * Probe lengths, resizes, and the time spent migrating elements are accumulated by a TableMetricsRecorder; see getMetrics().
+ *
+ * Capacities are prime by default. Under SizingPolicy.POWER_OF_TWO they are powers of two instead, every element is indexed by its mixed hashCode() and a bit mask,
+ * and quadratic probing follows triangular numbers; see SizingPolicy.
+ *
+ * The elements can be traversed by an Iterator, a Spliterator, or a stream which read the slot array in place. One created during a rehash reads the previous
+ * array and then the current one, without completing the rehash. While it remains valid, lookups search both arrays but leave elements where they are, so no
+ * element is seen twice or missed. They are fail-fast: any insertion, deletion, or rehash makes them throw ConcurrentModificationException.
+ *
+ * enableBloomFilter() puts a BloomFilter of the elements' hash codes in front of the slot array, so that most finds and deletes of absent elements make no probes.
+ * Every rehash starts a new filter, which the migrated elements are added to; the previous filter is consulted until the migration is complete.
  */
 
 package api.util.datastructures;
 
 import java.lang.reflect.Array;
-import api.util.Mathematics;
-
-public class HashTable<T>
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class HashTable<T> implements Iterable<T>
 {
-    private int      currentSize          = 0;
-    private T[]      hashArray            = null;
-    private double   loadFactor           = 0.0;
-    private int      maximumSize          = 0;
-    private boolean  probeIsLinear        = false;
-    private Class<T> storageType          = null;
-    private int      totalProbeLenFailure = 0;
-    private int      totalProbeLenSuccess = 0;
-
-    @SuppressWarnings({"unchecked"})
+    public static enum ProbeMode
+    {
+        LINEAR, QUADRATIC, ROBIN_HOOD
+    }
+
+    // One generation of the open-addressing array. While a rehash is in progress the table holds two generations.
+    private static final class Slots<T>
+    {
+        private final T[]       data;
+        private final int[]     distances;        // Distance of each element from its home slot; only kept in Robin Hood mode.
+        private final int       size;
+        private final boolean[] vacated;          // Deleted or already migrated slots. Probe sequences pass through them, but they never match.
+        private int             vacatedCount = 0;
+
+        @SuppressWarnings({"unchecked"})
+        private Slots(final Class<T> type, final int size, final boolean keepDistances)
+        {
+            this.data = (T[]) Array.newInstance(type, size);
+            this.distances = ( keepDistances ? new int[size] : null );
+            this.size = size;
+            this.vacated = new boolean[size];
+        }
+
+        private boolean isLive(final int index)
+        {
+            return ( ( this.data[index] != null ) && !this.vacated[index] );
+        }
+
+        private boolean wasOccupied(final int index)
+        {
+            return ( ( this.data[index] != null ) || this.vacated[index] );
+        }
+    }
+
+    // A fail-fast traversal of the live slots in the range [index, fence) of one slot array, followed by all of a second array if 'next' is not null.
+    private final class SlotSpliterator implements Spliterator<T>
+    {
+        private long      estimate;
+        private final int expectedModCount;
+        private int       fence;
+        private int       index;
+        private Slots<T>  next;     // The array to traverse after this one, or null.
+        private Slots<T>  slots;
+
+        private SlotSpliterator(final Slots<T> slots, final int index, final int fence, final long estimate, final Slots<T> next)
+        {
+            this.estimate = estimate;
+            this.expectedModCount = HashTable.this.modCount;
+            this.fence = fence;
+            this.index = index;
+            this.next = next;
+            this.slots = slots;
+        }
+
+        // Move on to the second array. Return false if there is none.
+        private boolean advanceArray()
+        {
+            if ( this.next == null ) { return false; }
+
+            this.slots = this.next;
+            this.next = null;
+            this.index = 0;
+            this.fence = this.slots.size;
+            return true;
+        }
+
+        private void checkForComodification()
+        {
+            if ( HashTable.this.modCount != this.expectedModCount ) { throw new ConcurrentModificationException(); }
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return Spliterator.NONNULL;
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            return this.estimate;
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super T> action)
+        {
+            do
+            {
+                for ( ; this.index < this.fence; this.index++ )
+                {
+                    if ( this.slots.isLive(this.index) )
+                    {
+                        action.accept(this.slots.data[this.index]);
+                    }
+                }
+            }
+            while ( this.advanceArray() );
+
+            this.checkForComodification();
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> action)
+        {
+            this.checkForComodification();
+
+            do
+            {
+                while ( this.index < this.fence )
+                {
+                    int i = this.index++;
+
+                    if ( this.slots.isLive(i) )
+                    {
+                        action.accept(this.slots.data[i]);
+                        return true;
+                    }
+                }
+            }
+            while ( this.advanceArray() );
+
+            return false;
+        }
+
+        @Override
+        public Spliterator<T> trySplit()
+        {
+            if ( this.next != null )
+            {
+                // Hand off the rest of the first array and keep the second.
+                this.estimate >>>= 1;
+                SlotSpliterator prefix = new SlotSpliterator(this.slots, this.index, this.fence, this.estimate, null);
+                this.advanceArray();
+                return prefix;
+            }
+
+            int lo = this.index;
+            int mid = ( lo + this.fence ) >>> 1;
+
+            if ( lo >= mid ) { return null; }
+
+            this.index = mid;
+            this.estimate >>>= 1;
+            return new SlotSpliterator(this.slots, lo, mid, this.estimate, null);
+        }
+    }
+
+    public static final int MAXIMUM_CAPACITY = SizingPolicy.MAXIMUM_POWER_OF_TWO; // The capacity at which a growable table stops growing.
+
+    private BloomFilter                bloomFilter             = null;  // Prefilter for searches of absent elements, or null if disabled.
+    private double                     bloomFpr                = 0.0;   // The false-positive rate the filter is built for.
+    private int                        currentSize             = 0;
+    private boolean                    isGrowable              = false;
+    private int                        lastProbeLen            = 0;     // Probe length of the most recent search().
+    private double                     loadFactor              = 0.0;
+    private int                        maximumSize             = 0;
+    private final TableMetricsRecorder metrics                 = new TableMetricsRecorder();
+    private int                        modCount                = 0;     // Number of structural modifications, checked by fail-fast cursors.
+    private BloomFilter                oldBloom                = null;  // The filter of the previous array while a rehash is in progress.
+    private Slots<T>                   oldSlots                = null;  // The previous array while a rehash is in progress.
+    private ProbeMode                  probeMode               = null;
+    private int                        rehashIndex             = 0;     // The next slot of the previous array to migrate.
+    private int                        rehashSlotsPerOperation = 0;
+    private SizingPolicy               sizingPolicy            = null;
+    private Slots<T>                   slots                   = null;
+    private Class<T>                   storageType             = null;
+    private int                        traversalModCount       = -1;    // The modCount when a traversal last began during a rehash.
+
     public HashTable(final Class<T> type, final double loadFactor, final boolean useLinearProbe, final int fillSize)
     {
+        this(type, loadFactor, useLinearProbe, fillSize, false);
+    }
+
+    public HashTable(final Class<T> type, final double loadFactor, final boolean useLinearProbe, final int fillSize, final boolean growable)
+    {
+        this(type, loadFactor, ( useLinearProbe ? ProbeMode.LINEAR : ProbeMode.QUADRATIC ), fillSize, growable);
+    }
+
+    public HashTable(final Class<T> type, final double loadFactor, final ProbeMode probeMode, final int fillSize, final boolean growable)
+    {
+        this(type, loadFactor, probeMode, fillSize, growable, SizingPolicy.PRIME);
+    }
+
+    public HashTable(final Class<T> type, final double loadFactor, final ProbeMode probeMode, final int fillSize, final boolean growable, final SizingPolicy sizingPolicy)
+    {
+        if ( !( loadFactor > 0.0 ) || ( loadFactor > 1.0 ) ) { throw new IllegalArgumentException("The load factor must be in (0, 1]."); }
+
+        // A growable table must keep a free slot in reach of every probe sequence. Quadratic probing of a prime capacity only visits half of the slots.
+        if ( growable && ( loadFactor >= 1.0 ) ) { throw new IllegalArgumentException("The load factor of a growable table must be below 1."); }
+
+        if ( growable && ( probeMode == ProbeMode.QUADRATIC ) && ( sizingPolicy == SizingPolicy.PRIME ) && ( loadFactor > 0.5 ) )
+        {
+            throw new IllegalArgumentException("The load factor of a growable table probed quadratically at prime capacities must be at most 0.5.");
+        }
+
         this.currentSize = 0;
+        this.isGrowable = growable;
         this.loadFactor = loadFactor;
-        this.probeIsLinear = useLinearProbe;
+        this.probeMode = probeMode;
+        this.sizingPolicy = sizingPolicy;
         this.storageType = type;
         this.setMaximumSize((int) ( Math.ceil(fillSize / this.getLoadFactor()) ));
-        this.hashArray = (T[]) Array.newInstance(this.storageType, this.getMaximumSize());
+        this.slots = new Slots<T>(this.storageType, this.getMaximumSize(), this.isProbeRobinHood());
+
+        // Each insertion into a freshly doubled table leaves room for at least (loadFactor * oldMaximumSize) more insertions before the next growth.
+        // Migrating ceil(2 / loadFactor) slots per operation therefore always drains the previous array before it is needed again.
+        this.rehashSlotsPerOperation = Math.max(4, (int) Math.ceil(2 / this.getLoadFactor()));
     }
 
-    public int find(final T data)
+    // Add the hash code of every live element of one array to the filter.
+    private void addToBloomFilter(final Slots<T> slots)
     {
-        if ( this.isEmpty() ) { return -1; }
+        for ( int i = 0; i < slots.size; i++ )
+        {
+            if ( slots.isLive(i) )
+            {
+                this.bloomFilter.add(slots.data[i].hashCode());
+            }
+        }
+    }
 
-        int retVal = this.hash(data);
-        int quadStep = 0;
-        int probeLen = 1;
+    // Remove one occurrence of 'data' from the table. Returns true if an element was removed.
+    public boolean delete(final T data)
+    {
+        if ( this.isEmpty() || ( data == null ) ) { return false; }
 
-        if ( retVal < 0 ) { return retVal; }
+        this.rehashStep();
+
+        if ( !this.mightContain(data) ) { return false; }
+
+        int index = this.search(this.slots, data);
 
-        while ( ( this.wasIndexOccupiedPreviously(retVal) ) && ( data.equals(this.hashArray[retVal]) == false ) )
+        if ( index >= 0 )
         {
-            if ( this.isProbeLinear() )
-            {
-                retVal++;
-            }
-            else
-            {
-                quadStep++;
-                retVal = (int) ( retVal + Math.pow(quadStep, 2) );
-            }
+            this.vacate(this.slots, index);
+        }
+        else if ( this.isRehashing() )
+        {
+            index = this.search(this.oldSlots, data);
 
-            if ( retVal >= this.getMaximumSize() )
+            if ( index >= 0 )
             {
-                retVal %= this.getMaximumSize();
+                // The previous array is never inserted into again, so a tombstone is always safe there.
+                this.oldSlots.data[index] = null;
+                this.oldSlots.vacated[index] = true;
+                this.oldSlots.vacatedCount++;
             }
+        }
 
-            probeLen++;
+        if ( index < 0 ) { return false; }
+
+        this.currentSize--;
+        this.metrics.recordLoad(this.currentSize, this.maximumSize);
+        this.modCount++;
+
+        if ( !this.isGrowable() && ( this.slots.vacatedCount > ( this.getMaximumSize() / 4 ) ) )
+        {
+            // A fixed-size table is rebuilt at the same capacity once tombstones fill a quarter of it.
+            this.rehash(this.getMaximumSize());
+        }
+
+        return true;
+    }
+
+    // Stop filtering searches.
+    public void disableBloomFilter()
+    {
+        this.bloomFilter = null;
+        this.bloomFpr = 0.0;
+        this.oldBloom = null;
+    }
+
+    // Filter searches through a BloomFilter built for the given false-positive rate, such as 0.01. The filter is sized for a full table.
+    public void enableBloomFilter(final double falsePositiveRate)
+    {
+        this.bloomFilter = new BloomFilter((long) ( this.getLoadFactor() * this.getMaximumSize() ), falsePositiveRate);
+        this.bloomFpr = falsePositiveRate;
+        this.oldBloom = null;
+
+        this.addToBloomFilter(this.slots);
+
+        if ( this.isRehashing() )
+        {
+            this.addToBloomFilter(this.oldSlots);
+        }
+    }
+
+    public int find(final T data)
+    {
+        if ( this.isEmpty() ) { return -1; }
+
+        int retVal = this.hash(data);
+
+        if ( retVal < 0 ) { return retVal; }
+
+        boolean migrating = !this.isTraversalPending();
+
+        if ( migrating )
+        {
+            this.rehashStep();
         }
 
-        if ( this.hashArray[retVal] == null )
+        if ( !this.mightContain(data) )
         {
-            retVal = -1;
-            this.totalProbeLenFailure += probeLen;
+            this.metrics.recordProbe(0, false);
+            return -1;
         }
-        else
+
+        int probeLen = 0;
+        retVal = this.search(this.slots, data);
+        probeLen += this.lastProbeLen;
+
+        if ( ( retVal < 0 ) && this.isRehashing() )
         {
-            this.totalProbeLenSuccess += probeLen;
+            // The element may not have been migrated yet. If it is found in the previous array, move it now so the returned index refers to the current array.
+            // While a traversal is pending the element stays put, and the index returned is its index in the previous array.
+            int oldIndex = this.search(this.oldSlots, data);
+            probeLen += this.lastProbeLen;
+
+            if ( oldIndex >= 0 )
+            {
+                retVal = ( migrating ? this.migrate(oldIndex) : oldIndex );
+            }
         }
 
+        this.metrics.recordProbe(probeLen, ( retVal >= 0 ));
         return retVal;
     }
 
@@ -91,17 +384,38 @@ public class HashTable<T>
         return this.maximumSize;
     }
 
-    public int getTotalProbeLenFailure()
+    // Return a consistent snapshot of the probe-length histogram, load, and resize statistics. Safe to call from a monitoring thread.
+    public TableMetrics getMetrics()
+    {
+        return this.metrics.snapshot();
+    }
+
+    public ProbeMode getProbeMode()
+    {
+        return this.probeMode;
+    }
+
+    public SizingPolicy getSizingPolicy()
     {
-        return this.totalProbeLenFailure;
+        return this.sizingPolicy;
     }
 
-    public int getTotalProbeLenSuccess()
+    public long getTotalProbeLenFailure()
     {
-        return this.totalProbeLenSuccess;
+        return this.metrics.getTotalProbeLenFailure();
+    }
+
+    public long getTotalProbeLenSuccess()
+    {
+        return this.metrics.getTotalProbeLenSuccess();
     }
 
     public int hash(final T data)
+    {
+        return this.hash(data, this.getMaximumSize());
+    }
+
+    private int hash(final T data, final int size)
     {
         int hashVal = 0;
 
@@ -109,6 +423,10 @@ public class HashTable<T>
         {
             hashVal = -1;
         }
+        else if ( this.getSizingPolicy() != SizingPolicy.PRIME )
+        {
+            hashVal = this.getSizingPolicy().indexFor(data.hashCode(), size);
+        }
         else
         {
             if ( data instanceof String )
@@ -120,7 +438,8 @@ public class HashTable<T>
                     // Take the integer value at the current character index, invert its bits (take one's complement), and store the absolute value as seedVal.
                     int seedVal = Math.abs( ~( (int) ( s.charAt(i) ) ));
                     // The hash is equal to the remainder of the hashTable size divided by the hash multiplied by 256 and added to seedVal.
-                    hashVal = ( ( hashVal * 256 ) + seedVal ) % this.getMaximumSize();
+                    // The product is taken in long arithmetic: hashVal is below size, which a growable table lets reach 2^30, so 256 * hashVal can exceed an int.
+                    hashVal = (int) ( ( ( hashVal * 256L ) + seedVal ) % size );
                 }
             }
             else if ( data instanceof Integer )
@@ -132,12 +451,12 @@ public class HashTable<T>
                     // Take the integer value at the current digit index, invert its bits (take one's complement), and store the absolute value as seedVal.
                     int seedVal = Math.abs( ~( Integer.parseInt(s.substring(i, i + 1)) ));
                     // The hash is equal to the remainder of the hashTable size divided by the hash multiplied by 10 and added to seedVal.
-                    hashVal = ( ( hashVal * 10 ) + seedVal ) % this.getMaximumSize();
+                    hashVal = (int) ( ( ( hashVal * 10L ) + seedVal ) % size );
                 }
             }
             else
             {
-                hashVal = data.hashCode();
+                hashVal = ( ( data.hashCode() & 0x7FFFFFFF ) % size );
             }
         }
 
@@ -146,72 +465,337 @@ public class HashTable<T>
 
     public int insert(final T data)
     {
-        if ( this.getCurrentSize() >= this.maximumSize ) { return -1; }
-
-        int step = 0;
         int hashVal = this.hash(data);
 
         if ( hashVal < 0 ) { return hashVal; }
 
-        while ( this.isIndexOccupied(hashVal) )
+        if ( this.isGrowable() && ( ( this.getCurrentSize() + this.slots.vacatedCount + 1 ) > ( this.getLoadFactor() * this.getMaximumSize() ) ) )
         {
-            if ( this.isProbeLinear() )
-            {
-                hashVal++;
-            }
-            else
+            // Grow only as far as the live elements require. When most of the load is tombstones this rebuilds at the same capacity.
+            // Growth stops at MAXIMUM_CAPACITY, past which the table fills beyond its load factor until it is full.
+            long capacity = (long) Math.ceil(( 2.0 * ( this.getCurrentSize() + 1 ) ) / this.getLoadFactor());
+
+            if ( ( capacity <= this.getMaximumSize() ) || ( this.getMaximumSize() < HashTable.MAXIMUM_CAPACITY ) )
             {
-                step++;
-                hashVal = (int) ( hashVal + Math.pow(step, 2) );
+                this.rehash((int) Math.min(Math.max(this.getMaximumSize(), capacity), HashTable.MAXIMUM_CAPACITY));
             }
+        }
+
+        this.rehashStep();
+
+        if ( this.getCurrentSize() >= this.getMaximumSize() ) { return -1; }
+
+        hashVal = this.place(this.slots, data);
 
-            if ( hashVal >= this.getMaximumSize() )
+        // The probe sequence can miss every free slot before the load factor is reached; a growable table then grows and tries again.
+        while ( ( hashVal < 0 ) && this.isGrowable() && ( this.getMaximumSize() < HashTable.MAXIMUM_CAPACITY ) )
+        {
+            this.rehash((int) Math.min(2L * this.getMaximumSize(), HashTable.MAXIMUM_CAPACITY));
+            this.rehashStep();
+            hashVal = this.place(this.slots, data);
+        }
+
+        if ( hashVal >= 0 )
+        {
+            this.currentSize++;
+            this.metrics.recordLoad(this.currentSize, this.maximumSize);
+            this.modCount++;
+
+            if ( this.bloomFilter != null )
             {
-                hashVal %= this.getMaximumSize();
+                this.bloomFilter.add(data.hashCode());
             }
         }
 
-        this.hashArray[hashVal] = data;
-        this.currentSize++;
         return hashVal;
     }
 
+    public boolean isBloomFiltered()
+    {
+        return ( this.bloomFilter != null );
+    }
+
     public boolean isEmpty()
     {
         return ( this.getCurrentSize() <= 0 );
     }
 
-    private boolean isIndexOccupied(final int index)
+    public boolean isGrowable()
+    {
+        return this.isGrowable;
+    }
+
+    // Robin Hood probing follows the linear probe sequence.
+    public boolean isProbeLinear()
+    {
+        return ( this.getProbeMode() != ProbeMode.QUADRATIC );
+    }
+
+    public boolean isProbeRobinHood()
+    {
+        return ( this.getProbeMode() == ProbeMode.ROBIN_HOOD );
+    }
+
+    public boolean isRehashing()
     {
-        boolean retVal = true;
+        return ( this.oldSlots != null );
+    }
+
+    // Return a fail-fast cursor over the elements, which reads the slot array in place.
+    // Is a traversal which began during the current rehash still valid? Lookups must not migrate elements under it.
+    private boolean isTraversalPending()
+    {
+        return ( this.isRehashing() && ( this.traversalModCount == this.modCount ) );
+    }
 
-        if ( ( this.hashArray[index] == null ) || ( this.hashArray[index].equals(0) ) || ( this.hashArray[index].equals("") ) )
+    @Override
+    public Iterator<T> iterator()
+    {
+        return Spliterators.iterator(this.spliterator());
+    }
+
+    // Move the element at the given slot of the previous array into the current array, returning its new index.
+    // The current array is at least as large and no fuller than the load factor, so its probe sequences always reach a free slot; if one does not,
+    // the element is left where it is rather than dropped.
+    private int migrate(final int oldIndex)
+    {
+        T data = this.oldSlots.data[oldIndex];
+        int newIndex = this.place(this.slots, data);
+
+        if ( newIndex < 0 ) { throw new IllegalStateException("No free slot was found for a migrating element."); }
+
+        this.oldSlots.data[oldIndex] = null;
+        this.oldSlots.vacated[oldIndex] = true;
+        this.oldSlots.vacatedCount++;
+
+        if ( this.bloomFilter != null )
         {
-            retVal = false;
+            this.bloomFilter.add(data.hashCode());
         }
 
-        return retVal;
+        return newIndex;
     }
 
-    public boolean isProbeLinear()
+    // Might 'data' be in the table? Always true when no filter is enabled.
+    private boolean mightContain(final T data)
+    {
+        if ( this.bloomFilter == null ) { return true; }
+
+        int hashCode = data.hashCode();
+        return ( this.bloomFilter.mightContain(hashCode) || ( ( this.oldBloom != null ) && this.oldBloom.mightContain(hashCode) ) );
+    }
+
+    // Return the next index in the probe sequence, where 'step' is the number of probes already made.
+    private int nextProbe(final int index, final int step, final int size)
+    {
+        return this.getSizingPolicy().nextProbe(index, step, size, this.isProbeLinear());
+    }
+
+    // Store 'data' in the first free slot of its probe sequence, returning the index used or -1 if the probe sequence is exhausted.
+    // Tombstones count as free slots.
+    private int place(final Slots<T> slots, final T data)
+    {
+        if ( this.isProbeRobinHood() ) { return this.placeRobinHood(slots, data); }
+
+        int index = this.hash(data, slots.size);
+        int probeLen = 1;
+
+        while ( slots.isLive(index) )
+        {
+            if ( probeLen >= slots.size ) { return -1; }
+
+            index = this.nextProbe(index, probeLen, slots.size);
+            probeLen++;
+        }
+
+        if ( slots.vacated[index] )
+        {
+            slots.vacated[index] = false;
+            slots.vacatedCount--;
+        }
+
+        slots.data[index] = data;
+        return index;
+    }
+
+    // Insert by Robin Hood hashing: whenever the element being carried is further from home than the resident of a slot, they swap places.
+    private int placeRobinHood(final Slots<T> slots, final T data)
+    {
+        T carried = data;
+        int distance = 0;
+        int index = this.hash(data, slots.size);
+        int retVal = -1;
+
+        for ( int probeLen = 1; probeLen <= slots.size; probeLen++ )
+        {
+            if ( slots.data[index] == null )
+            {
+                slots.data[index] = carried;
+                slots.distances[index] = distance;
+                return ( ( retVal < 0 ) ? index : retVal );
+            }
+
+            if ( slots.distances[index] < distance )
+            {
+                T resident = slots.data[index];
+                int residentDistance = slots.distances[index];
+                slots.data[index] = carried;
+                slots.distances[index] = distance;
+                carried = resident;
+                distance = residentDistance;
+
+                if ( retVal < 0 )
+                {
+                    retVal = index;
+                }
+            }
+
+            index = this.nextProbe(index, probeLen, slots.size);
+            distance++;
+        }
+
+        return -1;
+    }
+
+    // Start migrating every element into a new array of (at least) the given capacity. The migration itself is performed incrementally by rehashStep().
+    private void rehash(final int capacity)
+    {
+        if ( this.isRehashing() )
+        {
+            // Only reachable when rebuilds outpace migration, which the choice of rehashSlotsPerOperation prevents; finish the old migration first.
+            while ( this.isRehashing() )
+            {
+                this.rehashStep();
+            }
+        }
+
+        long startTime = System.nanoTime();
+        this.modCount++;
+        this.oldSlots = this.slots;
+        this.rehashIndex = 0;
+        this.metrics.beginUpdate();
+
+        try
+        {
+            this.setMaximumSize(capacity);
+            this.slots = new Slots<T>(this.storageType, this.getMaximumSize(), this.isProbeRobinHood());
+
+            // Elements are added to the new filter as they are migrated, so a rebuild also sheds the bits of deleted elements.
+            if ( this.bloomFilter != null )
+            {
+                this.oldBloom = this.bloomFilter;
+                this.bloomFilter = new BloomFilter((long) ( this.getLoadFactor() * this.getMaximumSize() ), this.bloomFpr);
+            }
+
+            this.metrics.recordResize();
+            this.metrics.recordResizeTime(System.nanoTime() - startTime);
+        }
+        finally
+        {
+            this.metrics.endUpdate();
+        }
+    }
+
+    // Migrate a bounded number of slots from the previous array, releasing it once it has been drained.
+    private void rehashStep()
+    {
+        if ( !this.isRehashing() ) { return; }
+
+        long startTime = System.nanoTime();
+        int limit = Math.min(this.oldSlots.size, this.rehashIndex + this.rehashSlotsPerOperation);
+
+        for ( ; this.rehashIndex < limit; this.rehashIndex++ )
+        {
+            if ( this.oldSlots.isLive(this.rehashIndex) )
+            {
+                this.migrate(this.rehashIndex);
+            }
+        }
+
+        if ( this.rehashIndex >= this.oldSlots.size )
+        {
+            this.oldBloom = null;
+            this.oldSlots = null;
+            this.rehashIndex = 0;
+        }
+
+        this.metrics.recordResizeTime(System.nanoTime() - startTime);
+    }
+
+    // Search one array for 'data', returning its index or -1. The number of probes made is left in lastProbeLen.
+    private int search(final Slots<T> slots, final T data)
+    {
+        int index = this.hash(data, slots.size);
+        int probeLen = 1;
+
+        while ( slots.wasOccupied(index) )
+        {
+            // In Robin Hood mode the search can stop as soon as it passes an element closer to home than the sought element would be.
+            if ( this.isProbeRobinHood() && ( slots.distances[index] < ( probeLen - 1 ) ) ) { break; }
+
+            if ( !slots.vacated[index] && data.equals(slots.data[index]) )
+            {
+                this.lastProbeLen = probeLen;
+                return index;
+            }
+
+            if ( probeLen >= slots.size ) { break; }
+
+            index = this.nextProbe(index, probeLen, slots.size);
+            probeLen++;
+        }
+
+        this.lastProbeLen = probeLen;
+        return -1;
+    }
+
+    // Return a fail-fast Spliterator over the elements, which splits the slot array into ranges for parallel traversal.
+    // During a rehash it reads the remaining elements of the previous array before the current one, and migration waits until the next modification.
+    @Override
+    public Spliterator<T> spliterator()
     {
-        return this.probeIsLinear;
+        if ( !this.isRehashing() ) { return new SlotSpliterator(this.slots, 0, this.slots.size, this.getCurrentSize(), null); }
+
+        this.traversalModCount = this.modCount;
+        return new SlotSpliterator(this.oldSlots, 0, this.oldSlots.size, this.getCurrentSize(), this.slots);
+    }
+
+    // Return a stream of the elements, sequential or parallel, which reads the slot array in place.
+    public Stream<T> stream(final boolean parallel)
+    {
+        return StreamSupport.stream(this.spliterator(), parallel);
     }
 
     private void setMaximumSize(final int maximumSize)
     {
-        this.maximumSize = (int) Mathematics.makePrimeGreater(maximumSize);
+        this.maximumSize = this.getSizingPolicy().capacityAtLeast(maximumSize);
+        this.metrics.recordLoad(this.currentSize, this.maximumSize);
     }
 
-    private boolean wasIndexOccupiedPreviously(final int index)
+    // Remove the element at the given index of the current array.
+    private void vacate(final Slots<T> slots, final int index)
     {
-        boolean retVal = true;
+        if ( !this.isProbeRobinHood() )
+        {
+            slots.data[index] = null;
+            slots.vacated[index] = true;
+            slots.vacatedCount++;
+            return;
+        }
 
-        if ( this.hashArray[index] == null )
+        // Backward-shift deletion: pull each following element that is away from home one slot closer, until an empty slot or an element already at home.
+        int hole = index;
+        int next = this.nextProbe(hole, 1, slots.size);
+
+        while ( ( slots.data[next] != null ) && ( slots.distances[next] > 0 ) )
         {
-            retVal = false;
+            slots.data[hole] = slots.data[next];
+            slots.distances[hole] = slots.distances[next] - 1;
+            hole = next;
+            next = this.nextProbe(next, 1, slots.size);
         }
 
-        return retVal;
+        slots.data[hole] = null;
+        slots.distances[hole] = 0;
     }
 }
@@ -29,6 +29,13 @@ public class HuffmanNode<T> extends TreeNode<T> implements Comparable<HuffmanNod
         return this.count;
     }
 
+    @Override
+    public void recycle()
+    {
+        super.recycle();
+        this.setCount(0);
+    }
+
     public final void setCount(final int count)
     {
         this.count = count;
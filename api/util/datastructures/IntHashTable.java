@@ -0,0 +1,59 @@
+/*
+ * Title: IntHashTable
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ * 
+ * An open-addressing hash set of int keys stored in a flat primitive array.
+ * It offers the same choice between Linear probing and Quadratic probing as HashTable, but never boxes a key and never allocates on insert or find.
+ */
+
+package api.util.datastructures;
+
+public class IntHashTable extends PrimitiveHashTable
+{
+    private int[] keys = null;
+
+    public IntHashTable(final double loadFactor, final boolean useLinearProbe, final int fillSize)
+    {
+        super(loadFactor, useLinearProbe, fillSize);
+        this.keys = new int[this.getMaximumSize()];
+    }
+
+    public final boolean contains(final int key)
+    {
+        return ( this.find(key) >= 0 );
+    }
+
+    public final int find(final int key)
+    {
+        return this.findIndex(key, this.hash(key));
+    }
+
+    public final int getKey(final int index)
+    {
+        return this.keys[index];
+    }
+
+    public final int hash(final int key)
+    {
+        return this.indexFor(key);
+    }
+
+    // Insert the key if it is not already present. Returns the index of the key, or -1 if no free slot could be found.
+    public final int insert(final int key)
+    {
+        int index = this.insertIndex(key, this.hash(key));
+
+        if ( ( index < 0 ) || this.isIndexOccupied(index) ) { return index; }
+
+        this.keys[index] = key;
+        this.markOccupied(index);
+        return index;
+    }
+
+    @Override
+    protected final boolean keyEquals(final int index, final long key)
+    {
+        return ( this.keys[index] == key );
+    }
+}
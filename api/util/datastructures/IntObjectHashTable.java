@@ -0,0 +1,82 @@
+/*
+ * Title: IntObjectHashTable
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ * 
+ * An open-addressing hash table which maps int keys to object values using flat parallel arrays.
+ * It offers the same choice between Linear probing and Quadratic probing as HashTable, but never boxes a key and never allocates on put or get.
+ */
+
+package api.util.datastructures;
+
+public class IntObjectHashTable<V> extends PrimitiveHashTable
+{
+    private int[]    keys   = null;
+    private Object[] values = null;
+
+    public IntObjectHashTable(final double loadFactor, final boolean useLinearProbe, final int fillSize)
+    {
+        super(loadFactor, useLinearProbe, fillSize);
+        this.keys = new int[this.getMaximumSize()];
+        this.values = new Object[this.getMaximumSize()];
+    }
+
+    public final boolean contains(final int key)
+    {
+        return ( this.find(key) >= 0 );
+    }
+
+    public final int find(final int key)
+    {
+        return this.findIndex(key, this.hash(key));
+    }
+
+    // Return value associated with key, null if no such key.
+    public final V get(final int key)
+    {
+        int index = this.find(key);
+
+        if ( index < 0 ) { return null; }
+
+        return this.getValue(index);
+    }
+
+    public final int getKey(final int index)
+    {
+        return this.keys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public final V getValue(final int index)
+    {
+        return (V) this.values[index];
+    }
+
+    public final int hash(final int key)
+    {
+        return this.indexFor(key);
+    }
+
+    @Override
+    protected final boolean keyEquals(final int index, final long key)
+    {
+        return ( this.keys[index] == key );
+    }
+
+    // Insert the key-value pair, replacing the value if the key is already present. Returns the index of the key, or -1 if no free slot could be found.
+    public final int put(final int key, final V value)
+    {
+        int index = this.insertIndex(key, this.hash(key));
+
+        if ( index < 0 ) { return -1; }
+
+        if ( !this.isIndexOccupied(index) )
+        {
+            this.keys[index] = key;
+            this.markOccupied(index);
+        }
+
+        this.values[index] = value;
+        return index;
+    }
+}
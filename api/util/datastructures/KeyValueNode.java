@@ -62,6 +62,15 @@ public class KeyValueNode<K, V> extends Node
         return result;
     }
 
+    // The pair object is kept for reuse along with the node.
+    @Override
+    public void recycle()
+    {
+        super.recycle();
+        this.setKey(null);
+        this.setValue(null);
+    }
+
     public final void setKey(final K key)
     {
         this.getKeyValuePair().setKey(key);
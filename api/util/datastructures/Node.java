@@ -49,6 +49,13 @@ public abstract class Node
         return System.identityHashCode(this);
     }
 
+    // Drop this node's links and payload, so that a NodePool can reuse it without keeping anything reachable. Subclasses clear their own fields as well.
+    public void recycle()
+    {
+        this.setNext(null);
+        this.setPrevious(null);
+    }
+
     public final void setNext(final Node next)
     {
         this.next = next;
@@ -0,0 +1,109 @@
+/*
+ * Title: NodePool
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * A free list of recycled nodes, which the list, chain, and tree structures can draw on instead of allocating a node for every insertion.
+ *
+ * A released node is stripped of its links and payload by Node.recycle(), so the pool never keeps an element reachable, and it is threaded onto the free
+ * list through its own next link, so releasing allocates nothing either. Once the free list holds as many nodes as the structure's steady-state churn
+ * needs, insertions and deletions produce no garbage. At most 'capacity' nodes are kept; any more are left to the garbage collector.
+ *
+ * A pool made by the constructor has a single free list and must only be used by one thread at a time, though it may be shared by several structures
+ * confined to that thread. A pool made by threadLocal() keeps a separate free list for each thread, so structures used by different threads can share it.
+ *
+ * Structures only recycle nodes which they created themselves, and only when they delete them. A caller which keeps a reference to a node of a pooled
+ * structure, or to the KeyValuePair of a pooled KeyValueNode, must not use it after the element has been deleted.
+ */
+
+package api.util.datastructures;
+
+public final class NodePool<N extends Node>
+{
+    // The nodes available for reuse, chained through their next links.
+    private static final class FreeList
+    {
+        private int  size = 0;
+        private Node top  = null;
+    }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int                   capacity;
+    private final ThreadLocal<FreeList> perThread; // Per-thread free lists, or null if there is a single one.
+    private final FreeList              shared;    // The free list, or null if each thread has its own.
+
+    // Create a pool for use by one thread at a time, keeping up to DEFAULT_CAPACITY nodes.
+    public NodePool()
+    {
+        this(NodePool.DEFAULT_CAPACITY);
+    }
+
+    // Create a pool for use by one thread at a time, keeping up to 'capacity' nodes.
+    public NodePool(final int capacity)
+    {
+        this(capacity, false);
+    }
+
+    private NodePool(final int capacity, final boolean isThreadLocal)
+    {
+        this.capacity = capacity;
+        this.shared = ( isThreadLocal ? null : new FreeList() );
+        this.perThread = ( isThreadLocal ? ThreadLocal.withInitial(FreeList::new) : null );
+    }
+
+    // Create a pool which keeps up to 'capacity' nodes for each thread which uses it.
+    public static final <N extends Node> NodePool<N> threadLocal(final int capacity)
+    {
+        return new NodePool<N>(capacity, true);
+    }
+
+    // Return a recycled node, or null if there is none; the caller then allocates one itself. The node has no links and no payload.
+    @SuppressWarnings("unchecked")
+    public final N acquire()
+    {
+        FreeList free = this.freeList();
+        Node node = free.top;
+
+        if ( node == null ) { return null; }
+
+        free.top = node.getNext();
+        free.size--;
+        node.setNext(null);
+        return (N) node;
+    }
+
+    private FreeList freeList()
+    {
+        return ( ( this.shared != null ) ? this.shared : this.perThread.get() );
+    }
+
+    public final int getCapacity()
+    {
+        return this.capacity;
+    }
+
+    // Return the number of nodes available to the calling thread.
+    public final int getSize()
+    {
+        return this.freeList().size;
+    }
+
+    public final boolean isThreadLocal()
+    {
+        return ( this.perThread != null );
+    }
+
+    // Clear a node which its structure no longer references and keep it for reuse, unless the pool is full.
+    public final void release(final N node)
+    {
+        node.recycle();
+        FreeList free = this.freeList();
+
+        if ( free.size >= this.capacity ) { return; }
+
+        node.setNext(free.top);
+        free.top = node;
+        free.size++;
+    }
+}
@@ -0,0 +1,818 @@
+/*
+ * Title: OffHeapSymbolTable
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * A symbol table from String keys to int values whose contents live outside the Java heap, for key sets too large to keep as objects.
+ *
+ * Keys are encoded as UTF-8 and appended to an arena of direct ByteBuffers as a length-prefixed record. The index is an open-addressing table of fixed-size slots,
+ * also in direct ByteBuffers, holding a reference to the key record, the key's hash code, and the value. A table of any size therefore costs the heap only a handful
+ * of buffer objects, and the garbage collector never has to trace its entries.
+ *
+ * The index has a power-of-two capacity, is searched by Linear probing from SizingPolicy.POWER_OF_TWO's mixed hash, and doubles when it passes LOAD_FACTOR.
+ * Deletion shifts the following slots back instead of leaving tombstones. The key bytes of deleted entries stay in the arena until the next compaction,
+ * which happens when they outweigh the live key bytes.
+ *
+ * Direct buffers are limited by -XX:MaxDirectMemorySize, which defaults to the maximum heap size, so a table run with a deliberately small heap needs the flag
+ * raised to cover it: 16 bytes per slot of the index, whose capacity is 1.33 to 2.67 times the number of keys, plus the key bytes rounded up to
+ * ARENA_CHUNK_BYTES. An index of 2^20 slots or more grows in place by adding its new upper half, so growth never holds two copies of it; a smaller
+ * index is copied. Passing the expected size to the constructor avoids growth altogether. The buffers which a growth or a compaction replaces, and every buffer at close(), are freed at once where the JVM
+ * allows it, instead of when the garbage collector reclaims them. Any use after close() throws IllegalStateException. The table is not thread-safe.
+ *
+ * save() writes the index and the arena to a file as a versioned binary image, and open() memory-maps such a file, so that a large table can be reloaded
+ * without parsing or hashing a single key. Lookups run directly against the mapped pages, which the operating system reads in as they are touched.
+ * A table returned by open() is read-only. copyOf() converts a SeparateChainingSymbolTable<String, Integer> into an OffHeapSymbolTable that can be saved.
+ */
+
+package api.util.datastructures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class OffHeapSymbolTable implements Closeable
+{
+    // A fail-fast cursor over the keys, which decodes each key from the arena as it is reached.
+    private final class KeyIterator implements Iterator<String>
+    {
+        private final int expectedModCount = OffHeapSymbolTable.this.modCount;
+        private long      slot             = -1;   // The slot of the next key, or the capacity once there are no more.
+
+        private KeyIterator()
+        {
+            this.advance();
+        }
+
+        private void advance()
+        {
+            do
+            {
+                this.slot++;
+            }
+            while ( ( this.slot < OffHeapSymbolTable.this.capacity ) && ( OffHeapSymbolTable.this.getRef(this.slot) == 0 ) );
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return ( this.slot < OffHeapSymbolTable.this.capacity );
+        }
+
+        @Override
+        public String next()
+        {
+            if ( OffHeapSymbolTable.this.modCount != this.expectedModCount ) { throw new ConcurrentModificationException(); }
+
+            if ( !this.hasNext() ) { throw new NoSuchElementException(); }
+
+            String key = OffHeapSymbolTable.this.decodeKey(OffHeapSymbolTable.this.getRef(this.slot));
+            this.advance();
+            return key;
+        }
+    }
+
+    public static final int    ARENA_CHUNK_BYTES = ( 1 << 24 );
+    public static final double LOAD_FACTOR       = 0.75;
+    public static final int    MAXIMUM_CAPACITY  = ( 1 << 30 );
+
+    private static final int    IMAGE_HEADER_BYTES = 44;         // Fixed part of the image header, followed by one long per arena chunk.
+    private static final int    IMAGE_MAGIC        = 0x4F485354; // "OHST"
+    private static final int    IMAGE_VERSION      = 1;
+    private static final int    INDEX_PAGE_SHIFT   = 20;         // Each page of the index holds 2^20 slots.
+    private static final int    INDEX_PAGE_SLOTS   = ( 1 << OffHeapSymbolTable.INDEX_PAGE_SHIFT );
+    private static final Method INVOKE_CLEANER;                  // Unsafe.invokeCleaner(ByteBuffer) from Java 9 on, or null.
+    private static final int    SLOT_BYTES         = 16;         // Key reference (8 bytes), hash code (4 bytes), value (4 bytes).
+    private static final int    SLOT_HASH          = 8;
+    private static final int    SLOT_VALUE         = 12;
+    private static final Object UNSAFE;                          // The receiver of INVOKE_CLEANER.
+
+    static
+    {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+
+        try
+        {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        }
+        catch ( ReflectiveOperationException | RuntimeException e )
+        {
+            // Before Java 9, or where the JVM forbids it; free() falls back to the buffer's own cleaner.
+            invokeCleaner = null;
+            unsafe = null;
+        }
+
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    private List<ByteBuffer>           arena        = new ArrayList<ByteBuffer>(); // Chunks of length-prefixed UTF-8 key records.
+    private long                       capacity     = 0;                            // Number of slots in the index.
+    private boolean                    closed       = false;
+    private long                       curSize      = 0;                            // Number of key-value pairs.
+    private long                       garbageBytes = 0;                            // Bytes of arena held by deleted keys.
+    private ByteBuffer[]               index        = null;                         // Pages of slots. A slot whose key reference is 0 is empty.
+    private long                       keyBytes     = 0;                            // Bytes of arena held by live keys.
+    private final TableMetricsRecorder metrics      = new TableMetricsRecorder();
+    private int                        modCount     = 0;                            // Number of structural modifications, checked by fail-fast cursors.
+    private boolean                    readOnly     = false;                        // Is the table backed by a mapped snapshot?
+
+    // Create an off-heap symbol table sized for a small number of keys.
+    public OffHeapSymbolTable()
+    {
+        this(16);
+    }
+
+    // Create an off-heap symbol table sized to hold 'expectedSize' keys without growing.
+    public OffHeapSymbolTable(final long expectedSize)
+    {
+        this.index = this.allocateIndex(OffHeapSymbolTable.capacityFor(expectedSize));
+        this.capacity = this.slotCount(this.index);
+        this.metrics.recordLoad(this.curSize, this.capacity);
+    }
+
+    // Create a read-only table over buffers mapped from a snapshot.
+    private OffHeapSymbolTable(final ByteBuffer[] index, final List<ByteBuffer> arena, final long curSize, final long keyBytes)
+    {
+        this.arena = arena;
+        this.capacity = this.slotCount(index);
+        this.curSize = curSize;
+        this.index = index;
+        this.keyBytes = keyBytes;
+        this.metrics.recordLoad(this.curSize, this.capacity);
+        this.readOnly = true;
+    }
+
+    private ByteBuffer[] allocateIndex(final long slots)
+    {
+        int pageSlots = (int) Math.min(slots, OffHeapSymbolTable.INDEX_PAGE_SLOTS);
+        ByteBuffer[] pages = new ByteBuffer[(int) ( slots / pageSlots )];
+
+        for ( int i = 0; i < pages.length; i++ )
+        {
+            pages[i] = ByteBuffer.allocateDirect(pageSlots * OffHeapSymbolTable.SLOT_BYTES).order(ByteOrder.nativeOrder());
+        }
+
+        return pages;
+    }
+
+    // Append a key record to 'chunks', returning its reference: the chunk number plus one in the upper 32 bits and the offset in the lower 32 bits.
+    private static long appendKey(final List<ByteBuffer> chunks, final byte[] bytes)
+    {
+        int recordBytes = 4 + bytes.length;
+        ByteBuffer chunk = ( chunks.isEmpty() ? null : chunks.get(chunks.size() - 1) );
+
+        if ( ( chunk == null ) || ( chunk.remaining() < recordBytes ) )
+        {
+            chunk = ByteBuffer.allocateDirect(Math.max(OffHeapSymbolTable.ARENA_CHUNK_BYTES, recordBytes)).order(ByteOrder.nativeOrder());
+            chunks.add(chunk);
+        }
+
+        int offset = chunk.position();
+        chunk.putInt(bytes.length);
+        chunk.put(bytes);
+        return ( ( (long) chunks.size() << 32 ) | offset );
+    }
+
+    // Return the smallest power-of-two capacity which holds 'size' keys within the load factor.
+    private static long capacityFor(final long size)
+    {
+        long needed = (long) Math.ceil(Math.max(size, 1) / OffHeapSymbolTable.LOAD_FACTOR);
+
+        if ( needed > OffHeapSymbolTable.MAXIMUM_CAPACITY ) { throw new IllegalStateException("An off-heap symbol table cannot hold " + size + " keys."); }
+
+        return Math.max(16, Long.highestOneBit(( needed * 2 ) - 1));
+    }
+
+    // Release the off-heap buffers, freeing or unmapping them at once where the JVM allows it. The table cannot be used afterwards.
+    @Override
+    public final void close()
+    {
+        if ( this.isClosed() ) { return; }
+
+        OffHeapSymbolTable.free(Arrays.asList(this.index));
+        OffHeapSymbolTable.free(this.arena);
+        this.arena = null;
+        this.closed = true;
+        this.curSize = 0;
+        this.metrics.recordLoad(this.curSize, this.capacity);
+        this.index = null;
+        this.modCount++;
+    }
+
+    // Copy the live keys into a fresh arena, updating their references in place, and free the old arena.
+    private void compactArena()
+    {
+        List<ByteBuffer> oldArena = this.arena;
+        this.arena = new ArrayList<ByteBuffer>();
+
+        for ( long slot = 0; slot < this.capacity; slot++ )
+        {
+            long ref = this.getRef(slot);
+
+            if ( ref != 0 )
+            {
+                this.page(slot).putLong(this.offsetOf(slot), OffHeapSymbolTable.appendKey(this.arena, OffHeapSymbolTable.readKey(oldArena, ref)));
+            }
+        }
+
+        this.garbageBytes = 0;
+        OffHeapSymbolTable.free(oldArena);
+    }
+
+    // Copy a String-to-Integer symbol table, such as the one SimpleSymbolTable builds, into a new off-heap table.
+    public static final OffHeapSymbolTable copyOf(final SeparateChainingSymbolTable<String, Integer> symTable)
+    {
+        OffHeapSymbolTable table = new OffHeapSymbolTable(symTable.getCurSize());
+        Iterator<KeyValuePair<String, Integer>> entries = symTable.entriesIterator();
+
+        while ( entries.hasNext() )
+        {
+            KeyValuePair<String, Integer> entry = entries.next();
+            table.put(entry.getKey(), entry.getValue());
+        }
+
+        return table;
+    }
+
+    // Is the key in the symbol table?
+    public final boolean contains(final String key)
+    {
+        this.ensureOpen();
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        return ( this.find(key.hashCode(), bytes) >= 0 );
+    }
+
+    private String decodeKey(final long ref)
+    {
+        return new String(OffHeapSymbolTable.readKey(this.arena, ref), StandardCharsets.UTF_8);
+    }
+
+    // Delete key (and associated value) if key is in the table. Returns true if the key was present.
+    public final boolean delete(final String key)
+    {
+        this.ensureWritable();
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        long slot = this.find(key.hashCode(), bytes);
+
+        if ( slot < 0 ) { return false; }
+
+        this.garbageBytes += ( 4 + bytes.length );
+        this.keyBytes -= ( 4 + bytes.length );
+        this.curSize--;
+        this.metrics.recordLoad(this.curSize, this.capacity);
+        this.modCount++;
+
+        // Backward-shift deletion: move each following entry into the hole unless the hole lies before that entry's home slot.
+        long mask = this.capacity - 1;
+        long hole = slot;
+        long next = ( hole + 1 ) & mask;
+
+        while ( this.getRef(next) != 0 )
+        {
+            long home = this.homeSlot(this.getHash(next));
+
+            if ( ( ( next - home ) & mask ) >= ( ( next - hole ) & mask ) )
+            {
+                this.setSlot(hole, this.getRef(next), this.getHash(next), this.getValue(next));
+                hole = next;
+            }
+
+            next = ( next + 1 ) & mask;
+        }
+
+        this.setSlot(hole, 0, 0, 0);
+
+        // Reclaim the arena once deleted keys outweigh live ones.
+        if ( ( this.garbageBytes > OffHeapSymbolTable.ARENA_CHUNK_BYTES ) && ( this.garbageBytes > this.keyBytes ) )
+        {
+            this.rehash(this.capacity, true);
+        }
+
+        return true;
+    }
+
+    private void ensureOpen()
+    {
+        if ( this.isClosed() ) { throw new IllegalStateException("The off-heap symbol table has been closed."); }
+    }
+
+    private void ensureWritable()
+    {
+        this.ensureOpen();
+
+        if ( this.isReadOnly() ) { throw new UnsupportedOperationException("An off-heap symbol table opened from a snapshot is read-only."); }
+    }
+
+    // Return the slot holding the key, or -1 if it is absent.
+    private long find(final int hash, final byte[] bytes)
+    {
+        long mask = this.capacity - 1;
+        long slot = this.homeSlot(hash);
+        int probeLen = 1;
+
+        for ( long ref = this.getRef(slot); ref != 0; ref = this.getRef(slot) )
+        {
+            if ( ( this.getHash(slot) == hash ) && this.keyEquals(ref, bytes) )
+            {
+                this.metrics.recordProbe(probeLen, true);
+                return slot;
+            }
+
+            slot = ( slot + 1 ) & mask;
+            probeLen++;
+        }
+
+        this.metrics.recordProbe(probeLen, false);
+        return -1;
+    }
+
+    // Free each buffer's memory now, instead of when the garbage collector reclaims the buffer objects, where the JVM allows it; otherwise leave it to the
+    // collector. The buffers must not be used afterwards.
+    private static void free(final List<ByteBuffer> buffers)
+    {
+        for ( ByteBuffer buffer : buffers )
+        {
+            if ( !buffer.isDirect() )
+            {
+                continue;
+            }
+
+            try
+            {
+                if ( OffHeapSymbolTable.INVOKE_CLEANER != null )
+                {
+                    OffHeapSymbolTable.INVOKE_CLEANER.invoke(OffHeapSymbolTable.UNSAFE, buffer);
+                }
+                else
+                {
+                    Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                    cleanerMethod.setAccessible(true);
+                    Object cleaner = cleanerMethod.invoke(buffer);
+
+                    if ( cleaner != null )
+                    {
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                    }
+                }
+            }
+            catch ( ReflectiveOperationException | RuntimeException e )
+            {
+                // Leave this buffer to the garbage collector.
+            }
+        }
+    }
+
+    // Return the value associated with key, or 'defaultValue' if no such key.
+    public final int get(final String key, final int defaultValue)
+    {
+        this.ensureOpen();
+        long slot = this.find(key.hashCode(), key.getBytes(StandardCharsets.UTF_8));
+        return ( ( slot < 0 ) ? defaultValue : this.getValue(slot) );
+    }
+
+    // Return the number of bytes allocated outside the heap for the index and the key arena.
+    public final long getAllocatedBytes()
+    {
+        this.ensureOpen();
+        long bytes = this.capacity * OffHeapSymbolTable.SLOT_BYTES;
+
+        for ( ByteBuffer chunk : this.arena )
+        {
+            bytes += chunk.capacity();
+        }
+
+        return bytes;
+    }
+
+    // Return the current size of the symbol table.
+    public final long getCurSize()
+    {
+        return this.curSize;
+    }
+
+    private int getHash(final long slot)
+    {
+        return this.page(slot).getInt(this.offsetOf(slot) + OffHeapSymbolTable.SLOT_HASH);
+    }
+
+    // Return the number of slots in the index.
+    public final long getMaxSize()
+    {
+        return this.capacity;
+    }
+
+    // Return a consistent snapshot of the probe-length histogram, load, and resize statistics. Safe to call from a monitoring thread.
+    public final TableMetrics getMetrics()
+    {
+        return this.metrics.snapshot();
+    }
+
+    private long getRef(final long slot)
+    {
+        return this.page(slot).getLong(this.offsetOf(slot));
+    }
+
+    private int getValue(final long slot)
+    {
+        return this.page(slot).getInt(this.offsetOf(slot) + OffHeapSymbolTable.SLOT_VALUE);
+    }
+
+    private long homeSlot(final int hash)
+    {
+        return ( SizingPolicy.mix(hash) & ( this.capacity - 1 ) );
+    }
+
+    public final boolean isClosed()
+    {
+        return this.closed;
+    }
+
+    // Is the table backed by a mapped snapshot?
+    public final boolean isReadOnly()
+    {
+        return this.readOnly;
+    }
+
+    // Is the symbol table empty?
+    public final boolean isEmpty()
+    {
+        return ( this.getCurSize() == 0 );
+    }
+
+    // Does the key record at 'ref' hold exactly these bytes?
+    private boolean keyEquals(final long ref, final byte[] bytes)
+    {
+        ByteBuffer chunk = this.arena.get((int) ( ref >>> 32 ) - 1);
+        int offset = (int) ref;
+
+        if ( chunk.getInt(offset) != bytes.length ) { return false; }
+
+        offset += 4;
+
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            if ( chunk.get(offset + i) != bytes[i] ) { return false; }
+        }
+
+        return true;
+    }
+
+    // Return a fail-fast cursor over the keys. Each key is decoded onto the heap only when the cursor reaches it.
+    public final Iterator<String> keysIterator()
+    {
+        this.ensureOpen();
+        return new KeyIterator();
+    }
+
+    // Map a snapshot written by save(). The returned table is read-only; its lookups read the mapped pages directly.
+    public static final OffHeapSymbolTable open(final Path path) throws IOException
+    {
+        try ( FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) )
+        {
+            ByteBuffer header = OffHeapSymbolTable.readFully(channel, 0, OffHeapSymbolTable.IMAGE_HEADER_BYTES);
+
+            if ( header.getInt() != OffHeapSymbolTable.IMAGE_MAGIC ) { throw new IOException(path + " is not an off-heap symbol table snapshot."); }
+
+            int version = header.getInt();
+
+            if ( version != OffHeapSymbolTable.IMAGE_VERSION ) { throw new IOException(path + " has unsupported snapshot version " + version + "."); }
+
+            ByteOrder order = ( ( header.getInt() != 0 ) ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN );
+            int pageSlots = header.getInt();
+            long capacity = header.getLong();
+            long curSize = header.getLong();
+            long keyBytes = header.getLong();
+            int chunkCount = header.getInt();
+
+            // Check the header against the layout save() writes before sizing anything from it.
+            if ( ( capacity < 16 ) || ( capacity > OffHeapSymbolTable.MAXIMUM_CAPACITY ) || ( Long.bitCount(capacity) != 1 )
+                    || ( pageSlots != Math.min(capacity, OffHeapSymbolTable.INDEX_PAGE_SLOTS) ) || ( curSize < 0 ) || ( curSize > capacity ) || ( keyBytes < 0 )
+                    || ( chunkCount < 0 ) || ( chunkCount > ( ( channel.size() - OffHeapSymbolTable.IMAGE_HEADER_BYTES ) / 8 ) ) )
+            {
+                throw new IOException(path + " has a corrupt snapshot header.");
+            }
+
+            ByteBuffer chunkLengths = OffHeapSymbolTable.readFully(channel, OffHeapSymbolTable.IMAGE_HEADER_BYTES, chunkCount * 8);
+            long offset = OffHeapSymbolTable.IMAGE_HEADER_BYTES + ( chunkCount * 8L );
+            long length = offset + ( capacity * OffHeapSymbolTable.SLOT_BYTES );
+
+            for ( int i = 0; i < chunkCount; i++ )
+            {
+                long chunkLength = chunkLengths.getLong(i * 8);
+
+                if ( ( chunkLength < 0 ) || ( chunkLength > Integer.MAX_VALUE ) ) { throw new IOException(path + " has a corrupt snapshot header."); }
+
+                length += chunkLength;
+            }
+
+            if ( length != channel.size() ) { throw new IOException(path + " is truncated or has trailing data."); }
+
+            ByteBuffer[] index = new ByteBuffer[(int) ( capacity / pageSlots )];
+
+            for ( int i = 0; i < index.length; i++ )
+            {
+                index[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, pageSlots * (long) OffHeapSymbolTable.SLOT_BYTES).order(order);
+                offset += index[i].capacity();
+            }
+
+            List<ByteBuffer> arena = new ArrayList<ByteBuffer>(chunkCount);
+
+            for ( int i = 0; i < chunkCount; i++ )
+            {
+                ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset, chunkLengths.getLong()).order(order);
+                chunk.position(chunk.limit());
+                arena.add(chunk);
+                offset += chunk.capacity();
+            }
+
+            return new OffHeapSymbolTable(index, arena, curSize, keyBytes);
+        }
+    }
+
+    private int offsetOf(final long slot)
+    {
+        return (int) ( slot & ( this.index[0].capacity() / OffHeapSymbolTable.SLOT_BYTES - 1 ) ) * OffHeapSymbolTable.SLOT_BYTES;
+    }
+
+    private ByteBuffer page(final long slot)
+    {
+        return this.index[(int) ( slot >>> OffHeapSymbolTable.INDEX_PAGE_SHIFT )];
+    }
+
+    // Insert key-value pair into the table, replacing the value if the key is already present.
+    public final void put(final String key, final int value)
+    {
+        this.ensureWritable();
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = key.hashCode();
+        long slot = this.find(hash, bytes);
+
+        if ( slot >= 0 )
+        {
+            this.page(slot).putInt(this.offsetOf(slot) + OffHeapSymbolTable.SLOT_VALUE, value);
+            return;
+        }
+
+        if ( ( this.curSize + 1 ) > ( OffHeapSymbolTable.LOAD_FACTOR * this.capacity ) )
+        {
+            this.rehash(OffHeapSymbolTable.capacityFor(this.curSize + 1), ( this.garbageBytes > this.keyBytes ));
+        }
+
+        this.placeSlot(OffHeapSymbolTable.appendKey(this.arena, bytes), hash, value);
+        this.keyBytes += ( 4 + bytes.length );
+        this.curSize++;
+        this.metrics.recordLoad(this.curSize, this.capacity);
+        this.modCount++;
+    }
+
+    // Store an entry in the first empty slot of its probe sequence. The key must not already be present.
+    private void placeSlot(final long ref, final int hash, final int value)
+    {
+        long mask = this.capacity - 1;
+        long slot = this.homeSlot(hash);
+
+        while ( this.getRef(slot) != 0 )
+        {
+            slot = ( slot + 1 ) & mask;
+        }
+
+        this.setSlot(slot, ref, hash, value);
+    }
+
+    // Rebuild the index with the given number of slots. If 'compact' is set, the live keys are first copied into a fresh arena.
+    private void rehash(final long newCapacity, final boolean compact)
+    {
+        long startTime = System.nanoTime();
+        this.modCount++;
+
+        if ( compact )
+        {
+            this.compactArena();
+        }
+
+        if ( newCapacity != this.capacity )
+        {
+            this.resizeIndex(newCapacity);
+        }
+
+        this.metrics.beginUpdate();
+        this.metrics.recordLoad(this.curSize, this.capacity);
+        this.metrics.recordResize();
+        this.metrics.recordResizeTime(System.nanoTime() - startTime);
+        this.metrics.endUpdate();
+    }
+
+    // Move each entry of a doubled index, whose upper half is still empty, to its slot under the new capacity. The old entries are taken out and put back in
+    // probe order, starting after an empty slot, so that each is placed past only entries already moved; one whose probe would wrap around the end into
+    // entries not yet moved is put back last.
+    private void redistribute(final long oldCapacity)
+    {
+        long start = 0;
+
+        while ( this.getRef(start) != 0 )
+        {
+            start++;
+        }
+
+        long mask = this.capacity - 1;
+        List<long[]> wrapped = new ArrayList<long[]>();
+
+        for ( long i = 1; i < oldCapacity; i++ )
+        {
+            long slot = ( start + i ) & ( oldCapacity - 1 );
+            long ref = this.getRef(slot);
+
+            if ( ref == 0 )
+            {
+                continue;
+            }
+
+            int hash = this.getHash(slot);
+            int value = this.getValue(slot);
+            this.setSlot(slot, 0, 0, 0);
+
+            long home = this.homeSlot(hash);
+            long target = home;
+
+            while ( this.getRef(target) != 0 )
+            {
+                target = ( target + 1 ) & mask;
+            }
+
+            if ( target < home )
+            {
+                wrapped.add(new long[] { ref, hash, value });
+            }
+            else
+            {
+                this.setSlot(target, ref, hash, value);
+            }
+        }
+
+        for ( long[] entry : wrapped )
+        {
+            this.placeSlot(entry[0], (int) entry[1], (int) entry[2]);
+        }
+    }
+
+    // Resize the index. An index of full pages which doubles keeps its pages as the lower half and adds only the upper half; otherwise the entries are copied
+    // into a new index and the old one is freed.
+    private void resizeIndex(final long newCapacity)
+    {
+        ByteBuffer[] oldIndex = this.index;
+        long oldCapacity = this.capacity;
+        int oldPageSlots = oldIndex[0].capacity() / OffHeapSymbolTable.SLOT_BYTES;
+
+        if ( ( newCapacity == ( 2 * oldCapacity ) ) && ( oldPageSlots == OffHeapSymbolTable.INDEX_PAGE_SLOTS ) )
+        {
+            ByteBuffer[] upperHalf = this.allocateIndex(oldCapacity);
+            this.index = Arrays.copyOf(oldIndex, oldIndex.length + upperHalf.length);
+            System.arraycopy(upperHalf, 0, this.index, oldIndex.length, upperHalf.length);
+            this.capacity = this.slotCount(this.index);
+            this.redistribute(oldCapacity);
+            return;
+        }
+
+        this.index = this.allocateIndex(newCapacity);
+        this.capacity = this.slotCount(this.index);
+
+        for ( long slot = 0; slot < oldCapacity; slot++ )
+        {
+            ByteBuffer page = oldIndex[(int) ( slot / oldPageSlots )];
+            int offset = (int) ( slot % oldPageSlots ) * OffHeapSymbolTable.SLOT_BYTES;
+            long ref = page.getLong(offset);
+
+            if ( ref == 0 )
+            {
+                continue;
+            }
+
+            this.placeSlot(ref, page.getInt(offset + OffHeapSymbolTable.SLOT_HASH), page.getInt(offset + OffHeapSymbolTable.SLOT_VALUE));
+        }
+
+        OffHeapSymbolTable.free(Arrays.asList(oldIndex));
+    }
+
+    // Read 'length' bytes at 'position' of the channel into a new big-endian heap buffer, ready for reading.
+    private static ByteBuffer readFully(final FileChannel channel, final long position, final int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read(buffer, position + buffer.position()) < 0 ) { throw new IOException("Unexpected end of snapshot."); }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    // Copy the bytes of the key record at 'ref' in 'chunks' onto the heap.
+    private static byte[] readKey(final List<ByteBuffer> chunks, final long ref)
+    {
+        ByteBuffer chunk = chunks.get((int) ( ref >>> 32 ) - 1);
+        byte[] bytes = new byte[chunk.getInt((int) ref)];
+        int offset = (int) ref + 4;
+
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            bytes[i] = chunk.get(offset + i);
+        }
+
+        return bytes;
+    }
+
+    // Write the table to 'path' as a snapshot which open() can map. The file is written beside 'path' and then moved into place, so a crash never leaves a partial snapshot.
+    public final void save(final Path path) throws IOException
+    {
+        this.ensureOpen();
+
+        if ( !this.isReadOnly() && ( this.garbageBytes > 0 ) )
+        {
+            this.rehash(this.capacity, true);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(OffHeapSymbolTable.IMAGE_HEADER_BYTES + ( this.arena.size() * 8 ));
+        header.putInt(OffHeapSymbolTable.IMAGE_MAGIC);
+        header.putInt(OffHeapSymbolTable.IMAGE_VERSION);
+        header.putInt(( this.index[0].order() == ByteOrder.LITTLE_ENDIAN ) ? 1 : 0);
+        header.putInt(this.index[0].capacity() / OffHeapSymbolTable.SLOT_BYTES);
+        header.putLong(this.capacity);
+        header.putLong(this.curSize);
+        header.putLong(this.keyBytes);
+        header.putInt(this.arena.size());
+
+        for ( ByteBuffer chunk : this.arena )
+        {
+            header.putLong(chunk.position());
+        }
+
+        header.flip();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try ( FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE) )
+        {
+            OffHeapSymbolTable.writeFully(channel, header);
+
+            for ( ByteBuffer page : this.index )
+            {
+                ByteBuffer contents = page.duplicate();
+                contents.clear();
+                OffHeapSymbolTable.writeFully(channel, contents);
+            }
+
+            for ( ByteBuffer chunk : this.arena )
+            {
+                ByteBuffer contents = chunk.duplicate();
+                contents.flip();
+                OffHeapSymbolTable.writeFully(channel, contents);
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void setSlot(final long slot, final long ref, final int hash, final int value)
+    {
+        ByteBuffer page = this.page(slot);
+        int offset = this.offsetOf(slot);
+        page.putLong(offset, ref);
+        page.putInt(offset + OffHeapSymbolTable.SLOT_HASH, hash);
+        page.putInt(offset + OffHeapSymbolTable.SLOT_VALUE, value);
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            channel.write(buffer);
+        }
+    }
+
+    private long slotCount(final ByteBuffer[] pages)
+    {
+        return ( (long) pages.length * ( pages[0].capacity() / OffHeapSymbolTable.SLOT_BYTES ) );
+    }
+}
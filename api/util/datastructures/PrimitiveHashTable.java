@@ -0,0 +1,171 @@
+/*
+ * Title: PrimitiveHashTable
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * The shared bookkeeping for the open-addressing hash tables which store primitive keys in flat arrays.
+ * Subclasses own the key (and value) arrays; this class owns the occupancy flags, the probe loop, and the probe-length statistics.
+ * Keys are hashed with SizingPolicy.mix, the same finalizer the other tables in this package use. An int key is compared as a long, which loses nothing.
+ */
+
+package api.util.datastructures;
+
+import api.util.Mathematics;
+
+public abstract class PrimitiveHashTable
+{
+    private int       currentSize          = 0;
+    private double    loadFactor           = 0.0;
+    private int       maximumSize          = 0;
+    private boolean[] occupied             = null;
+    private boolean   probeIsLinear        = false;
+    private long      totalProbeLenFailure = 0;
+    private long      totalProbeLenSuccess = 0;
+
+    protected PrimitiveHashTable(final double loadFactor, final boolean useLinearProbe, final int fillSize)
+    {
+        this.currentSize = 0;
+        this.loadFactor = loadFactor;
+        this.probeIsLinear = useLinearProbe;
+        this.setMaximumSize((int) ( Math.ceil(fillSize / this.getLoadFactor()) ));
+        this.occupied = new boolean[this.getMaximumSize()];
+    }
+
+    // Return the index of the slot holding the key, or -1 if it is not present. 'index' is the key's home slot.
+    protected final int findIndex(final long key, final int index)
+    {
+        if ( this.isEmpty() ) { return -1; }
+
+        int slot = index;
+        int probeLen = 1;
+
+        while ( this.isIndexOccupied(slot) )
+        {
+            if ( this.keyEquals(slot, key) )
+            {
+                this.recordProbeSuccess(probeLen);
+                return slot;
+            }
+
+            if ( probeLen >= this.getMaximumSize() )
+            {
+                break;
+            }
+
+            slot = this.probe(slot, probeLen);
+            probeLen++;
+        }
+
+        this.recordProbeFailure(probeLen);
+        return -1;
+    }
+
+    public final int getCurrentSize()
+    {
+        return this.currentSize;
+    }
+
+    public final double getLoadFactor()
+    {
+        return this.loadFactor;
+    }
+
+    public final int getMaximumSize()
+    {
+        return this.maximumSize;
+    }
+
+    public final long getTotalProbeLenFailure()
+    {
+        return this.totalProbeLenFailure;
+    }
+
+    public final long getTotalProbeLenSuccess()
+    {
+        return this.totalProbeLenSuccess;
+    }
+
+    // Mix a hash code and map it onto a table index between 0 and m-1.
+    protected final int indexFor(final int hashCode)
+    {
+        return ( ( SizingPolicy.mix(hashCode) & 0x7FFFFFFF ) % this.getMaximumSize() );
+    }
+
+    // Return the index of the slot holding the key, or of the empty slot where it belongs, or -1 if the probe sequence reaches neither.
+    // The caller tells the two apart with isIndexOccupied().
+    protected final int insertIndex(final long key, final int index)
+    {
+        int slot = index;
+        int probeLen = 1;
+
+        while ( this.isIndexOccupied(slot) )
+        {
+            if ( this.keyEquals(slot, key) ) { return slot; }
+
+            if ( probeLen >= this.getMaximumSize() ) { return -1; }
+
+            slot = this.probe(slot, probeLen);
+            probeLen++;
+        }
+
+        return slot;
+    }
+
+    public final boolean isEmpty()
+    {
+        return ( this.getCurrentSize() <= 0 );
+    }
+
+    protected final boolean isIndexOccupied(final int index)
+    {
+        return this.occupied[index];
+    }
+
+    public final boolean isProbeLinear()
+    {
+        return this.probeIsLinear;
+    }
+
+    // Does the occupied slot hold the key?
+    protected abstract boolean keyEquals(final int index, final long key);
+
+    // Claim an empty slot for a newly inserted key.
+    protected final void markOccupied(final int index)
+    {
+        this.occupied[index] = true;
+        this.currentSize++;
+    }
+
+    // Return the next index in the probe sequence, where 'step' is the number of probes already made (starting at one).
+    // Quadratic probing visits h + step^2, which is computed incrementally as the previous index plus (2 * step) - 1.
+    protected final int probe(final int index, final int step)
+    {
+        long next = index;
+
+        if ( this.isProbeLinear() )
+        {
+            next++;
+        }
+        else
+        {
+            next += ( ( 2L * step ) - 1 );
+        }
+
+        return (int) ( next % this.getMaximumSize() );
+    }
+
+    protected final void recordProbeFailure(final int probeLen)
+    {
+        this.totalProbeLenFailure += probeLen;
+    }
+
+    protected final void recordProbeSuccess(final int probeLen)
+    {
+        this.totalProbeLenSuccess += probeLen;
+    }
+
+    private void setMaximumSize(final int maximumSize)
+    {
+        this.maximumSize = (int) Mathematics.makePrimeGreater(Math.max(maximumSize, 2));
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * Title: RedBlackSymbolTable
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * A left-leaning red-black tree symbol table for arbitrary keys, used by SeparateChainingSymbolTable in place of a chain which has grown too long.
+ *
+ * Keys do not need to be Comparable. The tree is ordered by hash code, then by class name, then by compareTo() for keys of the same Comparable class.
+ * Keys which still tie (equal hash codes and a class which is not Comparable) share a node, and are kept in a small SequentialSearchSymbolTable inside it.
+ * Every operation is therefore O(log n) unless many non-Comparable keys share a single hash code.
+ */
+
+package api.util.datastructures;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+public class RedBlackSymbolTable<K, V>
+{
+    private static final class TreeBin<K, V>
+    {
+        private boolean                           color;
+        private SequentialSearchSymbolTable<K, V> entries;  // Every key in this node compares equal to orderKey.
+        private int                               hash;
+        private TreeBin<K, V>                     left  = null;
+        private K                                 orderKey; // A representative key used for comparisons.
+        private TreeBin<K, V>                     right = null;
+
+        private TreeBin(final int hash, final K orderKey, final boolean color)
+        {
+            this.color = color;
+            this.entries = new SequentialSearchSymbolTable<K, V>();
+            this.hash = hash;
+            this.orderKey = orderKey;
+        }
+    }
+
+    // An in-order cursor over the key-value pairs of the tree. It holds only the path from the root to the current node, and copies no keys.
+    private final class EntryIterator implements Iterator<KeyValuePair<K, V>>
+    {
+        private Node                            entry = null;                               // The next pair within the current node.
+        private final ArrayDeque<TreeBin<K, V>> path  = new ArrayDeque<TreeBin<K, V>>(); // Nodes whose pairs have not been visited yet.
+
+        private EntryIterator()
+        {
+            this.pushLeft(RedBlackSymbolTable.this.root);
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return ( ( this.entry != null ) || !this.path.isEmpty() );
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public KeyValuePair<K, V> next()
+        {
+            if ( !this.hasNext() ) { throw new NoSuchElementException(); }
+
+            if ( this.entry == null )
+            {
+                TreeBin<K, V> bin = this.path.pop();
+                this.pushLeft(bin.right);
+                this.entry = bin.entries.getFirst();
+            }
+
+            KeyValuePair<K, V> pair = ( (KeyValueNode<K, V>) this.entry ).getKeyValuePair();
+            this.entry = this.entry.getNext();
+            return pair;
+        }
+
+        private void pushLeft(final TreeBin<K, V> node)
+        {
+            for ( TreeBin<K, V> x = node; x != null; x = x.left )
+            {
+                this.path.push(x);
+            }
+        }
+    }
+
+    private static final boolean BLACK = false;
+    private static final boolean RED   = true;
+
+    private TreeBin<K, V> root = null;
+    private long          size = 0;    // Number of key-value pairs.
+
+    // Compare two keys by hash code, then class name, then natural order when both keys are of the same Comparable class.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final int compare(final int hash1, final Object key1, final int hash2, final Object key2)
+    {
+        if ( hash1 != hash2 ) { return ( ( hash1 < hash2 ) ? -1 : 1 ); }
+
+        Class<?> class1 = key1.getClass();
+        Class<?> class2 = key2.getClass();
+
+        if ( class1 != class2 )
+        {
+            return class1.getName().compareTo(class2.getName());
+        }
+
+        if ( key1 instanceof Comparable ) { return Integer.signum(( (Comparable) key1 ).compareTo(key2)); }
+
+        return 0;
+    }
+
+    private static final <K, V> boolean isRed(final TreeBin<K, V> node)
+    {
+        return ( ( node != null ) && ( node.color == RedBlackSymbolTable.RED ) );
+    }
+
+    private TreeBin<K, V> balance(final TreeBin<K, V> node)
+    {
+        TreeBin<K, V> h = node;
+
+        if ( RedBlackSymbolTable.isRed(h.right) && !RedBlackSymbolTable.isRed(h.left) )
+        {
+            h = this.rotateLeft(h);
+        }
+
+        if ( RedBlackSymbolTable.isRed(h.left) && RedBlackSymbolTable.isRed(h.left.left) )
+        {
+            h = this.rotateRight(h);
+        }
+
+        if ( RedBlackSymbolTable.isRed(h.left) && RedBlackSymbolTable.isRed(h.right) )
+        {
+            this.flipColors(h);
+        }
+
+        return h;
+    }
+
+    // Is the key in the symbol table?
+    public final boolean contains(final K key)
+    {
+        return ( this.get(key) != null );
+    }
+
+    // Delete key (and associated value) if key is in the table.
+    public final void delete(final K key)
+    {
+        int hash = key.hashCode();
+        TreeBin<K, V> bin = this.findBin(hash, key);
+
+        if ( ( bin == null ) || !bin.entries.contains(key) ) { return; }
+
+        bin.entries.delete(key);
+        this.size--;
+
+        if ( !bin.entries.isEmpty() )
+        {
+            // Do not keep a deleted key alive as the node's representative.
+            if ( bin.orderKey.equals(key) )
+            {
+                bin.orderKey = bin.entries.keys().iterator().next();
+            }
+
+            return;
+        }
+
+        // The node is now empty, so remove it from the tree.
+        if ( !RedBlackSymbolTable.isRed(this.root.left) && !RedBlackSymbolTable.isRed(this.root.right) )
+        {
+            this.root.color = RedBlackSymbolTable.RED;
+        }
+
+        this.root = this.delete(this.root, hash, key);
+
+        if ( this.root != null )
+        {
+            this.root.color = RedBlackSymbolTable.BLACK;
+        }
+    }
+
+    private TreeBin<K, V> delete(final TreeBin<K, V> node, final int hash, final K key)
+    {
+        TreeBin<K, V> h = node;
+
+        if ( RedBlackSymbolTable.compare(hash, key, h.hash, h.orderKey) < 0 )
+        {
+            if ( !RedBlackSymbolTable.isRed(h.left) && !RedBlackSymbolTable.isRed(h.left.left) )
+            {
+                h = this.moveRedLeft(h);
+            }
+
+            h.left = this.delete(h.left, hash, key);
+        }
+        else
+        {
+            if ( RedBlackSymbolTable.isRed(h.left) )
+            {
+                h = this.rotateRight(h);
+            }
+
+            if ( ( RedBlackSymbolTable.compare(hash, key, h.hash, h.orderKey) == 0 ) && ( h.right == null ) ) { return null; }
+
+            if ( !RedBlackSymbolTable.isRed(h.right) && !RedBlackSymbolTable.isRed(h.right.left) )
+            {
+                h = this.moveRedRight(h);
+            }
+
+            if ( RedBlackSymbolTable.compare(hash, key, h.hash, h.orderKey) == 0 )
+            {
+                // Replace this node's contents with those of its successor, then delete the successor.
+                TreeBin<K, V> successor = h.right;
+
+                while ( successor.left != null )
+                {
+                    successor = successor.left;
+                }
+
+                h.entries = successor.entries;
+                h.hash = successor.hash;
+                h.orderKey = successor.orderKey;
+                h.right = this.deleteMin(h.right);
+            }
+            else
+            {
+                h.right = this.delete(h.right, hash, key);
+            }
+        }
+
+        return this.balance(h);
+    }
+
+    private TreeBin<K, V> deleteMin(final TreeBin<K, V> node)
+    {
+        TreeBin<K, V> h = node;
+
+        if ( h.left == null ) { return null; }
+
+        if ( !RedBlackSymbolTable.isRed(h.left) && !RedBlackSymbolTable.isRed(h.left.left) )
+        {
+            h = this.moveRedLeft(h);
+        }
+
+        h.left = this.deleteMin(h.left);
+        return this.balance(h);
+    }
+
+    // Return a cursor over the key-value pairs in tree order. The tree must not be modified while the cursor is in use.
+    public final Iterator<KeyValuePair<K, V>> entryIterator()
+    {
+        return new EntryIterator();
+    }
+
+    private TreeBin<K, V> findBin(final int hash, final K key)
+    {
+        TreeBin<K, V> x = this.root;
+
+        while ( x != null )
+        {
+            int cmp = RedBlackSymbolTable.compare(hash, key, x.hash, x.orderKey);
+
+            if ( cmp < 0 )
+            {
+                x = x.left;
+            }
+            else if ( cmp > 0 )
+            {
+                x = x.right;
+            }
+            else
+            {
+                return x;
+            }
+        }
+
+        return null;
+    }
+
+    private void flipColors(final TreeBin<K, V> h)
+    {
+        h.color = !h.color;
+        h.left.color = !h.left.color;
+        h.right.color = !h.right.color;
+    }
+
+    // Return value associated with key, null if no such key.
+    public final V get(final K key)
+    {
+        TreeBin<K, V> bin = this.findBin(key.hashCode(), key);
+        return ( ( bin == null ) ? null : bin.entries.get(key) );
+    }
+
+    // Return the size of the symbol table.
+    public final long getSize()
+    {
+        return this.size;
+    }
+
+    // Is the symbol table empty?
+    public final boolean isEmpty()
+    {
+        return ( this.getSize() == 0 );
+    }
+
+    // Return keys in symbol table as an Iterable, in tree order.
+    public final Iterable<K> keys()
+    {
+        LinkedList<K> queue = new LinkedList<K>();
+        this.keys(this.root, queue);
+        return queue;
+    }
+
+    private void keys(final TreeBin<K, V> node, final LinkedList<K> queue)
+    {
+        if ( node == null ) { return; }
+
+        this.keys(node.left, queue);
+
+        for ( K key : node.entries.keys() )
+        {
+            queue.add(key);
+        }
+
+        this.keys(node.right, queue);
+    }
+
+    private TreeBin<K, V> moveRedLeft(final TreeBin<K, V> node)
+    {
+        TreeBin<K, V> h = node;
+        this.flipColors(h);
+
+        if ( RedBlackSymbolTable.isRed(h.right.left) )
+        {
+            h.right = this.rotateRight(h.right);
+            h = this.rotateLeft(h);
+            this.flipColors(h);
+        }
+
+        return h;
+    }
+
+    private TreeBin<K, V> moveRedRight(final TreeBin<K, V> node)
+    {
+        TreeBin<K, V> h = node;
+        this.flipColors(h);
+
+        if ( RedBlackSymbolTable.isRed(h.left.left) )
+        {
+            h = this.rotateRight(h);
+            this.flipColors(h);
+        }
+
+        return h;
+    }
+
+    // Insert key-value pair into the table.
+    public final void put(final K key, final V value)
+    {
+        if ( value == null )
+        {
+            this.delete(key);
+            return;
+        }
+
+        this.root = this.put(this.root, key.hashCode(), key, value);
+        this.root.color = RedBlackSymbolTable.BLACK;
+    }
+
+    private TreeBin<K, V> put(final TreeBin<K, V> node, final int hash, final K key, final V value)
+    {
+        TreeBin<K, V> h = node;
+
+        if ( h == null )
+        {
+            h = new TreeBin<K, V>(hash, key, RedBlackSymbolTable.RED);
+            h.entries.put(key, value);
+            this.size++;
+            return h;
+        }
+
+        int cmp = RedBlackSymbolTable.compare(hash, key, h.hash, h.orderKey);
+
+        if ( cmp < 0 )
+        {
+            h.left = this.put(h.left, hash, key, value);
+        }
+        else if ( cmp > 0 )
+        {
+            h.right = this.put(h.right, hash, key, value);
+        }
+        else
+        {
+            long before = h.entries.getSize();
+            h.entries.put(key, value);
+            this.size += ( h.entries.getSize() - before );
+        }
+
+        if ( RedBlackSymbolTable.isRed(h.right) && !RedBlackSymbolTable.isRed(h.left) )
+        {
+            h = this.rotateLeft(h);
+        }
+
+        if ( RedBlackSymbolTable.isRed(h.left) && RedBlackSymbolTable.isRed(h.left.left) )
+        {
+            h = this.rotateRight(h);
+        }
+
+        if ( RedBlackSymbolTable.isRed(h.left) && RedBlackSymbolTable.isRed(h.right) )
+        {
+            this.flipColors(h);
+        }
+
+        return h;
+    }
+
+    private TreeBin<K, V> rotateLeft(final TreeBin<K, V> h)
+    {
+        TreeBin<K, V> x = h.right;
+        h.right = x.left;
+        x.left = h;
+        x.color = h.color;
+        h.color = RedBlackSymbolTable.RED;
+        return x;
+    }
+
+    private TreeBin<K, V> rotateRight(final TreeBin<K, V> h)
+    {
+        TreeBin<K, V> x = h.left;
+        h.left = x.right;
+        x.right = h;
+        x.color = h.color;
+        h.color = RedBlackSymbolTable.RED;
+        return x;
+    }
+}
@@ -4,25 +4,242 @@
  * Date: 2/11/2015
  * 
  * A minimalist generic hash table data structure.
+ * 
+ * The distribution of chain lengths and the cost of resizing are tracked by a TableMetricsRecorder; see getMetrics().
+ * 
+ * A chain which grows past TREEIFY_THRESHOLD entries is converted into a RedBlackSymbolTable, and converted back once it shrinks to UNTREEIFY_THRESHOLD.
+ * Poorly distributed or adversarial keys therefore cost O(log n) per lookup instead of a linear scan of one long chain.
+ * 
+ * Resizing is incremental. A resize allocates the new chain array and keeps the old one alongside it; every later put or delete migrates a few old chains,
+ * and the chain a key hashes to is migrated on demand before that key is modified. A lookup consults the old array only if the key's old chain is still there.
+ * The table grows when the average chain length reaches GROW_AVERAGE_LENGTH and shrinks when it falls to SHRINK_AVERAGE_LENGTH. A resized table starts
+ * well inside those bounds, and no new resize starts until the previous migration is complete, so alternating puts and deletes cannot make it thrash.
+ * 
+ * The number of chains is the largest prime below 2^capacity by default, or exactly 2^capacity under SizingPolicy.POWER_OF_TWO; see SizingPolicy.
+ * 
+ * Keys and key-value pairs can be traversed by cursors, Spliterators, and streams which read the chains in place rather than copying them.
+ * They are fail-fast: a put which adds a key, a delete which removes one, or any resize step makes them throw ConcurrentModificationException.
+ * 
+ * enableBloomFilter() puts a BloomFilter of the keys' hash codes in front of the chains, so that most gets and deletes of absent keys return without
+ * touching a chain. The filter is rebuilt with every resize: keys are added to a new filter as they are migrated, and the old filter is consulted until then.
+ * 
+ * The chains can be made self-organizing (see SequentialSearchSymbolTable.SelfOrganization), so that the hot keys of a skewed workload sit at the heads of their chains.
+ * Such chains are reordered by lookups, so a table with self-organizing chains must not be read while one of its cursors, Spliterators, or streams is in use.
+ * 
+ * setNodePool() gives every linked-list chain a NodePool, so that the nodes of deleted keys, and of keys migrated by a resize, are reused by later puts.
  */
 
 package api.util.datastructures;
 
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import api.util.Mathematics;
+import api.util.datastructures.SequentialSearchSymbolTable.SelfOrganization;
 
 public class SeparateChainingSymbolTable<K, V>
 {
+    // A fail-fast traversal of the chains in the range [index, fence). Indexes past the end of the current array refer to the previous array during a resize.
+    private final class ChainSpliterator<E> implements Spliterator<E>
+    {
+        private final SequentialSearchSymbolTable<K, V>[] chains;
+        private long                                      estimate;
+        private final int                                 expectedModCount;
+        private final Function<KeyValuePair<K, V>, E>     extractor;
+        private int                                       fence;
+        private int                                       index;
+        private Node                                      node       = null; // The next pair of the list chain being walked.
+        private final SequentialSearchSymbolTable<K, V>[] oldChains;
+        private final RedBlackSymbolTable<K, V>[]         oldTrees;
+        private Iterator<KeyValuePair<K, V>>              treeCursor = null; // The cursor of the tree chain being walked.
+        private final RedBlackSymbolTable<K, V>[]         trees;
+
+        private ChainSpliterator(final Function<KeyValuePair<K, V>, E> extractor)
+        {
+            SeparateChainingSymbolTable<K, V> table = SeparateChainingSymbolTable.this;
+            this.chains = table.getSymTables();
+            this.estimate = table.getCurSize();
+            this.expectedModCount = table.modCount;
+            this.extractor = extractor;
+            this.index = 0;
+            this.oldChains = table.oldSymTables;
+            this.oldTrees = table.oldTreeBins;
+            this.trees = table.treeBins;
+            this.fence = this.chains.length + ( ( this.oldChains == null ) ? 0 : this.oldChains.length );
+        }
+
+        private ChainSpliterator(final ChainSpliterator<E> parent, final int index, final int fence, final long estimate)
+        {
+            this.chains = parent.chains;
+            this.estimate = estimate;
+            this.expectedModCount = parent.expectedModCount;
+            this.extractor = parent.extractor;
+            this.fence = fence;
+            this.index = index;
+            this.oldChains = parent.oldChains;
+            this.oldTrees = parent.oldTrees;
+            this.trees = parent.trees;
+        }
+
+        private void checkForComodification()
+        {
+            if ( SeparateChainingSymbolTable.this.modCount != this.expectedModCount ) { throw new ConcurrentModificationException(); }
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return ( Spliterator.DISTINCT | Spliterator.NONNULL );
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            return this.estimate;
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super E> action)
+        {
+            for ( KeyValuePair<K, V> pair = this.nextPair(); pair != null; pair = this.nextPair() )
+            {
+                action.accept(this.extractor.apply(pair));
+            }
+
+            this.checkForComodification();
+        }
+
+        // Return the next pair in the range, or null once the range is exhausted.
+        @SuppressWarnings("unchecked")
+        private KeyValuePair<K, V> nextPair()
+        {
+            while ( true )
+            {
+                if ( this.node != null )
+                {
+                    KeyValuePair<K, V> pair = ( (KeyValueNode<K, V>) this.node ).getKeyValuePair();
+                    this.node = this.node.getNext();
+                    return pair;
+                }
+
+                if ( this.treeCursor != null )
+                {
+                    if ( this.treeCursor.hasNext() ) { return this.treeCursor.next(); }
+
+                    this.treeCursor = null;
+                }
+
+                if ( this.index >= this.fence ) { return null; }
+
+                this.openChain(this.index++);
+            }
+        }
+
+        // Start walking chain i.
+        private void openChain(final int i)
+        {
+            SequentialSearchSymbolTable<K, V>[] lists = this.chains;
+            RedBlackSymbolTable<K, V>[] bins = this.trees;
+            int j = i;
+
+            if ( j >= this.chains.length )
+            {
+                j -= this.chains.length;
+                lists = this.oldChains;
+                bins = this.oldTrees;
+            }
+
+            if ( ( bins != null ) && ( bins[j] != null ) )
+            {
+                this.treeCursor = bins[j].entryIterator();
+            }
+            else if ( lists[j] != null )
+            {
+                this.node = lists[j].getFirst();
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super E> action)
+        {
+            this.checkForComodification();
+            KeyValuePair<K, V> pair = this.nextPair();
+
+            if ( pair == null ) { return false; }
+
+            action.accept(this.extractor.apply(pair));
+            return true;
+        }
+
+        // Hand the first half of the chains not yet started to a new Spliterator. The chain currently being walked stays with this one.
+        @Override
+        public Spliterator<E> trySplit()
+        {
+            int lo = this.index;
+            int mid = ( lo + this.fence ) >>> 1;
+
+            if ( lo >= mid ) { return null; }
+
+            this.index = mid;
+            this.estimate >>>= 1;
+            return new ChainSpliterator<E>(this, lo, mid, this.estimate);
+        }
+    }
+
+    private static final class EntryExtractor<K, V> implements Function<KeyValuePair<K, V>, KeyValuePair<K, V>>
+    {
+        @Override
+        public KeyValuePair<K, V> apply(final KeyValuePair<K, V> pair)
+        {
+            return pair;
+        }
+    }
+
+    private static final class KeyExtractor<K, V> implements Function<KeyValuePair<K, V>, K>
+    {
+        @Override
+        public K apply(final KeyValuePair<K, V> pair)
+        {
+            return pair.getKey();
+        }
+    }
+
+    public static final int GROW_AVERAGE_LENGTH   = 10;
+    public static final int SHRINK_AVERAGE_LENGTH = 2;
+    public static final int TREEIFY_THRESHOLD     = 8;
+    public static final int UNTREEIFY_THRESHOLD   = 6;
+
+    private static final int REHASH_CHAINS_PER_OPERATION = 4;
+
     private static final long PRIMES(final long capacity)
     {
         return Mathematics.makePrimeLesser((long) Math.pow(2, capacity));
     }
 
-    private long                                capacity  = 0;    // Current capacity factor.
-    private long                                curSize   = 0;    // Current table size (number of key-value pairs).
-    private long                                maxSize   = 0;    // Maximum table size (number of key-value pairs).
-    private SequentialSearchSymbolTable<K, V>[] symTables = null; // Internal array of linked-list symbol tables.
+    private BloomFilter                         bloomFilter  = null; // Prefilter for lookups of absent keys, or null if disabled.
+    private double                              bloomFpr     = 0.0;  // The false-positive rate the filter is built for.
+    private long                                capacity     = 0;    // Current capacity factor.
+    private final SelfOrganization              chainOrganization;   // How lookups reorder the linked-list chains.
+    private long                                curSize      = 0;    // Current table size (number of key-value pairs).
+    private long                                maxSize      = 0;    // Maximum table size (number of key-value pairs).
+    private final TableMetricsRecorder          metrics      = new TableMetricsRecorder(); // Chain-length histogram of the current array and resize statistics.
+    private int                                 modCount     = 0;    // Number of structural modifications, checked by fail-fast cursors.
+    private NodePool<KeyValueNode<K, V>>        nodePool     = null; // Shared by the linked-list chains, or null to allocate every node.
+    private BloomFilter                         oldBloom     = null; // The filter of the previous array while a resize is in progress.
+    private SequentialSearchSymbolTable<K, V>[] oldSymTables = null; // The previous chain array while a resize is in progress. Migrated chains are set to null.
+    private RedBlackSymbolTable<K, V>[]         oldTreeBins  = null; // The previous tree array while a resize is in progress.
+    private int                                 rehashIndex  = 0;    // The next chain of the previous array to migrate.
+    private final SizingPolicy                  sizingPolicy;        // How the number of chains is chosen and keys are mapped onto chains.
+    private SequentialSearchSymbolTable<K, V>[] symTables    = null; // Internal array of linked-list symbol tables. Chains created by a resize are allocated on first use.
+    private RedBlackSymbolTable<K, V>[]         treeBins     = null; // Trees replacing over-long chains, allocated on first use.
 
     // Create separate chaining hash table with the default capacity factor.
     public SeparateChainingSymbolTable()
@@ -31,17 +248,96 @@ public class SeparateChainingSymbolTable<K, V>
     }
 
     // Create separate chaining hash table with a specific capacity factor.
-    @SuppressWarnings("unchecked")
     public SeparateChainingSymbolTable(final long capacity)
     {
+        this(capacity, SizingPolicy.PRIME);
+    }
+
+    // Create separate chaining hash table with a specific capacity factor and sizing policy.
+    public SeparateChainingSymbolTable(final long capacity, final SizingPolicy sizingPolicy)
+    {
+        this(capacity, sizingPolicy, SelfOrganization.NONE);
+    }
+
+    // Create separate chaining hash table with a specific capacity factor, sizing policy, and self-organization mode for its chains.
+    @SuppressWarnings("unchecked")
+    public SeparateChainingSymbolTable(final long capacity, final SizingPolicy sizingPolicy, final SelfOrganization chainOrganization)
+    {
+        this.chainOrganization = chainOrganization;
+        this.sizingPolicy = sizingPolicy;
         this.setCapacity(capacity);
-        this.setMaxSize(SeparateChainingSymbolTable.PRIMES(this.getCapacity()));
+        this.setMaxSize(this.chainsFor(this.getCapacity()));
         this.setSymTables(new SequentialSearchSymbolTable[(int)this.getMaxSize()]);
 
         for ( int i = 0; i < this.getMaxSize(); i++ )
         {
-            this.getSymTables()[i] = new SequentialSearchSymbolTable<K, V>();
+            this.getSymTables()[i] = this.newChain();
+        }
+
+        this.metrics.recordLength(0, this.getMaxSize());
+    }
+
+    // Return value associated with key in chain i, whether it is a list or a tree.
+    private V bucketGet(final int i, final K key)
+    {
+        if ( this.isTreeified(i) ) { return this.treeBins[i].get(key); }
+
+        if ( this.getSymTables()[i] == null ) { return null; }
+
+        return this.getSymTables()[i].get(key);
+    }
+
+    // Insert key-value pair into chain i, converting the chain into a tree if it grows too long. Returns true if the key was not already present.
+    private boolean bucketPut(final int i, final K key, final V value)
+    {
+        long chainLength = this.bucketSize(i);
+
+        if ( this.isTreeified(i) )
+        {
+            this.treeBins[i].put(key, value);
+        }
+        else
+        {
+            if ( this.getSymTables()[i] == null )
+            {
+                this.getSymTables()[i] = this.newChain();
+            }
+
+            this.getSymTables()[i].put(key, value);
+
+            if ( this.getSymTables()[i].getSize() > SeparateChainingSymbolTable.TREEIFY_THRESHOLD )
+            {
+                this.treeify(i);
+            }
+        }
+
+        if ( this.bucketSize(i) == chainLength ) { return false; }
+
+        if ( this.bloomFilter != null )
+        {
+            this.bloomFilter.add(key.hashCode());
         }
+
+        this.metrics.recordLengthChange(chainLength, chainLength + 1);
+        return true;
+    }
+
+    // Return the number of key-value pairs in chain i, whether it is a list or a tree.
+    private long bucketSize(final int i)
+    {
+        if ( this.isTreeified(i) ) { return this.treeBins[i].getSize(); }
+
+        if ( this.getSymTables()[i] == null ) { return 0; }
+
+        return this.getSymTables()[i].getSize();
+    }
+
+    // Return the number of chains for a capacity factor under this table's sizing policy.
+    private long chainsFor(final long capacity)
+    {
+        if ( this.getSizingPolicy() == SizingPolicy.PRIME ) { return SeparateChainingSymbolTable.PRIMES(capacity); }
+
+        return ( 1L << Math.min(capacity, 30) );
     }
 
     // Is the key in the symbol table?
@@ -53,28 +349,118 @@ public class SeparateChainingSymbolTable<K, V>
     // Delete key (and associated value) if key is in the table.
     public final void delete(final K key)
     {
-        long i = this.hash(key);
+        if ( !this.mightContain(key) ) { return; }
+
+        this.migrateChainOf(key);
 
-        if ( this.getSymTables()[(int)i].contains(key) )
+        int i = (int) this.hash(key);
+        long chainLength = this.bucketSize(i);
+
+        if ( this.isTreeified(i) )
+        {
+            this.treeBins[i].delete(key);
+
+            if ( this.treeBins[i].getSize() <= SeparateChainingSymbolTable.UNTREEIFY_THRESHOLD )
+            {
+                this.untreeify(i);
+            }
+        }
+        else if ( this.getSymTables()[i] != null )
         {
-            this.setCurSize(this.getCurSize() - 1);
+            this.getSymTables()[i].delete(key);
         }
 
-        this.getSymTables()[(int)i].delete(key);
+        if ( this.bucketSize(i) != chainLength )
+        {
+            this.modCount++;
+            this.metrics.beginUpdate();
 
-        // Reduce table size if average length of list <= 2 and the table is larger than the initial capacity.
-        if ( ( this.getMaxSize() > SeparateChainingSymbolTable.PRIMES(7) ) && ( this.getCurSize() <= ( 2 * this.getMaxSize() ) ) )
+            try
+            {
+                this.setCurSize(this.getCurSize() - 1);
+                this.metrics.recordLengthChange(chainLength, chainLength - 1);
+            }
+            finally
+            {
+                this.metrics.endUpdate();
+            }
+        }
+
+        this.rehashStep();
+
+        // Reduce table size if average length of list <= SHRINK_AVERAGE_LENGTH and the table is larger than the initial capacity.
+        if ( !this.isRehashing() && ( this.getMaxSize() > this.chainsFor(7) )
+                && ( this.getCurSize() <= ( SeparateChainingSymbolTable.SHRINK_AVERAGE_LENGTH * this.getMaxSize() ) ) )
         {
             this.setCapacity(this.getCapacity() - 1);
-            this.resize(SeparateChainingSymbolTable.PRIMES(this.getCapacity()));
+            this.resize(this.chainsFor(this.getCapacity()));
+        }
+    }
+
+    // Stop filtering lookups.
+    public final void disableBloomFilter()
+    {
+        this.bloomFilter = null;
+        this.bloomFpr = 0.0;
+        this.oldBloom = null;
+    }
+
+    // Filter lookups through a BloomFilter built for the given false-positive rate, such as 0.01. The filter is sized for the largest load before the next resize.
+    public final void enableBloomFilter(final double falsePositiveRate)
+    {
+        this.bloomFilter = new BloomFilter(Math.max(this.getCurSize(), SeparateChainingSymbolTable.GROW_AVERAGE_LENGTH * this.getMaxSize()), falsePositiveRate);
+        this.bloomFpr = falsePositiveRate;
+        this.oldBloom = null;
+
+        for ( K key : this.keysIterable() )
+        {
+            this.bloomFilter.add(key.hashCode());
         }
     }
 
+    // Return a fail-fast cursor over the key-value pairs, which walks the chains in place.
+    public final Iterator<KeyValuePair<K, V>> entriesIterator()
+    {
+        return Spliterators.iterator(this.entriesSpliterator());
+    }
+
+    // Return a fail-fast Spliterator over the key-value pairs, which splits the chain array into ranges for parallel traversal.
+    public final Spliterator<KeyValuePair<K, V>> entriesSpliterator()
+    {
+        return new ChainSpliterator<KeyValuePair<K, V>>(new EntryExtractor<K, V>());
+    }
+
+    // Return a stream of the key-value pairs, sequential or parallel, which reads the chains in place.
+    public final Stream<KeyValuePair<K, V>> entriesStream(final boolean parallel)
+    {
+        return StreamSupport.stream(this.entriesSpliterator(), parallel);
+    }
+
+    // Return an immutable copy of this table which answers every lookup from a single slot; see FrozenSymbolTable.
+    public final FrozenSymbolTable<K, V> freeze()
+    {
+        return new FrozenSymbolTable<K, V>(this.entriesIterator(), (int) this.getCurSize());
+    }
+
     // Return value associated with key, null if no such key.
     public final V get(final K key)
     {
-        long i = this.hash(key);
-        return this.getSymTables()[(int)i].get(key);
+        if ( !this.mightContain(key) ) { return null; }
+
+        if ( this.isRehashing() )
+        {
+            int j = this.oldIndexFor(key);
+
+            // Until its chain has been migrated, the key can only be in the previous array.
+            if ( this.oldSymTables[j] != null )
+            {
+                if ( ( this.oldTreeBins != null ) && ( this.oldTreeBins[j] != null ) ) { return this.oldTreeBins[j].get(key); }
+
+                return this.oldSymTables[j].get(key);
+            }
+        }
+
+        return this.bucketGet((int) this.hash(key), key);
     }
 
     // Return the current capacity factor of the symbol table.
@@ -83,6 +469,12 @@ public class SeparateChainingSymbolTable<K, V>
         return this.capacity;
     }
 
+    // Return how lookups reorder the linked-list chains.
+    public final SelfOrganization getChainOrganization()
+    {
+        return this.chainOrganization;
+    }
+
     // Return the current size of the symbol table.
     public final long getCurSize()
     {
@@ -95,6 +487,23 @@ public class SeparateChainingSymbolTable<K, V>
         return this.maxSize;
     }
 
+    // Return a consistent snapshot of the chain-length histogram, load, and resize statistics. Safe to call from a monitoring thread.
+    public final TableMetrics getMetrics()
+    {
+        return this.metrics.snapshot();
+    }
+
+    public final NodePool<KeyValueNode<K, V>> getNodePool()
+    {
+        return this.nodePool;
+    }
+
+    // Return the policy which chooses the number of chains.
+    public final SizingPolicy getSizingPolicy()
+    {
+        return this.sizingPolicy;
+    }
+
     // Return the internal symbol table array.
     protected final SequentialSearchSymbolTable<K, V>[] getSymTables()
     {
@@ -104,7 +513,13 @@ public class SeparateChainingSymbolTable<K, V>
     // Hash value between 0 and m-1.
     public final long hash(final K key)
     {
-        return ( ( key.hashCode() & 0x7FFFFFFF ) % this.getMaxSize() );
+        return this.getSizingPolicy().indexFor(key.hashCode(), (int) this.getMaxSize());
+    }
+
+    // Are lookups filtered through a BloomFilter?
+    public final boolean isBloomFiltered()
+    {
+        return ( this.bloomFilter != null );
     }
 
     // Is the symbol table empty?
@@ -113,36 +528,136 @@ public class SeparateChainingSymbolTable<K, V>
         return ( this.getCurSize() == 0 );
     }
 
-    // Return keys in symbol table as an Iterable.
-    public final Iterable<K> keysIterable()
+    // Is a resize still migrating chains out of the previous array?
+    protected final boolean isRehashing()
     {
-        LinkedList<K> queue = new LinkedList<K>();
+        return ( this.oldSymTables != null );
+    }
 
-        for ( int i = 0; i < this.getMaxSize(); i++ )
+    // Is chain i currently stored as a tree?
+    private boolean isTreeified(final int i)
+    {
+        return ( ( this.treeBins != null ) && ( this.treeBins[i] != null ) );
+    }
+
+    // Return keys in symbol table as an Iterable. This is a live view which copies nothing; see keysIterator().
+    public final Iterable<K> keysIterable()
+    {
+        return new Iterable<K>()
         {
-            for ( K key : this.getSymTables()[i].keys() )
+            @Override
+            public Iterator<K> iterator()
             {
-                queue.add(key);
+                return SeparateChainingSymbolTable.this.keysIterator();
             }
-        }
+        };
+    }
 
-        return queue;
+    // Return a fail-fast cursor over the keys, which walks the chains in place.
+    public final Iterator<K> keysIterator()
+    {
+        return Spliterators.iterator(this.keysSpliterator());
     }
-    
+
     // Return keys in symbol table as a list.
     public final List<K> keysList()
     {
         List<K> queue = new LinkedList<K>();
 
-        for ( int i = 0; i < this.getMaxSize(); i++ )
+        for ( K key : this.keysIterable() )
         {
-            for ( K key : this.getSymTables()[i].keys() )
+            queue.add(key);
+        }
+
+        return queue;
+    }
+
+    // Return a fail-fast Spliterator over the keys, which splits the chain array into ranges for parallel traversal.
+    public final Spliterator<K> keysSpliterator()
+    {
+        return new ChainSpliterator<K>(new KeyExtractor<K, V>());
+    }
+
+    // Return a stream of the keys, sequential or parallel, which reads the chains in place.
+    public final Stream<K> keysStream(final boolean parallel)
+    {
+        return StreamSupport.stream(this.keysSpliterator(), parallel);
+    }
+
+    // Move chain j of the previous array into the current array, walking its nodes in place. A pooled list node is released before its pair is inserted, so
+    // that the insertion can reuse it.
+    @SuppressWarnings("unchecked")
+    private void migrateChain(final int j)
+    {
+        this.modCount++;
+        RedBlackSymbolTable<K, V> tree = ( ( this.oldTreeBins == null ) ? null : this.oldTreeBins[j] );
+
+        if ( tree != null )
+        {
+            for ( Iterator<KeyValuePair<K, V>> pairs = tree.entryIterator(); pairs.hasNext(); )
             {
-                queue.add(key);
+                KeyValuePair<K, V> pair = pairs.next();
+                this.bucketPut((int) this.hash(pair.getKey()), pair.getKey(), pair.getValue());
             }
+
+            this.oldTreeBins[j] = null;
         }
+        else
+        {
+            Node x = this.oldSymTables[j].getFirst();
 
-        return queue;
+            while ( x != null )
+            {
+                KeyValueNode<K, V> node = (KeyValueNode<K, V>) x;
+                K key = node.getKey();
+                V value = node.getValue();
+                x = x.getNext();
+
+                if ( this.nodePool != null )
+                {
+                    this.nodePool.release(node);
+                }
+
+                this.bucketPut((int) this.hash(key), key, value);
+            }
+        }
+
+        this.oldSymTables[j] = null;
+    }
+
+    // Migrate the previous array's chain for key, if it has not been migrated yet, so that the key can be modified in the current array alone.
+    private void migrateChainOf(final K key)
+    {
+        if ( !this.isRehashing() ) { return; }
+
+        int j = this.oldIndexFor(key);
+
+        if ( this.oldSymTables[j] != null )
+        {
+            this.migrateChain(j);
+        }
+    }
+
+    // Might the key be in the table? Always true when no filter is enabled.
+    private boolean mightContain(final K key)
+    {
+        if ( this.bloomFilter == null ) { return true; }
+
+        int hash = key.hashCode();
+        return ( this.bloomFilter.mightContain(hash) || ( ( this.oldBloom != null ) && this.oldBloom.mightContain(hash) ) );
+    }
+
+    private SequentialSearchSymbolTable<K, V> newChain()
+    {
+        SequentialSearchSymbolTable<K, V> chain = new SequentialSearchSymbolTable<K, V>(this.getChainOrganization());
+        chain.setNodePool(this.nodePool);
+        return chain;
+    }
+
+    // Index of key's chain in the previous array.
+    private int oldIndexFor(final K key)
+    {
+        return this.getSizingPolicy().indexFor(key.hashCode(), this.oldSymTables.length);
     }
 
     // Insert key-value pair into the table.
@@ -154,39 +669,93 @@ public class SeparateChainingSymbolTable<K, V>
             return;
         }
 
-        // Increase table size if average length of list >= 10.
-        if ( this.getCurSize() >= ( 10 * this.getMaxSize() ) )
+        // Increase table size if average length of list >= GROW_AVERAGE_LENGTH.
+        if ( !this.isRehashing() && ( this.getCapacity() < 31 )
+                && ( this.getCurSize() >= ( SeparateChainingSymbolTable.GROW_AVERAGE_LENGTH * this.getMaxSize() ) ) )
         {
             this.setCapacity(this.getCapacity() + 1);
-            this.resize(SeparateChainingSymbolTable.PRIMES(this.getCapacity()));
+            this.resize(this.chainsFor(this.getCapacity()));
         }
 
-        long i = this.hash(key);
+        this.migrateChainOf(key);
+        this.metrics.beginUpdate();
 
-        if ( !this.getSymTables()[(int)i].contains(key) )
+        try
         {
-            this.setCurSize(this.getCurSize() + 1);
+            if ( this.bucketPut((int) this.hash(key), key, value) )
+            {
+                this.modCount++;
+                this.setCurSize(this.getCurSize() + 1);
+            }
+        }
+        finally
+        {
+            this.metrics.endUpdate();
         }
 
-        this.getSymTables()[(int)i].put(key, value);
+        this.rehashStep();
     }
 
-    // Resize the hash table to have the given number of chains by rehashing all of the keys.
-    protected final void resize(final long chains)
+    // Migrate a bounded number of chains from the previous array, releasing it once it has been drained.
+    private void rehashStep()
     {
-        SeparateChainingSymbolTable<K, V> temp = new SeparateChainingSymbolTable<K, V>(chains);
+        if ( !this.isRehashing() ) { return; }
 
-        for ( int i = 0; i < this.getMaxSize(); i++ )
+        long startTime = System.nanoTime();
+        int limit = Math.min(this.oldSymTables.length, this.rehashIndex + SeparateChainingSymbolTable.REHASH_CHAINS_PER_OPERATION);
+
+        for ( ; this.rehashIndex < limit; this.rehashIndex++ )
         {
-            for ( K key : this.getSymTables()[i].keys() )
+            if ( this.oldSymTables[this.rehashIndex] != null )
             {
-                temp.put(key, this.getSymTables()[i].get(key));
+                this.migrateChain(this.rehashIndex);
             }
         }
 
-        this.setMaxSize(temp.getMaxSize());
-        this.setCurSize(temp.getCurSize());
-        this.setSymTables(temp.getSymTables());
+        if ( this.rehashIndex >= this.oldSymTables.length )
+        {
+            this.oldBloom = null;
+            this.oldSymTables = null;
+            this.oldTreeBins = null;
+            this.rehashIndex = 0;
+        }
+
+        this.metrics.recordResizeTime(System.nanoTime() - startTime);
+    }
+
+    // Start resizing the hash table to have the given number of chains. The keys are migrated incrementally by later operations; see rehashStep().
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected final void resize(final long chains)
+    {
+        // Only reachable when a caller resizes explicitly in the middle of a migration; finish the old migration first.
+        while ( this.isRehashing() )
+        {
+            this.rehashStep();
+        }
+
+        long startTime = System.nanoTime();
+        this.modCount++;
+        this.oldSymTables = this.getSymTables();
+        this.oldTreeBins = this.treeBins;
+        this.rehashIndex = 0;
+        this.setSymTables(new SequentialSearchSymbolTable[(int) chains]);
+        this.treeBins = null;
+
+        // Start a filter for the new array. Until migration is complete, keys not yet migrated are covered by the old filter.
+        if ( this.bloomFilter != null )
+        {
+            this.oldBloom = this.bloomFilter;
+            this.bloomFilter = new BloomFilter(SeparateChainingSymbolTable.GROW_AVERAGE_LENGTH * chains, this.bloomFpr);
+        }
+
+        // The histogram describes the current array, whose chains all start out empty.
+        this.metrics.beginUpdate();
+        this.setMaxSize(chains);
+        this.metrics.clearLengths();
+        this.metrics.recordLength(0, chains);
+        this.metrics.recordResize();
+        this.metrics.recordResizeTime(System.nanoTime() - startTime);
+        this.metrics.endUpdate();
     }
 
     // Set the current capacity factor of the symbol table.
@@ -213,12 +782,72 @@ public class SeparateChainingSymbolTable<K, V>
     protected final void setCurSize(final long curSize)
     {
         this.curSize = curSize;
+        this.metrics.recordLoad(this.curSize, this.maxSize);
     }
 
     // Set the maximum size of the symbol table.
     protected final void setMaxSize(final long maxSize)
     {
         this.maxSize = maxSize;
+        this.metrics.recordLoad(this.curSize, this.maxSize);
+    }
+
+    // Give every linked-list chain, present and future, a pool to draw nodes from and return deleted nodes to; null to allocate every node.
+    public final void setNodePool(final NodePool<KeyValueNode<K, V>> nodePool)
+    {
+        this.nodePool = nodePool;
+
+        for ( SequentialSearchSymbolTable<K, V>[] chains : Arrays.asList(this.getSymTables(), this.oldSymTables) )
+        {
+            for ( int i = 0; ( chains != null ) && ( i < chains.length ); i++ )
+            {
+                if ( chains[i] != null )
+                {
+                    chains[i].setNodePool(nodePool);
+                }
+            }
+        }
+    }
+
+    // Convert chain i from a linked list into a tree, walking its nodes in place and releasing each pooled node once its pair is in the tree.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void treeify(final int i)
+    {
+        if ( this.treeBins == null )
+        {
+            this.treeBins = new RedBlackSymbolTable[(int) this.getMaxSize()];
+        }
+
+        RedBlackSymbolTable<K, V> tree = new RedBlackSymbolTable<K, V>();
+        Node x = this.getSymTables()[i].getFirst();
+
+        while ( x != null )
+        {
+            KeyValueNode<K, V> node = (KeyValueNode<K, V>) x;
+            x = x.getNext();
+            tree.put(node.getKey(), node.getValue());
+
+            if ( this.nodePool != null )
+            {
+                this.nodePool.release(node);
+            }
+        }
+
+        this.treeBins[i] = tree;
+        this.getSymTables()[i] = this.newChain();
+    }
+
+    // Convert chain i from a tree back into a linked list.
+    private void untreeify(final int i)
+    {
+        SequentialSearchSymbolTable<K, V> chain = this.getSymTables()[i];
+
+        for ( K key : this.treeBins[i].keys() )
+        {
+            chain.put(key, this.treeBins[i].get(key));
+        }
+
+        this.treeBins[i] = null;
     }
 
     // Set the internal symbol table array.
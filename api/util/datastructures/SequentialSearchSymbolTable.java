@@ -5,6 +5,12 @@
  * 
  * A minimalist generic sequential search table data structure.
  * 
+ * A table can organize itself around a skewed access pattern. Under MOVE_TO_FRONT every key found by a lookup is moved to the head of the list;
+ * under TRANSPOSE it is swapped with its predecessor, which adapts more slowly but is not thrown off by a single access to a rarely used key.
+ * Either way the most frequently used keys gather near the head, where lookups find them after a few comparisons.
+ * 
+ * With a NodePool, nodes come from the pool and deleted nodes go back to it; see NodePool for what that means for references to nodes and their pairs.
+ * 
  * TODO: Finish double-linked list functionality. Currently only supports single-linked list functionality.
  */
 
@@ -14,14 +20,31 @@ import java.util.LinkedList;
 
 public class SequentialSearchSymbolTable<K, V>
 {
-    private Node first = null;	// The head to the linked list of key-value pairs.
-    private Node last  = null;	// The tail to the linked list of key-value pairs.
-    private long size  = 0;     // Number of key-value pairs.
+    public static enum SelfOrganization
+    {
+        MOVE_TO_FRONT, NONE, TRANSPOSE
+    }
+
+    private Node                         first        = null; // The head to the linked list of key-value pairs.
+    private Node                         last         = null; // The tail to the linked list of key-value pairs.
+    private NodePool<KeyValueNode<K, V>> nodePool     = null; // Source of recycled nodes, or null to allocate every node.
+    private final SelfOrganization       organization;        // How lookups reorder the list.
+    private long                         size         = 0;    // Number of key-value pairs.
+
+    public SequentialSearchSymbolTable()
+    {
+        this(SelfOrganization.NONE);
+    }
+
+    public SequentialSearchSymbolTable(final SelfOrganization organization)
+    {
+        this.organization = organization;
+    }
 
     // Is the key in the symbol table?
     public final boolean contains(final K key)
     {
-        return ( this.get(key) != null );
+        return ( this.search(key) != null );
     }
 
     public final void delete(final K key)
@@ -29,32 +52,41 @@ public class SequentialSearchSymbolTable<K, V>
         this.setFirst(this.delete(this.getFirst(), key));
     }
 
-    // Delete key (and associated value) if key is in the table.
+    // Delete key (and associated value) if key is in the list starting at 'node'. Returns the head of the resulting list.
     @SuppressWarnings("unchecked")
     protected final Node delete(final Node node, final K key)
     {
-        if ( node == null ) { return null; }
+        Node previous = null;
 
-        if ( key.equals(( (KeyValueNode<K, V>) node ).getKey()) )
+        for ( Node x = node; x != null; x = x.getNext() )
         {
-            this.setSize(this.getSize() - 1);
-            return node.getNext();
+            if ( key.equals(( (KeyValueNode<K, V>) x ).getKey()) )
+            {
+                this.setSize(this.getSize() - 1);
+                Node next = x.getNext();
+
+                if ( this.nodePool != null )
+                {
+                    this.nodePool.release((KeyValueNode<K, V>) x);
+                }
+
+                if ( previous == null ) { return next; }
+
+                previous.setNext(next);
+                return node;
+            }
+
+            previous = x;
         }
 
-        node.setNext(this.delete(node.getNext(), key));
         return node;
     }
 
     // Return value associated with key, null if no such key.
-    @SuppressWarnings("unchecked")
     public final V get(final K key)
     {
-        for ( Node x = this.getFirst(); x != null; x = x.getNext() )
-        {
-            if ( key.equals(( (KeyValueNode<K, V>) x ).getKey()) ) { return ( (KeyValueNode<K, V>) x ).getValue(); }
-        }
-
-        return null;
+        KeyValueNode<K, V> node = this.search(key);
+        return ( ( node == null ) ? null : node.getValue() );
     }
 
     public final Node getFirst()
@@ -67,6 +99,16 @@ public class SequentialSearchSymbolTable<K, V>
         return this.last;
     }
 
+    public final NodePool<KeyValueNode<K, V>> getNodePool()
+    {
+        return this.nodePool;
+    }
+
+    public final SelfOrganization getOrganization()
+    {
+        return this.organization;
+    }
+
     // Return the size of the symbol table.
     public final long getSize()
     {
@@ -94,7 +136,6 @@ public class SequentialSearchSymbolTable<K, V>
     }
 
     // Insert key-value pair into the table.
-    @SuppressWarnings("unchecked")
     public final void put(final K key, final V value)
     {
         if ( value == null )
@@ -103,17 +144,74 @@ public class SequentialSearchSymbolTable<K, V>
             return;
         }
 
+        KeyValueNode<K, V> node = this.search(key);
+
+        if ( node != null )
+        {
+            node.setValue(value);
+            return;
+        }
+
+        KeyValueNode<K, V> newNode = ( ( this.nodePool != null ) ? this.nodePool.acquire() : null );
+
+        if ( newNode == null )
+        {
+            newNode = new KeyValueNode<K, V>(key, value, null, null);
+        }
+        else
+        {
+            newNode.setKey(key);
+            newNode.setValue(value);
+        }
+
+        newNode.setNext(this.getFirst());
+        this.setFirst(newNode);
+        this.setSize(this.getSize() + 1);
+    }
+
+    // Return the node holding the key, or null, after reordering the list as the self-organization mode requires.
+    @SuppressWarnings("unchecked")
+    private KeyValueNode<K, V> search(final K key)
+    {
+        Node beforePrevious = null;
+        Node previous = null;
+
         for ( Node x = this.getFirst(); x != null; x = x.getNext() )
         {
             if ( key.equals(( (KeyValueNode<K, V>) x ).getKey()) )
             {
-                ( (KeyValueNode<K, V>) x ).setValue(value);
-                return;
+                if ( previous != null )
+                {
+                    if ( this.getOrganization() == SelfOrganization.MOVE_TO_FRONT )
+                    {
+                        previous.setNext(x.getNext());
+                        x.setNext(this.getFirst());
+                        this.setFirst(x);
+                    }
+                    else if ( this.getOrganization() == SelfOrganization.TRANSPOSE )
+                    {
+                        previous.setNext(x.getNext());
+                        x.setNext(previous);
+
+                        if ( beforePrevious == null )
+                        {
+                            this.setFirst(x);
+                        }
+                        else
+                        {
+                            beforePrevious.setNext(x);
+                        }
+                    }
+                }
+
+                return (KeyValueNode<K, V>) x;
             }
+
+            beforePrevious = previous;
+            previous = x;
         }
 
-        this.setFirst(new KeyValueNode<K, V>(key, value, this.getFirst(), null));
-        this.setSize(this.getSize() + 1);
+        return null;
     }
 
     protected final void setFirst(final Node first)
@@ -126,6 +224,12 @@ public class SequentialSearchSymbolTable<K, V>
         this.last = last;
     }
 
+    // Draw nodes from a pool and return deleted nodes to it, or allocate every node if the pool is null.
+    public final void setNodePool(final NodePool<KeyValueNode<K, V>> nodePool)
+    {
+        this.nodePool = nodePool;
+    }
+
     protected final void setSize(final long size)
     {
         this.size = size;
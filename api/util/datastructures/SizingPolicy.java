@@ -0,0 +1,67 @@
+/*
+ * Title: SizingPolicy
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * How a hash table chooses its capacity and maps hash codes onto indexes.
+ *
+ * PRIME sizes tables to prime numbers and reduces hash codes with the remainder operator. Finding a prime takes trial division on every resize,
+ * and every lookup pays for an integer division.
+ * POWER_OF_TWO sizes tables to powers of two and reduces hash codes with a bit mask. The hash code is first passed through a bit-mixing finalizer,
+ * so that the high bits influence the low bits which the mask keeps; otherwise keys differing only in their high bits would all collide.
+ */
+
+package api.util.datastructures;
+
+import api.util.Mathematics;
+
+public enum SizingPolicy
+{
+    POWER_OF_TWO, PRIME;
+
+    public static final int MAXIMUM_POWER_OF_TWO = ( 1 << 30 );
+
+    // Return the smallest capacity allowed by this policy which is at least 'minimum'.
+    public final int capacityAtLeast(final long minimum)
+    {
+        if ( this == SizingPolicy.PRIME ) { return (int) Mathematics.makePrimeGreater(Math.max(minimum, 2)); }
+
+        if ( minimum >= SizingPolicy.MAXIMUM_POWER_OF_TWO ) { return SizingPolicy.MAXIMUM_POWER_OF_TWO; }
+
+        return Math.max(2, Integer.highestOneBit((int) Math.max(minimum, 1) * 2 - 1));
+    }
+
+    // Map a hash code onto an index between 0 and capacity-1. The capacity must have been produced by this policy.
+    public final int indexFor(final int hashCode, final int capacity)
+    {
+        if ( this == SizingPolicy.PRIME ) { return ( ( hashCode & 0x7FFFFFFF ) % capacity ); }
+
+        return ( SizingPolicy.mix(hashCode) & ( capacity - 1 ) );
+    }
+
+    // The 32-bit finalizer of MurmurHash3: every input bit affects every output bit with probability close to one half.
+    public static final int mix(final int hashCode)
+    {
+        int h = hashCode;
+        h ^= ( h >>> 16 );
+        h *= 0x85EBCA6B;
+        h ^= ( h >>> 13 );
+        h *= 0xC2B2AE35;
+        h ^= ( h >>> 16 );
+        return h;
+    }
+
+    // Return the index following 'index' in a probe sequence, where 'step' is the number of probes already made.
+    // Under PRIME, quadratic probing visits h + step^2, computed incrementally as the previous index plus (2 * step) - 1.
+    // Under POWER_OF_TWO, h + step^2 would revisit slots, so quadratic probing visits h + step * (step + 1) / 2 instead, which reaches every slot.
+    public final int nextProbe(final int index, final int step, final int capacity, final boolean linear)
+    {
+        if ( this == SizingPolicy.PRIME )
+        {
+            long next = index + ( linear ? 1L : ( ( 2L * step ) - 1 ) );
+            return (int) ( next % capacity );
+        }
+
+        return ( ( index + ( linear ? 1 : step ) ) & ( capacity - 1 ) );
+    }
+}
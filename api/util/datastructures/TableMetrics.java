@@ -0,0 +1,142 @@
+/*
+ * Title: TableMetrics
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * An immutable snapshot of the health of a hash table, taken at a single point in time.
+ *
+ * For open-addressing tables the histogram counts lookups by the number of slots probed.
+ * For separate chaining tables it counts chains by their length.
+ * The last bucket of the histogram collects every length greater than or equal to its index.
+ */
+
+package api.util.datastructures;
+
+import java.util.Arrays;
+
+public final class TableMetrics
+{
+    private final long   capacity;
+    private final long[] histogram;
+    private final long   maxLength;
+    private final int    p99Length;
+    private final long   resizeCount;
+    private final long   resizeNanos;
+    private final long   size;
+    private final long   totalProbeLenFailure;
+    private final long   totalProbeLenSuccess;
+
+    public TableMetrics(final long[] histogram, final long maxLength, final long totalProbeLenSuccess, final long totalProbeLenFailure, final long resizeCount, final long resizeNanos, final long size, final long capacity)
+    {
+        this.capacity = capacity;
+        this.histogram = Arrays.copyOf(histogram, histogram.length);
+        this.maxLength = maxLength;
+        this.p99Length = TableMetrics.percentile(this.histogram, 0.99);
+        this.resizeCount = resizeCount;
+        this.resizeNanos = resizeNanos;
+        this.size = size;
+        this.totalProbeLenFailure = totalProbeLenFailure;
+        this.totalProbeLenSuccess = totalProbeLenSuccess;
+    }
+
+    // Return the smallest length such that at least the given fraction of the observations are no longer than it.
+    private static final int percentile(final long[] histogram, final double fraction)
+    {
+        long total = 0;
+
+        for ( long count : histogram )
+        {
+            total += count;
+        }
+
+        if ( total == 0 ) { return 0; }
+
+        long threshold = (long) Math.ceil(total * fraction);
+        long cumulative = 0;
+
+        for ( int i = 0; i < histogram.length; i++ )
+        {
+            cumulative += histogram[i];
+
+            if ( cumulative >= threshold ) { return i; }
+        }
+
+        return ( histogram.length - 1 );
+    }
+
+    public final long getCapacity()
+    {
+        return this.capacity;
+    }
+
+    public final long[] getHistogram()
+    {
+        return Arrays.copyOf(this.histogram, this.histogram.length);
+    }
+
+    public final double getLoadFactor()
+    {
+        return ( ( this.getCapacity() == 0 ) ? 0.0 : ( (double) this.getSize() / this.getCapacity() ) );
+    }
+
+    public final long getMaxLength()
+    {
+        return this.maxLength;
+    }
+
+    public final int getP99Length()
+    {
+        return this.p99Length;
+    }
+
+    public final long getResizeCount()
+    {
+        return this.resizeCount;
+    }
+
+    public final long getResizeNanos()
+    {
+        return this.resizeNanos;
+    }
+
+    public final long getSize()
+    {
+        return this.size;
+    }
+
+    public final long getTotalProbeLenFailure()
+    {
+        return this.totalProbeLenFailure;
+    }
+
+    public final long getTotalProbeLenSuccess()
+    {
+        return this.totalProbeLenSuccess;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TableMetrics [size=");
+        builder.append(this.getSize());
+        builder.append(", capacity=");
+        builder.append(this.getCapacity());
+        builder.append(", loadFactor=");
+        builder.append(String.format("%.3f", this.getLoadFactor()));
+        builder.append(", maxLength=");
+        builder.append(this.getMaxLength());
+        builder.append(", p99Length=");
+        builder.append(this.getP99Length());
+        builder.append(", resizeCount=");
+        builder.append(this.getResizeCount());
+        builder.append(", resizeNanos=");
+        builder.append(this.getResizeNanos());
+        builder.append(", totalProbeLenSuccess=");
+        builder.append(this.getTotalProbeLenSuccess());
+        builder.append(", totalProbeLenFailure=");
+        builder.append(this.getTotalProbeLenFailure());
+        builder.append("]");
+        return builder.toString();
+    }
+}
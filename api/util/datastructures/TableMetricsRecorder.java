@@ -0,0 +1,209 @@
+/*
+ * Title: TableMetricsRecorder
+ * Author: Matthew Boyette
+ * Date: 10/16/2026
+ *
+ * Accumulates the probe-length (or chain-length) histogram, load, and resize statistics of a hash table.
+ * The owning table records from one thread at a time, and a monitoring thread can take a consistent snapshot while the table is in use. recordProbe() is on
+ * the lookup path, so instead of a lock the recorder uses a sequence lock: each update makes the stamp odd, changes the counters, and makes it even again, all
+ * with ordered stores, which cost no more than plain ones on common hardware. snapshot() copies the counters and retries until it read the same even stamp
+ * before and after the copy. A table operation which records several changes brackets them with beginUpdate() and endUpdate(), so that a snapshot sees all
+ * of them or none.
+ *
+ * For a chain-length histogram the maximum follows the longest chain down as well as up. It is exact while it is below the last bucket, and afterwards an
+ * upper bound until that bucket empties. For a probe-length histogram it is the longest lookup since the last clearLengths().
+ */
+
+package api.util.datastructures;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class TableMetricsRecorder
+{
+    public static final int HISTOGRAM_BUCKETS = 64;
+
+    private final AtomicLong      capacity             = new AtomicLong();
+    private int                   depth                = 0;                // Nesting depth of the updates in progress; only the recording thread uses it.
+    private final AtomicLongArray histogram            = new AtomicLongArray(TableMetricsRecorder.HISTOGRAM_BUCKETS);
+    private final AtomicLong      maxLength            = new AtomicLong();
+    private final AtomicLong      resizeCount          = new AtomicLong();
+    private final AtomicLong      resizeNanos          = new AtomicLong();
+    private final AtomicLong      size                 = new AtomicLong();
+    private final AtomicLong      stamp                = new AtomicLong(); // Odd while an update is in progress.
+    private final AtomicLong      totalProbeLenFailure = new AtomicLong();
+    private final AtomicLong      totalProbeLenSuccess = new AtomicLong();
+
+    // Add to a counter which only the recording thread writes.
+    private static final void add(final AtomicLong counter, final long delta)
+    {
+        counter.lazySet(counter.get() + delta);
+    }
+
+    private void addToBucket(final int bucket, final long delta)
+    {
+        this.histogram.lazySet(bucket, this.histogram.get(bucket) + delta);
+    }
+
+    // Mark the start of an update. A table brackets an operation which records several changes, so that no snapshot sees only some of them; updates nest.
+    public final void beginUpdate()
+    {
+        if ( this.depth++ == 0 )
+        {
+            TableMetricsRecorder.add(this.stamp, 1);
+        }
+    }
+
+    private static final int bucket(final long length)
+    {
+        return (int) Math.min(Math.max(length, 0), TableMetricsRecorder.HISTOGRAM_BUCKETS - 1);
+    }
+
+    // Clear the histogram and the maximum length, keeping the probe totals and resize statistics.
+    public final void clearLengths()
+    {
+        this.beginUpdate();
+
+        for ( int i = 0; i < this.histogram.length(); i++ )
+        {
+            this.histogram.lazySet(i, 0);
+        }
+
+        this.maxLength.lazySet(0);
+        this.endUpdate();
+    }
+
+    // Mark the end of an update, publishing its changes once the outermost update ends.
+    public final void endUpdate()
+    {
+        if ( --this.depth == 0 )
+        {
+            TableMetricsRecorder.add(this.stamp, 1);
+        }
+    }
+
+    public final long getResizeCount()
+    {
+        return this.resizeCount.get();
+    }
+
+    public final long getTotalProbeLenFailure()
+    {
+        return this.totalProbeLenFailure.get();
+    }
+
+    public final long getTotalProbeLenSuccess()
+    {
+        return this.totalProbeLenSuccess.get();
+    }
+
+    // Add 'count' observations of the given length to the histogram.
+    public final void recordLength(final long length, final long count)
+    {
+        this.beginUpdate();
+        this.addToBucket(TableMetricsRecorder.bucket(length), count);
+
+        if ( ( count > 0 ) && ( length > this.maxLength.get() ) )
+        {
+            this.maxLength.lazySet(length);
+        }
+
+        this.endUpdate();
+    }
+
+    // Move one observation from one length to another, as when a chain gains or loses an entry.
+    public final void recordLengthChange(final long oldLength, final long newLength)
+    {
+        this.beginUpdate();
+        this.addToBucket(TableMetricsRecorder.bucket(oldLength), -1);
+        this.addToBucket(TableMetricsRecorder.bucket(newLength), 1);
+
+        if ( newLength > this.maxLength.get() )
+        {
+            this.maxLength.lazySet(newLength);
+        }
+        else if ( ( oldLength == this.maxLength.get() ) && ( this.histogram.get(TableMetricsRecorder.bucket(oldLength)) == 0 ) )
+        {
+            // The longest chain shrank and no other had its length; the new maximum is the highest length still observed.
+            int i = TableMetricsRecorder.bucket(oldLength);
+
+            while ( ( i > 0 ) && ( this.histogram.get(i) == 0 ) )
+            {
+                i--;
+            }
+
+            this.maxLength.lazySet(i);
+        }
+
+        this.endUpdate();
+    }
+
+    // Record the table's current number of elements and capacity, so that a snapshot reports them together with the histogram.
+    public final void recordLoad(final long size, final long capacity)
+    {
+        this.beginUpdate();
+        this.size.lazySet(size);
+        this.capacity.lazySet(capacity);
+        this.endUpdate();
+    }
+
+    // Record the outcome of a single lookup which probed 'probeLen' slots.
+    public final void recordProbe(final int probeLen, final boolean success)
+    {
+        this.beginUpdate();
+        this.addToBucket(TableMetricsRecorder.bucket(probeLen), 1);
+
+        if ( probeLen > this.maxLength.get() )
+        {
+            this.maxLength.lazySet(probeLen);
+        }
+
+        TableMetricsRecorder.add(( success ? this.totalProbeLenSuccess : this.totalProbeLenFailure ), probeLen);
+        this.endUpdate();
+    }
+
+    public final void recordResize()
+    {
+        this.beginUpdate();
+        TableMetricsRecorder.add(this.resizeCount, 1);
+        this.endUpdate();
+    }
+
+    public final void recordResizeTime(final long nanos)
+    {
+        this.beginUpdate();
+        TableMetricsRecorder.add(this.resizeNanos, nanos);
+        this.endUpdate();
+    }
+
+    // Return a consistent snapshot of every statistic, retrying while an update is in progress. Safe to call from a monitoring thread.
+    public final TableMetrics snapshot()
+    {
+        long[] histogram = new long[TableMetricsRecorder.HISTOGRAM_BUCKETS];
+
+        while ( true )
+        {
+            long stamp = this.stamp.get();
+
+            if ( ( stamp & 1 ) == 0 )
+            {
+                for ( int i = 0; i < histogram.length; i++ )
+                {
+                    histogram[i] = this.histogram.get(i);
+                }
+
+                long maxLength = this.maxLength.get();
+                long totalProbeLenSuccess = this.totalProbeLenSuccess.get();
+                long totalProbeLenFailure = this.totalProbeLenFailure.get();
+                long resizeCount = this.resizeCount.get();
+                long resizeNanos = this.resizeNanos.get();
+                long size = this.size.get();
+                long capacity = this.capacity.get();
+
+                if ( this.stamp.get() == stamp ) { return new TableMetrics(histogram, maxLength, totalProbeLenSuccess, totalProbeLenFailure, resizeCount, resizeNanos, size, capacity); }
+            }
+
+            Thread.yield();
+        }
+    }
+}
@@ -4,40 +4,390 @@
  * Date: 6/5/2013
  * 
  * A minimalist generic binary tree data structure.
+ *
+ * The tree is an ordered set kept balanced as a red-black tree, so find(), insert(), and delete() take O(log n) time. Elements are ordered by the
+ * Comparator given to the constructor, or by their natural ordering if there is none; elements which compare equal are duplicates, and null elements are
+ * not allowed. An ordered map can be kept as a tree of KeyValuePairs with a Comparator on their keys.
+ *
+ * Deleting an element with two children moves the next element into its node, so a node returned by find() may hold a different element after a delete().
+ *
+ * Each node caches the height and size of its subtree, which insert() and delete() keep up to date. getHeight() is therefore O(1), and rank(), select(), and
+ * countRange() answer order-statistic queries in O(log n) time.
+ *
+ * With a NodePool, inserted nodes come from the pool, and delete() and clear() return nodes to it.
+ *
+ * A tree which has been filled and will now only be searched can be copied by freeze() into a FrozenTree, which lays the elements out in one array.
+ *
+ * The elements can be traversed in order, preorder, or postorder by an Iterator, a Spliterator, or a stream. These keep an explicit stack of the subtrees
+ * not yet visited rather than recursing, so their call stack use does not depend on the height of the tree, and they follow only child links, so they also
+ * walk trees such as HuffmanTree's whose nodes have no parent links; they are fail-fast. A Spliterator splits off the subtrees at the front of its stack, and
+ * forEachParallel() hands subtrees to the fork/join pool in the same way.
  */
 
 package api.util.datastructures;
 
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import edu.princeton.cs.algs4.StdOut;
 
-public class Tree<T>
+public class Tree<T> implements Iterable<T>
 {
-    private TreeNode<T> root = null;
-    private int         size = 0;
+    // A part of a traversal not yet started: either a single node, or a whole subtree.
+    private static final class Part<T>
+    {
+        private final boolean     isSubtree;
+        private final TreeNode<T> node;
+
+        private Part(final TreeNode<T> node, final boolean isSubtree)
+        {
+            this.isSubtree = isSubtree;
+            this.node = node;
+        }
+    }
+
+    // Visit a subtree, forking a task for each child subtree until 'depth' levels have been split, and walking the rest sequentially.
+    private final class SubtreeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Consumer<? super T> action;
+        private final int                 depth;
+        private final TreeNode<T>         root;
+
+        private SubtreeTask(final TreeNode<T> root, final int depth, final Consumer<? super T> action)
+        {
+            this.action = action;
+            this.depth = depth;
+            this.root = root;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void compute()
+        {
+            if ( this.depth <= 0 )
+            {
+                new TraversalSpliterator<T>(this.root, Traversal.IN_ORDER, TreeNode::getData).forEachRemaining(this.action);
+                return;
+            }
+
+            TreeNode<T> left = (TreeNode<T>) this.root.getLeft();
+            TreeNode<T> right = (TreeNode<T>) this.root.getRight();
+            SubtreeTask leftTask = ( ( left == null ) ? null : new SubtreeTask(left, this.depth - 1, this.action) );
+
+            if ( leftTask != null )
+            {
+                leftTask.fork();
+            }
+
+            this.action.accept(this.root.getData());
+
+            if ( right != null )
+            {
+                new SubtreeTask(right, this.depth - 1, this.action).compute();
+            }
+
+            if ( leftTask != null )
+            {
+                leftTask.join();
+            }
+        }
+    }
+
+    public static enum Traversal
+    {
+        IN_ORDER, POST_ORDER, PRE_ORDER
+    }
+
+    // A fail-fast traversal of a sequence of parts of the tree. A subtree is walked by replacing it with its root and its child subtrees until a single node
+    // comes first, so only child links are followed and the pending parts stay within about twice the height of the tree.
+    private final class TraversalSpliterator<E> implements Spliterator<E>
+    {
+        private long                           estimate;
+        private final int                      expectedModCount;
+        private final Function<TreeNode<T>, E> extractor;
+        private final Traversal                order;
+        private final ArrayDeque<Part<T>>      pending; // The parts not yet visited, in traversal order.
+
+        private TraversalSpliterator(final TreeNode<T> root, final Traversal order, final Function<TreeNode<T>, E> extractor)
+        {
+            this.estimate = Tree.this.getSize();
+            this.expectedModCount = Tree.this.modCount;
+            this.extractor = extractor;
+            this.order = order;
+            this.pending = new ArrayDeque<Part<T>>();
+
+            if ( root != null )
+            {
+                this.pending.add(new Part<T>(root, true));
+            }
+        }
+
+        private TraversalSpliterator(final TraversalSpliterator<E> parent, final ArrayDeque<Part<T>> pending, final long estimate)
+        {
+            this.estimate = estimate;
+            this.expectedModCount = parent.expectedModCount;
+            this.extractor = parent.extractor;
+            this.order = parent.order;
+            this.pending = pending;
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return ( Spliterator.DISTINCT | Spliterator.ORDERED | ( ( this.order == Traversal.IN_ORDER ) ? Spliterator.SORTED : 0 ) );
+        }
+
+        private void checkForComodification()
+        {
+            if ( Tree.this.modCount != this.expectedModCount ) { throw new ConcurrentModificationException(); }
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            return this.estimate;
+        }
+
+        // Replace the subtree at the head of the pending parts with its root and its child subtrees, in traversal order.
+        @SuppressWarnings("unchecked")
+        private void expandFirst()
+        {
+            TreeNode<T> root = this.pending.pollFirst().node;
+
+            // The parts are pushed onto the front in reverse order.
+            switch ( this.order )
+            {
+                case IN_ORDER:
+
+                    this.pushSubtree((TreeNode<T>) root.getRight());
+                    this.pending.addFirst(new Part<T>(root, false));
+                    this.pushSubtree((TreeNode<T>) root.getLeft());
+                    break;
+
+                case POST_ORDER:
+
+                    this.pending.addFirst(new Part<T>(root, false));
+                    this.pushSubtree((TreeNode<T>) root.getRight());
+                    this.pushSubtree((TreeNode<T>) root.getLeft());
+                    break;
+
+                case PRE_ORDER:
+
+                    this.pushSubtree((TreeNode<T>) root.getRight());
+                    this.pushSubtree((TreeNode<T>) root.getLeft());
+                    this.pending.addFirst(new Part<T>(root, false));
+                    break;
+            }
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super E> action)
+        {
+            for ( TreeNode<T> node = this.nextNode(); node != null; node = this.nextNode() )
+            {
+                action.accept(this.extractor.apply(node));
+            }
+
+            this.checkForComodification();
+        }
+
+        // Return the order of an in-order traversal, which is the tree's order, or null for the natural ordering.
+        @Override
+        @SuppressWarnings("unchecked")
+        public Comparator<? super E> getComparator()
+        {
+            if ( this.order != Traversal.IN_ORDER ) { throw new IllegalStateException(); }
+
+            return (Comparator<? super E>) Tree.this.getComparator();
+        }
+
+        // Return the next node of the traversal, or null once every part has been visited.
+        private TreeNode<T> nextNode()
+        {
+            while ( true )
+            {
+                Part<T> part = this.pending.peekFirst();
+
+                if ( part == null ) { return null; }
+
+                if ( !part.isSubtree )
+                {
+                    this.pending.pollFirst();
+                    return part.node;
+                }
+
+                this.expandFirst();
+            }
+        }
+
+        // Push a subtree onto the front of the pending parts, unless it is empty.
+        private void pushSubtree(final TreeNode<T> subtree)
+        {
+            if ( subtree != null )
+            {
+                this.pending.addFirst(new Part<T>(subtree, true));
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super E> action)
+        {
+            this.checkForComodification();
+            TreeNode<T> node = this.nextNode();
+
+            if ( node == null ) { return false; }
+
+            action.accept(this.extractor.apply(node));
+            return true;
+        }
+
+        // Hand the parts before the last pending subtree to a new Spliterator, first expanding that subtree if it is the only part.
+        @Override
+        public Spliterator<E> trySplit()
+        {
+            while ( true )
+            {
+                int lastSubtree = -1;
+                int i = 0;
+
+                for ( Part<T> part : this.pending )
+                {
+                    if ( part.isSubtree )
+                    {
+                        lastSubtree = i;
+                    }
+
+                    i++;
+                }
+
+                if ( lastSubtree < 0 ) { return null; }
+
+                if ( lastSubtree > 0 )
+                {
+                    ArrayDeque<Part<T>> prefix = new ArrayDeque<Part<T>>();
+
+                    for ( int j = 0; j < lastSubtree; j++ )
+                    {
+                        prefix.addLast(this.pending.pollFirst());
+                    }
+
+                    long prefixEstimate = ( this.estimate >>> 1 );
+                    this.estimate -= prefixEstimate;
+                    return new TraversalSpliterator<E>(this, prefix, prefixEstimate);
+                }
+
+                this.expandFirst();
+            }
+        }
+    }
+
+    private final Comparator<? super T> comparator;        // The element order, or null for the natural ordering.
+    private int                         modCount   = 0;    // Number of structural modifications, checked by fail-fast traversals.
+    private NodePool<TreeNode<T>>       nodePool   = null; // Source of recycled nodes, or null to allocate every node.
+    private TreeNode<T>                 root       = null;
+    private int                         size       = 0;
 
     public Tree()
     {
+        this.comparator = null;
+    }
+
+    public Tree(final Comparator<? super T> comparator)
+    {
+        this.comparator = comparator;
     }
 
     @SafeVarargs
     public Tree(final T... args)
     {
+        this.comparator = null;
+
         for ( T arg : args )
         {
             this.insert(arg);
         }
     }
 
+    // Return the node holding the least element not less than the given one, or null if there is none.
+    public final TreeNode<T> ceiling(final T data)
+    {
+        TreeIterator<T> iterator = this.getIterator();
+        return ( iterator.ceiling(data) );
+    }
+
+    @SuppressWarnings("unchecked")
     public final void clear()
     {
+        if ( ( this.getNodePool() != null ) && ( this.getRoot() != null ) )
+        {
+            ArrayDeque<TreeNode<T>> pending = new ArrayDeque<TreeNode<T>>();
+            pending.push(this.getRoot());
+
+            while ( !pending.isEmpty() )
+            {
+                TreeNode<T> node = pending.pop();
+
+                if ( node.getLeft() != null )
+                {
+                    pending.push((TreeNode<T>) node.getLeft());
+                }
+
+                if ( node.getRight() != null )
+                {
+                    pending.push((TreeNode<T>) node.getRight());
+                }
+
+                this.getNodePool().release(node);
+            }
+        }
+
         this.setRoot(null);
         this.setSize(0);
+        this.modCount++;
+    }
+
+    // Compare two elements by the tree's order.
+    @SuppressWarnings("unchecked")
+    public final int compare(final T data1, final T data2)
+    {
+        if ( this.getComparator() != null ) { return this.getComparator().compare(data1, data2); }
+
+        return ( (Comparable<? super T>) data1 ).compareTo(data2);
+    }
+
+    public final boolean contains(final T data)
+    {
+        return ( this.find(data) != null );
+    }
+
+    // Return the number of elements between 'low' and 'high', inclusive.
+    public final int countRange(final T low, final T high)
+    {
+        if ( this.compare(low, high) > 0 ) { return 0; }
+
+        return ( ( this.rank(high) - this.rank(low) ) + ( this.contains(high) ? 1 : 0 ) );
     }
 
     public final boolean delete(final T data)
     {
         TreeIterator<T> iterator = this.getIterator();
-        return ( iterator.delete(data) );
+
+        if ( !iterator.delete(data) ) { return false; }
+
+        this.modCount++;
+        return true;
     }
 
     public final TreeNode<T> find(final T data)
@@ -46,6 +396,43 @@ public class Tree<T>
         return ( iterator.find(data) );
     }
 
+    // Return the node holding the greatest element not greater than the given one, or null if there is none.
+    public final TreeNode<T> floor(final T data)
+    {
+        TreeIterator<T> iterator = this.getIterator();
+        return ( iterator.floor(data) );
+    }
+
+    // Perform an action on every element on the threads of the common fork/join pool, in no particular order. Each child subtree is handed to its own task
+    // down to a depth which gives every thread several subtrees; below that, subtrees are walked sequentially.
+    public final void forEachParallel(final Consumer<? super T> action)
+    {
+        if ( this.isEmpty() ) { return; }
+
+        int expectedModCount = this.modCount;
+        int depth = ( ( Integer.SIZE - Integer.numberOfLeadingZeros(ForkJoinPool.getCommonPoolParallelism()) ) + 2 );
+        ForkJoinPool.commonPool().invoke(new SubtreeTask(this.getRoot(), depth, action));
+
+        if ( this.modCount != expectedModCount ) { throw new ConcurrentModificationException(); }
+    }
+
+    // Return an immutable copy of this tree laid out for fast searches; see FrozenTree.
+    public final FrozenTree<T> freeze()
+    {
+        return new FrozenTree<T>(this.iterator(), this.getSize(), this.getComparator(), null);
+    }
+
+    // Return an immutable copy of this tree which searches by the long keys the function gives its elements; see FrozenTree.
+    public final FrozenTree<T> freeze(final ToLongFunction<? super T> keyFunction)
+    {
+        return new FrozenTree<T>(this.iterator(), this.getSize(), this.getComparator(), keyFunction);
+    }
+
+    public final Comparator<? super T> getComparator()
+    {
+        return this.comparator;
+    }
+
     public final int getDepth()
     {
         if ( this.isEmpty() )
@@ -58,6 +445,20 @@ public class Tree<T>
         }
     }
 
+    // Return the node holding the least element, or null if the tree is empty.
+    @SuppressWarnings("unchecked")
+    public final TreeNode<T> getFirst()
+    {
+        TreeNode<T> node = this.getRoot();
+
+        while ( ( node != null ) && ( node.getLeft() != null ) )
+        {
+            node = (TreeNode<T>) node.getLeft();
+        }
+
+        return node;
+    }
+
     public final int getHeight()
     {
         if ( this.isEmpty() )
@@ -75,6 +476,25 @@ public class Tree<T>
         return ( new TreeIterator<T>(this) );
     }
 
+    // Return the node holding the greatest element, or null if the tree is empty.
+    @SuppressWarnings("unchecked")
+    public final TreeNode<T> getLast()
+    {
+        TreeNode<T> node = this.getRoot();
+
+        while ( ( node != null ) && ( node.getRight() != null ) )
+        {
+            node = (TreeNode<T>) node.getRight();
+        }
+
+        return node;
+    }
+
+    public final NodePool<TreeNode<T>> getNodePool()
+    {
+        return this.nodePool;
+    }
+
     public final TreeNode<T> getRoot()
     {
         return this.root;
@@ -85,10 +505,17 @@ public class Tree<T>
         return this.size;
     }
 
-    public final void insert(final T data)
+    // Add an element unless the tree already holds an equal one. Return true if it was added.
+    public final boolean insert(final T data)
     {
+        if ( data == null ) { throw new IllegalArgumentException("A Tree cannot hold null elements."); }
+
         TreeIterator<T> iterator = this.getIterator();
-        iterator.insert(data);
+
+        if ( !iterator.insert(data) ) { return false; }
+
+        this.modCount++;
+        return true;
     }
 
     public final boolean isEmpty()
@@ -96,6 +523,50 @@ public class Tree<T>
         return ( this.getSize() == 0 );
     }
 
+    // Return a fail-fast cursor over the elements in order.
+    @Override
+    public final Iterator<T> iterator()
+    {
+        return this.iterator(Traversal.IN_ORDER);
+    }
+
+    // Return a fail-fast cursor over the elements in the given order.
+    public final Iterator<T> iterator(final Traversal order)
+    {
+        return Spliterators.iterator(this.spliterator(order));
+    }
+
+    // Print each node of the subtree at 'root' in the given order.
+    private void printTraversal(final TreeNode<T> root, final Traversal order)
+    {
+        Iterator<TreeNode<T>> nodes = Spliterators.iterator(new TraversalSpliterator<TreeNode<T>>(root, order, Function.identity()));
+
+        while ( nodes.hasNext() )
+        {
+            StdOut.print(nodes.next().toString() + "\n");
+        }
+    }
+
+    // Return the number of elements less than the given one.
+    public final int rank(final T data)
+    {
+        TreeIterator<T> iterator = this.getIterator();
+        return ( iterator.rank(data) );
+    }
+
+    // Return the node holding the element with the given rank, counting from 0 for the least element.
+    public final TreeNode<T> select(final int index)
+    {
+        TreeIterator<T> iterator = this.getIterator();
+        return ( iterator.select(index) );
+    }
+
+    // Draw nodes from a pool and return released nodes to it, or allocate every node if the pool is null.
+    public final void setNodePool(final NodePool<TreeNode<T>> nodePool)
+    {
+        this.nodePool = nodePool;
+    }
+
     public final void setRoot(final TreeNode<T> root)
     {
         this.root = root;
@@ -106,6 +577,25 @@ public class Tree<T>
         this.size = size;
     }
 
+    // Return a fail-fast Spliterator over the elements in order.
+    @Override
+    public final Spliterator<T> spliterator()
+    {
+        return this.spliterator(Traversal.IN_ORDER);
+    }
+
+    // Return a fail-fast Spliterator over the elements in the given order, which splits at subtree boundaries for parallel traversal.
+    public final Spliterator<T> spliterator(final Traversal order)
+    {
+        return new TraversalSpliterator<T>(this.getRoot(), order, TreeNode::getData);
+    }
+
+    // Return a stream of the elements in the given order, sequential or parallel, which reads the tree in place.
+    public final Stream<T> stream(final Traversal order, final boolean parallel)
+    {
+        return StreamSupport.stream(this.spliterator(order), parallel);
+    }
+
     @Override
     public String toString()
     {
@@ -116,36 +606,18 @@ public class Tree<T>
         return retVal;
     }
 
-    @SuppressWarnings("unchecked")
     public void traversal_inOrder(final TreeNode<T> root)
     {
-        if ( root != null )
-        {
-            this.traversal_preOrder((TreeNode<T>) root.getLeft());
-            StdOut.print(root.toString() + "\n");
-            this.traversal_preOrder((TreeNode<T>) root.getRight());
-        }
+        this.printTraversal(root, Traversal.IN_ORDER);
     }
 
-    @SuppressWarnings("unchecked")
     public void traversal_postOrder(final TreeNode<T> root)
     {
-        if ( root != null )
-        {
-            this.traversal_preOrder((TreeNode<T>) root.getLeft());
-            this.traversal_preOrder((TreeNode<T>) root.getRight());
-            StdOut.print(root.toString() + "\n");
-        }
+        this.printTraversal(root, Traversal.POST_ORDER);
     }
 
-    @SuppressWarnings("unchecked")
     public void traversal_preOrder(final TreeNode<T> root)
     {
-        if ( root != null )
-        {
-            StdOut.print(root.toString() + "\n");
-            this.traversal_preOrder((TreeNode<T>) root.getLeft());
-            this.traversal_preOrder((TreeNode<T>) root.getRight());
-        }
+        this.printTraversal(root, Traversal.PRE_ORDER);
     }
 }
@@ -2,8 +2,15 @@
  * Title: TreeIterator
  * Author: Matthew Boyette
  * Date: 6/5/2013
- * 
+ *
  * An iterator for a minimalist generic binary tree data structure.
+ *
+ * The iterator does the work of the tree's searches and updates. It walks down from the root in the tree's order, and insert() and delete() then restore
+ * the red-black invariants: the root is black, a red node has no red child, and every path from a node down to a missing child passes the same number of
+ * black nodes. No path is therefore more than twice as long as another, and every operation takes O(log n) time.
+ *
+ * Every change of structure, whether linking, unlinking, or rotating, is followed by recomputing the cached height and subtree size of the nodes from the
+ * change up to the root. The subtree sizes give rank() and select() in O(log n) time.
  */
 
 package api.util.datastructures;
@@ -22,45 +29,319 @@ public class TreeIterator<T>
         this.reset();
     }
 
+    private static final <T> boolean isRed(final TreeNode<T> node)
+    {
+        return ( ( node != null ) && node.isRed() );
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final <T> TreeNode<T> leftOf(final TreeNode<T> node)
+    {
+        return ( ( node == null ) ? null : (TreeNode<T>) node.getLeft() );
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final <T> TreeNode<T> parentOf(final TreeNode<T> node)
+    {
+        return ( ( node == null ) ? null : (TreeNode<T>) node.getParent() );
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final <T> TreeNode<T> rightOf(final TreeNode<T> node)
+    {
+        return ( ( node == null ) ? null : (TreeNode<T>) node.getRight() );
+    }
+
+    private static final <T> int sizeOf(final TreeNode<T> node)
+    {
+        return ( ( node == null ) ? 0 : node.getSubtreeSize() );
+    }
+
+    // Color a node, treating a missing node as black.
+    private static final <T> void setRed(final TreeNode<T> node, final boolean red)
+    {
+        if ( node != null )
+        {
+            node.setRed(red);
+        }
+    }
+
+    // Return the node holding the least element not less than the given one, or null if there is none.
+    public TreeNode<T> ceiling(final T data)
+    {
+        TreeNode<T> node = this.getTree().getRoot();
+        TreeNode<T> retVal = null;
+
+        while ( node != null )
+        {
+            int comparison = this.getTree().compare(data, node.getData());
+
+            if ( comparison == 0 ) { return node; }
+
+            if ( comparison < 0 )
+            {
+                retVal = node;
+                node = TreeIterator.leftOf(node);
+            }
+            else
+            {
+                node = TreeIterator.rightOf(node);
+            }
+        }
+
+        return retVal;
+    }
+
     public boolean delete(final T data)
     {
-        TreeNode<T> TreeNodeDeleted = this.find(data);
-        boolean retVal = false;
-        int newSize = this.getTree().getSize();
+        TreeNode<T> nodeFound = this.find(data);
+
+        if ( nodeFound == null ) { return false; }
 
-        if ( TreeNodeDeleted != null )
+        TreeNode<T> nodeDeleted = nodeFound;
+
+        if ( ( nodeFound.getLeft() != null ) && ( nodeFound.getRight() != null ) )
         {
-            // TODO: Needs revision.
-            newSize--;
-            retVal = true;
+            // A node with two children takes its successor's element, and the successor, which has no left child, is unlinked instead.
+            nodeDeleted = TreeIterator.rightOf(nodeFound);
+
+            while ( nodeDeleted.getLeft() != null )
+            {
+                nodeDeleted = TreeIterator.leftOf(nodeDeleted);
+            }
+
+            nodeFound.setData(nodeDeleted.getData());
         }
 
-        this.getTree().setSize(newSize);
+        TreeNode<T> replacement = ( ( nodeDeleted.getLeft() != null ) ? TreeIterator.leftOf(nodeDeleted) : TreeIterator.rightOf(nodeDeleted) );
+
+        if ( replacement != null )
+        {
+            this.replace(nodeDeleted, replacement);
+            this.recomputeUpward(replacement);
+
+            if ( !nodeDeleted.isRed() )
+            {
+                this.fixAfterDeletion(replacement);
+            }
+        }
+        else if ( nodeDeleted.isRoot() )
+        {
+            this.getTree().setRoot(null);
+        }
+        else
+        {
+            // The node stands in for its own missing child while the tree is rebalanced, and is unlinked afterward.
+            if ( !nodeDeleted.isRed() )
+            {
+                this.fixAfterDeletion(nodeDeleted);
+            }
+
+            TreeNode<T> nodeParent = TreeIterator.parentOf(nodeDeleted);
+            this.replace(nodeDeleted, null);
+            this.recomputeUpward(nodeParent);
+        }
+
+        nodeDeleted.setLeft(null);
+        nodeDeleted.setParent(null);
+        nodeDeleted.setRight(null);
+
+        if ( this.getTree().getNodePool() != null )
+        {
+            this.getTree().getNodePool().release(nodeDeleted);
+        }
+
+        this.getTree().setSize(this.getTree().getSize() - 1);
         this.reset();
-        return retVal;
+        return true;
     }
 
-    @SuppressWarnings("unchecked")
+    // Return the node holding the given element, or null if there is none. A failed search leaves the last node visited as the parent.
     public TreeNode<T> find(final T data)
     {
-        while ( this.getCurrent().getData().equals(data) == false )
+        this.reset();
+
+        while ( this.getCurrent() != null )
         {
-            boolean goLeft = true; // TODO: Needs revision.
+            int comparison = this.getTree().compare(data, this.getCurrent().getData());
+
+            if ( comparison == 0 ) { return this.getCurrent(); }
+
+            this.setParent(this.getCurrent());
+            this.setLeft(TreeIterator.leftOf(this.getCurrent()));
+            this.setRight(TreeIterator.rightOf(this.getCurrent()));
+            this.setCurrent(( comparison < 0 ) ? this.getLeft() : this.getRight());
+        }
 
-            if ( goLeft )
+        return null;
+    }
+
+    // Restore the black height of the subtree at 'node', which has one black node too few on every path, by recoloring and rotating on the way up.
+    private void fixAfterDeletion(final TreeNode<T> node)
+    {
+        TreeNode<T> x = node;
+
+        while ( ( x != this.getTree().getRoot() ) && !TreeIterator.isRed(x) )
+        {
+            if ( x == TreeIterator.leftOf(TreeIterator.parentOf(x)) )
             {
-                this.setCurrent((TreeNode<T>) this.getCurrent().getLeft());
+                TreeNode<T> sibling = TreeIterator.rightOf(TreeIterator.parentOf(x));
+
+                if ( TreeIterator.isRed(sibling) )
+                {
+                    TreeIterator.setRed(sibling, false);
+                    TreeIterator.setRed(TreeIterator.parentOf(x), true);
+                    this.rotateLeft(TreeIterator.parentOf(x));
+                    sibling = TreeIterator.rightOf(TreeIterator.parentOf(x));
+                }
+
+                if ( !TreeIterator.isRed(TreeIterator.leftOf(sibling)) && !TreeIterator.isRed(TreeIterator.rightOf(sibling)) )
+                {
+                    TreeIterator.setRed(sibling, true);
+                    x = TreeIterator.parentOf(x);
+                }
+                else
+                {
+                    if ( !TreeIterator.isRed(TreeIterator.rightOf(sibling)) )
+                    {
+                        TreeIterator.setRed(TreeIterator.leftOf(sibling), false);
+                        TreeIterator.setRed(sibling, true);
+                        this.rotateRight(sibling);
+                        sibling = TreeIterator.rightOf(TreeIterator.parentOf(x));
+                    }
+
+                    TreeIterator.setRed(sibling, TreeIterator.isRed(TreeIterator.parentOf(x)));
+                    TreeIterator.setRed(TreeIterator.parentOf(x), false);
+                    TreeIterator.setRed(TreeIterator.rightOf(sibling), false);
+                    this.rotateLeft(TreeIterator.parentOf(x));
+                    x = this.getTree().getRoot();
+                }
+            }
+            else
+            {
+                TreeNode<T> sibling = TreeIterator.leftOf(TreeIterator.parentOf(x));
+
+                if ( TreeIterator.isRed(sibling) )
+                {
+                    TreeIterator.setRed(sibling, false);
+                    TreeIterator.setRed(TreeIterator.parentOf(x), true);
+                    this.rotateRight(TreeIterator.parentOf(x));
+                    sibling = TreeIterator.leftOf(TreeIterator.parentOf(x));
+                }
+
+                if ( !TreeIterator.isRed(TreeIterator.rightOf(sibling)) && !TreeIterator.isRed(TreeIterator.leftOf(sibling)) )
+                {
+                    TreeIterator.setRed(sibling, true);
+                    x = TreeIterator.parentOf(x);
+                }
+                else
+                {
+                    if ( !TreeIterator.isRed(TreeIterator.leftOf(sibling)) )
+                    {
+                        TreeIterator.setRed(TreeIterator.rightOf(sibling), false);
+                        TreeIterator.setRed(sibling, true);
+                        this.rotateLeft(sibling);
+                        sibling = TreeIterator.leftOf(TreeIterator.parentOf(x));
+                    }
+
+                    TreeIterator.setRed(sibling, TreeIterator.isRed(TreeIterator.parentOf(x)));
+                    TreeIterator.setRed(TreeIterator.parentOf(x), false);
+                    TreeIterator.setRed(TreeIterator.leftOf(sibling), false);
+                    this.rotateRight(TreeIterator.parentOf(x));
+                    x = this.getTree().getRoot();
+                }
+            }
+        }
+
+        TreeIterator.setRed(x, false);
+    }
+
+    // Remove any red node with a red parent above a newly inserted red node, by recoloring and rotating on the way up.
+    private void fixAfterInsertion(final TreeNode<T> node)
+    {
+        TreeNode<T> x = node;
+
+        while ( ( x != null ) && ( x != this.getTree().getRoot() ) && TreeIterator.isRed(TreeIterator.parentOf(x)) )
+        {
+            TreeNode<T> grandparent = TreeIterator.parentOf(TreeIterator.parentOf(x));
+
+            if ( TreeIterator.parentOf(x) == TreeIterator.leftOf(grandparent) )
+            {
+                TreeNode<T> uncle = TreeIterator.rightOf(grandparent);
+
+                if ( TreeIterator.isRed(uncle) )
+                {
+                    TreeIterator.setRed(TreeIterator.parentOf(x), false);
+                    TreeIterator.setRed(uncle, false);
+                    TreeIterator.setRed(grandparent, true);
+                    x = grandparent;
+                }
+                else
+                {
+                    if ( x == TreeIterator.rightOf(TreeIterator.parentOf(x)) )
+                    {
+                        x = TreeIterator.parentOf(x);
+                        this.rotateLeft(x);
+                    }
+
+                    TreeIterator.setRed(TreeIterator.parentOf(x), false);
+                    TreeIterator.setRed(TreeIterator.parentOf(TreeIterator.parentOf(x)), true);
+                    this.rotateRight(TreeIterator.parentOf(TreeIterator.parentOf(x)));
+                }
             }
             else
             {
-                this.setCurrent((TreeNode<T>) this.getCurrent().getRight());
+                TreeNode<T> uncle = TreeIterator.leftOf(grandparent);
+
+                if ( TreeIterator.isRed(uncle) )
+                {
+                    TreeIterator.setRed(TreeIterator.parentOf(x), false);
+                    TreeIterator.setRed(uncle, false);
+                    TreeIterator.setRed(grandparent, true);
+                    x = grandparent;
+                }
+                else
+                {
+                    if ( x == TreeIterator.leftOf(TreeIterator.parentOf(x)) )
+                    {
+                        x = TreeIterator.parentOf(x);
+                        this.rotateRight(x);
+                    }
+
+                    TreeIterator.setRed(TreeIterator.parentOf(x), false);
+                    TreeIterator.setRed(TreeIterator.parentOf(TreeIterator.parentOf(x)), true);
+                    this.rotateLeft(TreeIterator.parentOf(TreeIterator.parentOf(x)));
+                }
             }
+        }
+
+        TreeIterator.setRed(this.getTree().getRoot(), false);
+    }
+
+    // Return the node holding the greatest element not greater than the given one, or null if there is none.
+    public TreeNode<T> floor(final T data)
+    {
+        TreeNode<T> node = this.getTree().getRoot();
+        TreeNode<T> retVal = null;
+
+        while ( node != null )
+        {
+            int comparison = this.getTree().compare(data, node.getData());
+
+            if ( comparison == 0 ) { return node; }
 
-            if ( this.getCurrent() == null ) { return null; }
+            if ( comparison > 0 )
+            {
+                retVal = node;
+                node = TreeIterator.rightOf(node);
+            }
+            else
+            {
+                node = TreeIterator.leftOf(node);
+            }
         }
 
-        this.reset();
-        return this.getCurrent();
+        return retVal;
     }
 
     public TreeNode<T> getCurrent()
@@ -88,60 +369,103 @@ public class TreeIterator<T>
         return this.tree;
     }
 
-    @SuppressWarnings("unchecked")
-    public void insert(final T data)
+    // Add an element unless the tree already holds an equal one. Return true if it was added.
+    public boolean insert(final T data)
+    {
+        if ( this.find(data) != null ) { return false; }
+
+        TreeNode<T> newNode = ( ( this.getTree().getNodePool() != null ) ? this.getTree().getNodePool().acquire() : null );
+
+        if ( newNode == null )
+        {
+            newNode = new TreeNode<T>(data, null, null, null);
+        }
+        else
+        {
+            newNode.setData(data);
+        }
+
+        newNode.setParent(this.getParent());
+        newNode.setRed(true);
+
+        if ( this.getParent() == null )
+        {
+            this.getTree().setRoot(newNode);
+        }
+        else if ( this.getTree().compare(data, this.getParent().getData()) < 0 )
+        {
+            this.getParent().setLeft(newNode);
+        }
+        else
+        {
+            this.getParent().setRight(newNode);
+        }
+
+        this.recomputeUpward(newNode);
+        this.fixAfterInsertion(newNode);
+        this.getTree().setSize(this.getTree().getSize() + 1);
+        this.reset();
+        return true;
+    }
+
+    // Return the number of elements less than the given one.
+    public int rank(final T data)
     {
-        TreeNode<T> TreeNodeFound = this.find(data);
+        TreeNode<T> node = this.getTree().getRoot();
+        int retVal = 0;
 
-        if ( TreeNodeFound == null )
+        while ( node != null )
         {
-            TreeNode<T> newNode = new TreeNode<T>(data, null, null, null);
-            int newSize = this.getTree().getSize();
+            int comparison = this.getTree().compare(data, node.getData());
 
-            if ( this.getTree().isEmpty() )
+            if ( comparison < 0 )
             {
-                this.getTree().setRoot(newNode);
-                newSize++;
+                node = TreeIterator.leftOf(node);
+            }
+            else if ( comparison > 0 )
+            {
+                retVal += ( TreeIterator.sizeOf(TreeIterator.leftOf(node)) + 1 );
+                node = TreeIterator.rightOf(node);
             }
             else
             {
-                while ( true ) // TODO: Needs revision.
-                {
-                    this.setParent((TreeNode<T>) this.getCurrent().getParent());
-                    this.setLeft((TreeNode<T>) this.getCurrent().getLeft());
-                    this.setRight((TreeNode<T>) this.getCurrent().getRight());
+                return ( retVal + TreeIterator.sizeOf(TreeIterator.leftOf(node)) );
+            }
+        }
 
-                    boolean comparison = true; // (newNode.compareTo(this.getCurrent()) < 0)
+        return retVal;
+    }
 
-                    if ( comparison )
-                    {
-                        this.setCurrent(this.getLeft());
-
-                        if ( this.getCurrent() == null )
-                        {
-                            this.getParent().setLeft(newNode);
-                            newNode.setParent(this.getParent());
-                            newSize++;
-                            break;
-                        }
-                    }
-                    else
-                    {
-                        this.setCurrent(this.getRight());
-
-                        if ( this.getCurrent() == null )
-                        {
-                            this.getParent().setRight(newNode);
-                            newNode.setParent(this.getParent());
-                            newSize++;
-                            break;
-                        }
-                    }
-                }
-            }
+    // Recompute the cached height and subtree size of a node and of each of its ancestors.
+    private void recomputeUpward(final TreeNode<T> node)
+    {
+        for ( TreeNode<T> current = node; current != null; current = TreeIterator.parentOf(current) )
+        {
+            current.recompute();
+        }
+    }
+
+    // Put 'replacement', which may be null, in the place of 'node' under the parent of 'node'.
+    private void replace(final TreeNode<T> node, final TreeNode<T> replacement)
+    {
+        TreeNode<T> nodeParent = TreeIterator.parentOf(node);
+
+        if ( replacement != null )
+        {
+            replacement.setParent(nodeParent);
+        }
 
-            this.getTree().setSize(newSize);
-            this.reset();
+        if ( nodeParent == null )
+        {
+            this.getTree().setRoot(replacement);
+        }
+        else if ( node == nodeParent.getLeft() )
+        {
+            nodeParent.setLeft(replacement);
+        }
+        else
+        {
+            nodeParent.setRight(replacement);
         }
     }
 
@@ -164,6 +488,70 @@ public class TreeIterator<T>
         }
     }
 
+    private void rotateLeft(final TreeNode<T> node)
+    {
+        if ( node == null ) { return; }
+
+        TreeNode<T> pivot = TreeIterator.rightOf(node);
+        node.setRight(pivot.getLeft());
+
+        if ( pivot.getLeft() != null )
+        {
+            TreeIterator.leftOf(pivot).setParent(node);
+        }
+
+        this.replace(node, pivot);
+        pivot.setLeft(node);
+        node.setParent(pivot);
+        this.recomputeUpward(node);
+    }
+
+    private void rotateRight(final TreeNode<T> node)
+    {
+        if ( node == null ) { return; }
+
+        TreeNode<T> pivot = TreeIterator.leftOf(node);
+        node.setLeft(pivot.getRight());
+
+        if ( pivot.getRight() != null )
+        {
+            TreeIterator.rightOf(pivot).setParent(node);
+        }
+
+        this.replace(node, pivot);
+        pivot.setRight(node);
+        node.setParent(pivot);
+        this.recomputeUpward(node);
+    }
+
+    // Return the node holding the element with the given rank, counting from 0 for the least element.
+    public TreeNode<T> select(final int index)
+    {
+        if ( ( index < 0 ) || ( index >= this.getTree().getSize() ) ) { throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.getTree().getSize()); }
+
+        TreeNode<T> node = this.getTree().getRoot();
+        int remaining = index;
+
+        while ( true )
+        {
+            int leftSize = TreeIterator.sizeOf(TreeIterator.leftOf(node));
+
+            if ( remaining < leftSize )
+            {
+                node = TreeIterator.leftOf(node);
+            }
+            else if ( remaining > leftSize )
+            {
+                remaining -= ( leftSize + 1 );
+                node = TreeIterator.rightOf(node);
+            }
+            else
+            {
+                return node;
+            }
+        }
+    }
+
     public final void setCurrent(final TreeNode<T> current)
     {
         this.current = current;
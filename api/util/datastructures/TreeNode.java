@@ -5,44 +5,53 @@
  * 
  * A minimalist generic node data structure which stores raw data.
  * This type of node has methods that are helpful when stored in a tree structure.
+ *
+ * Each node caches the height and the number of nodes of the subtree below it. They are computed from the children when the node is constructed, and
+ * recompute() must be called on a node, and then on each of its ancestors, whenever its children change; Tree does this on every insertion and deletion.
  */
 
 package api.util.datastructures;
 
 public class TreeNode<T> extends DataNode<T>
 {
-    private Node parent = null;
+    private int     height      = 0;     // Height of the subtree rooted here; a leaf has height 0.
+    private Node    parent      = null;
+    private boolean red         = false; // The node's color in a red-black tree; black otherwise.
+    private int     subtreeSize = 1;     // Number of nodes in the subtree rooted here, including this one.
 
     public TreeNode(final T data, final Node parent, final Node right, final Node left)
     {
         super(data, right, left);
         this.setParent(parent);
+        this.recompute();
     }
 
-    @SuppressWarnings("unchecked")
+    private static final int heightOf(final Node node)
+    {
+        return ( ( node == null ) ? -1 : ( (TreeNode<?>) node ).getHeight() );
+    }
+
+    private static final int sizeOf(final Node node)
+    {
+        return ( ( node == null ) ? 0 : ( (TreeNode<?>) node ).getSubtreeSize() );
+    }
+
+    // Return the number of edges between this node and the root, by following the parent links.
     public int getDepth()
     {
-        if ( this.isRoot() )
-        {
-            return 0;
-        }
-        else
+        int depth = 0;
+
+        for ( Node node = this.getParent(); node != null; node = ( (TreeNode<?>) node ).getParent() )
         {
-            return ( ( (TreeNode<T>) this.getParent() ).getDepth() + 1 );
+            depth++;
         }
+
+        return depth;
     }
 
-    @SuppressWarnings("unchecked")
     public int getHeight()
     {
-        if ( this.isLeaf() )
-        {
-            return 0;
-        }
-        else
-        {
-            return ( Math.max(( ( (TreeNode<T>) this.getLeft() ).getHeight() + 1 ), ( ( (TreeNode<T>) this.getRight() ).getHeight() + 1 )) );
-        }
+        return this.height;
     }
 
     public final Node getLeft()
@@ -60,6 +69,11 @@ public class TreeNode<T> extends DataNode<T>
         return this.getNext();
     }
 
+    public final int getSubtreeSize()
+    {
+        return this.subtreeSize;
+    }
+
     public boolean isLeaf()
     {
         return ( ( this.getLeft() == null ) && ( this.getRight() == null ) );
@@ -76,6 +90,11 @@ public class TreeNode<T> extends DataNode<T>
         return false;
     }
 
+    public final boolean isRed()
+    {
+        return this.red;
+    }
+
     @SuppressWarnings("unchecked")
     public boolean isRight()
     {
@@ -92,6 +111,22 @@ public class TreeNode<T> extends DataNode<T>
         return ( this.getParent() == null );
     }
 
+    // Recompute the cached height and subtree size from the children's.
+    public final void recompute()
+    {
+        this.height = ( Math.max(TreeNode.heightOf(this.getLeft()), TreeNode.heightOf(this.getRight())) + 1 );
+        this.subtreeSize = ( TreeNode.sizeOf(this.getLeft()) + TreeNode.sizeOf(this.getRight()) + 1 );
+    }
+
+    @Override
+    public void recycle()
+    {
+        super.recycle();
+        this.setParent(null);
+        this.setRed(false);
+        this.recompute();
+    }
+
     public final void setLeft(final Node left)
     {
         this.setPrevious(left);
@@ -102,6 +137,11 @@ public class TreeNode<T> extends DataNode<T>
         this.parent = parent;
     }
 
+    public final void setRed(final boolean red)
+    {
+        this.red = red;
+    }
+
     public final void setRight(final Node right)
     {
         this.setNext(right);
@@ -56,12 +56,12 @@ public class SICXE_AssemblerCodeLine
 
                 if ( SICXE_AssemblerProgram.isAssemblerDirective(opCode) )
                 {
-                    numOperands = SICXE_AssemblerProgram.DIRECTIVE_TABLE.get(opCode).getNumOperands();
+                    numOperands = SICXE_AssemblerProgram.DIRECTIVE_LOOKUP.get(opCode).getNumOperands();
                 }
 
                 if ( SICXE_AssemblerProgram.isProgramInstruction(opCode) )
                 {
-                    numOperands = SICXE_AssemblerProgram.INSTRUCTION_TABLE.get(opCode).getNumOperands();
+                    numOperands = SICXE_AssemblerProgram.INSTRUCTION_LOOKUP.get(opCode).getNumOperands();
                 }
 
                 if ( numOperands > 0 )
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.List;
 import api.util.Lexer;
 import api.util.Support;
+import api.util.datastructures.FrozenSymbolTable;
 import api.util.datastructures.SeparateChainingSymbolTable;
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.Out;
@@ -34,6 +35,9 @@ public class SICXE_AssemblerProgram extends SimpleSymbolTable
     // Directive table contains all possible assembler directives.
     public static final SeparateChainingSymbolTable<String, SICXE_OpCode> DIRECTIVE_TABLE = SICXE_AssemblerProgram.constructDirectiveTable(new SeparateChainingSymbolTable<String, SICXE_OpCode>());
 
+    // The assembler looks directives up in this copy, frozen from DIRECTIVE_TABLE when the class is initialized.
+    static final FrozenSymbolTable<String, SICXE_OpCode> DIRECTIVE_LOOKUP = SICXE_AssemblerProgram.DIRECTIVE_TABLE.freeze();
+
     // Output file extensions.
     public static final String fileExtLst = ".lst";
     public static final String fileExtMid = ".mid";
@@ -42,9 +46,15 @@ public class SICXE_AssemblerProgram extends SimpleSymbolTable
     // Instruction table contains all possible program instructions.
     public static final SeparateChainingSymbolTable<String, SICXE_OpCode> INSTRUCTION_TABLE = SICXE_AssemblerProgram.constructInstructionTable(new SeparateChainingSymbolTable<String, SICXE_OpCode>());
 
+    // The assembler looks instructions up in this copy, frozen from INSTRUCTION_TABLE when the class is initialized.
+    static final FrozenSymbolTable<String, SICXE_OpCode> INSTRUCTION_LOOKUP = SICXE_AssemblerProgram.INSTRUCTION_TABLE.freeze();
+
     // Register table contains all possible registers.
     public static final SeparateChainingSymbolTable<String, Byte> REGISTER_TABLE = SICXE_AssemblerProgram.constructRegisterTable(new SeparateChainingSymbolTable<String, Byte>());
 
+    // The assembler looks registers up in this copy, frozen from REGISTER_TABLE when the class is initialized.
+    static final FrozenSymbolTable<String, Byte> REGISTER_LOOKUP = SICXE_AssemblerProgram.REGISTER_TABLE.freeze();
+
     protected static final String buildLiteralTableString(final SICXE_AssemblerProgram asmProgram)
     {
         // This method builds the literal table string for printing.
@@ -342,7 +352,7 @@ public class SICXE_AssemblerProgram extends SimpleSymbolTable
 
     public static final boolean isAssemblerDirective(final String s)
     {
-        return SICXE_AssemblerProgram.DIRECTIVE_TABLE.contains(s);
+        return SICXE_AssemblerProgram.DIRECTIVE_LOOKUP.contains(s);
     }
 
     public static final boolean isOpCode(final String s)
@@ -352,7 +362,7 @@ public class SICXE_AssemblerProgram extends SimpleSymbolTable
 
     public static final boolean isProgramInstruction(final String s)
     {
-        return SICXE_AssemblerProgram.INSTRUCTION_TABLE.contains(s);
+        return SICXE_AssemblerProgram.INSTRUCTION_LOOKUP.contains(s);
     }
 
     protected static final SICXE_Literal resolveLiteral(final String literal, final SICXE_AssemblerProgram asmProgram)
@@ -669,7 +679,7 @@ public class SICXE_AssemblerProgram extends SimpleSymbolTable
                 if ( SICXE_AssemblerProgram.isProgramInstruction(acl.getOpCode()) )
                 {
                     // If the opCode is a program instruction, then increment locCtr by the instruction's format number.
-                    incAmount = SICXE_AssemblerProgram.INSTRUCTION_TABLE.get(acl.getOpCode()).getFormat();
+                    incAmount = SICXE_AssemblerProgram.INSTRUCTION_LOOKUP.get(acl.getOpCode()).getFormat();
                 }
 
                 if ( SICXE_AssemblerProgram.isAssemblerDirective(acl.getOpCode()) )
@@ -683,7 +693,7 @@ public class SICXE_AssemblerProgram extends SimpleSymbolTable
                      * 
                      * @formatter:on
                      */
-                    int format = SICXE_AssemblerProgram.DIRECTIVE_TABLE.get(acl.getOpCode()).getFormat();
+                    int format = SICXE_AssemblerProgram.DIRECTIVE_LOOKUP.get(acl.getOpCode()).getFormat();
 
                     switch ( acl.getOpCode() )
                     {
@@ -852,7 +862,7 @@ public class SICXE_AssemblerProgram extends SimpleSymbolTable
             // Handle program instructions.
             if ( SICXE_AssemblerProgram.isProgramInstruction(acl.getOpCode()) )
             {
-                SICXE_OpCode opCodeInfo = SICXE_AssemblerProgram.INSTRUCTION_TABLE.get(acl.getOpCode());
+                SICXE_OpCode opCodeInfo = SICXE_AssemblerProgram.INSTRUCTION_LOOKUP.get(acl.getOpCode());
                 String opCode = String.format("%02X", opCodeInfo.getOpCode());
 
                 // Divide up the instruction handling code based on the format of the instruction.
@@ -881,7 +891,7 @@ public class SICXE_AssemblerProgram extends SimpleSymbolTable
 
                                 if ( operands.length > 1 )
                                 {
-                                    reg1 = SICXE_AssemblerProgram.REGISTER_TABLE.get(operands[0]);
+                                    reg1 = SICXE_AssemblerProgram.REGISTER_LOOKUP.get(operands[0]);
 
                                     if ( ( reg1 >= 0 ) && ( reg1 <= 9 ) )
                                     {
@@ -907,7 +917,7 @@ public class SICXE_AssemblerProgram extends SimpleSymbolTable
 
                                             default: // ADDR, COMPR, DIVR, MULR, RMO, SUBR.
 
-                                                reg2 = SICXE_AssemblerProgram.REGISTER_TABLE.get(operands[1]);
+                                                reg2 = SICXE_AssemblerProgram.REGISTER_LOOKUP.get(operands[1]);
 
                                                 if ( ( reg2 >= 0 ) && ( reg2 <= 9 ) )
                                                 {
@@ -951,7 +961,7 @@ public class SICXE_AssemblerProgram extends SimpleSymbolTable
                                 // CLEAR, TIXR.
                                 else
                                 {
-                                    reg1 = SICXE_AssemblerProgram.REGISTER_TABLE.get(acl.getOperand());
+                                    reg1 = SICXE_AssemblerProgram.REGISTER_LOOKUP.get(acl.getOperand());
 
                                     if ( ( reg1 >= 0 ) && ( reg1 <= 9 ) )
                                     {